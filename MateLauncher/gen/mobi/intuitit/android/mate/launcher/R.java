@@ -382,6 +382,7 @@ containing a value of this type.
         public static final int applist_image=0x7f070019;
         public static final int applist_listview=0x7f070047;
         public static final int applist_name=0x7f07001a;
+        public static final int bound_row_targets=0x7f070064;
         public static final int btnwrite=0x7f070020;
         public static final int cell1=0x7f070037;
         public static final int cell2=0x7f070038;
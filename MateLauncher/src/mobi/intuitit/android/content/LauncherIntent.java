@@ -77,6 +77,13 @@ public class LauncherIntent extends Intent {
         		+ "ACTION_SCROLL_WIDGET_CLOSE";
         public static final String ACTION_SCROLL_WIDGET_CLEAR_IMAGE_CACHE = PNAME
 				+ "ACTION_SCROLL_WIDGET_CLEAR_IMAGE_CACHE";
+        /**
+         * Rows of a scrollable widget changed in place, the row count did not
+         * change. Only these rows are read again, through a row range query.
+         * Inserts and deletes are still notified on the data uri.
+         */
+        public static final String ACTION_SCROLL_WIDGET_ROWS_CHANGED = PNAME
+        		+ "ACTION_SCROLL_WIDGET_ROWS_CHANGED";
     }
 
     /**
@@ -106,6 +113,21 @@ public class LauncherIntent extends Intent {
              */
             public static final String EXTRA_DATA_URI = PNAME + "EXTRA_DATA_URI";
 
+            /**
+             * The first changed row and the number of changed rows
+             *   this data is sent with ACTION_SCROLL_WIDGET_ROWS_CHANGED
+             */
+            public static final String EXTRA_FIRST_ROW = PNAME + "EXTRA_FIRST_ROW";
+            public static final String EXTRA_ROW_COUNT = PNAME + "EXTRA_ROW_COUNT";
+
+            /**
+             * Query parameters appended to the data uri to read changed rows
+             *   the provider returns at most QUERY_PARAMETER_LIMIT rows of the
+             *   full query result, starting at QUERY_PARAMETER_OFFSET
+             */
+            public static final String QUERY_PARAMETER_OFFSET = "hpp_offset";
+            public static final String QUERY_PARAMETER_LIMIT = "hpp_limit";
+
             /**
              * Allow to force listview position (used for ACTION_SCROLL_WIDGET_START and ACTION_SCROLL_WIDGET_SELECT_ITEM)
              *   pass -1 to don't force the position
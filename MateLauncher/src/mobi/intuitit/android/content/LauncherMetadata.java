@@ -5,7 +5,13 @@ public final class LauncherMetadata {
 	/*
 	 * Contains the current "Android AppWidget Extension API Version" 
 	 */
-	public static final int CurrentAPIVersion = 2;
+	public static final int CurrentAPIVersion = 3;
+
+	/*
+	 * First API Version supporting ACTION_SCROLL_WIDGET_ROWS_CHANGED and the
+	 * row range queries of scrollable widgets
+	 */
+	public static final int RowRangeAPIVersion = 3;
 	
 	private static final String PNAME = "LauncherMetadata.";
 	
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the applications shown in the drawer, in drawer order, with the
+ * search index used by the application pickers.
+ *
+ * Catalogs are built from {@link ApplicationsAdapter} and reused until the
+ * drawer changes, so opening a picker neither queries the PackageManager nor
+ * sorts the applications again.
+ */
+final class AppCatalog {
+	final List<ItemInfo> applications;
+
+	/**
+	 * Index over the titles of the applications. It is not thread-safe,
+	 * callers synchronize on it.
+	 */
+	final ChosungIndex index;
+
+	AppCatalog(List<ItemInfo> applications) {
+		final int count = applications.size();
+		final ArrayList<ItemInfo> copy = new ArrayList<ItemInfo>(applications);
+		final ArrayList<String> titles = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			final CharSequence title = copy.get(i).title;
+			titles.add(title != null ? title.toString() : null);
+		}
+
+		this.applications = Collections.unmodifiableList(copy);
+		index = new ChosungIndex(titles);
+	}
+
+	int size() {
+		return applications.size();
+	}
+}
@@ -19,7 +19,6 @@ package mobi.intuitit.android.mate.launcher;
 import java.util.ArrayList;
 
 import android.content.Context;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -31,10 +30,33 @@ import android.widget.TextView;
  */
 public class ApplicationsAdapter extends ArrayAdapter<ItemInfo> {
 	private final LayoutInflater mInflater;
+	private final ArrayList<ItemInfo> mApplications;
+
+	// Catalog of the current content, dropped whenever the content changes
+	private AppCatalog mCatalog;
 
 	public ApplicationsAdapter(Context context, ArrayList<ItemInfo> apps) {
 		super(context, 0, apps);
 		mInflater = LayoutInflater.from(context);
+		mApplications = apps;
+	}
+
+	/**
+	 * Returns the catalog of the applications currently in the drawer,
+	 * building it the first time it is requested after a change.
+	 */
+	AppCatalog getCatalog() {
+		if (mCatalog == null) {
+			mCatalog = new AppCatalog(mApplications);
+		}
+		return mCatalog;
+	}
+
+	@Override
+	public void notifyDataSetChanged() {
+		// Every change of the drawer content ends with a notification
+		mCatalog = null;
+		super.notifyDataSetChanged();
 	}
 
 	@Override
@@ -46,11 +68,7 @@ public class ApplicationsAdapter extends ArrayAdapter<ItemInfo> {
 					false);
 		}
 
-		if (!info.filtered) {
-			Log.e("icon", info.icon.toString());
-			info.icon = Utilities.createIconThumbnail(info.icon, getContext());
-			info.filtered = true;
-		}
+		filterIcon(info, getContext());
 
 		final TextView textView = (TextView) convertView;
 		textView.setCompoundDrawablesWithIntrinsicBounds(null, info.icon, null,
@@ -59,4 +77,14 @@ public class ApplicationsAdapter extends ArrayAdapter<ItemInfo> {
 
 		return convertView;
 	}
+
+	/**
+	 * Replaces the icon of the specified application by its thumbnail, once.
+	 */
+	static void filterIcon(ItemInfo info, Context context) {
+		if (!info.filtered) {
+			info.icon = Utilities.createIconThumbnail(info.icon, context);
+			info.filtered = true;
+		}
+	}
 }
@@ -19,11 +19,6 @@ package mobi.intuitit.android.mate.launcher;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.util.AttributeSet;
@@ -57,6 +52,15 @@ public class CellLayout extends LayoutType {
 
 	boolean[][] mOccupied;
 
+	/**
+	 * Cells covered by the children, maintained as they are added, moved and
+	 * removed. Only rebuilt from the children when the orientation changes or
+	 * after the children were all removed.
+	 */
+	private final CellOccupancy mOccupancy;
+	private final CellOccupancy mScratchOccupancy;
+	private boolean mOccupancyDirty = true;
+
 	private RectF mDragRect = new RectF();
 
 	private boolean mDirtyTag;
@@ -96,13 +100,8 @@ public class CellLayout extends LayoutType {
 
 		setAlwaysDrawnWithCacheEnabled(false);
 
-		if (mOccupied == null) {
-			if (mPortrait) {
-				mOccupied = new boolean[mShortAxisCells][mLongAxisCells];
-			} else {
-				mOccupied = new boolean[mLongAxisCells][mShortAxisCells];
-			}
-		}
+		mOccupancy = new CellOccupancy(getCountX(), getCountY());
+		mScratchOccupancy = new CellOccupancy(getCountX(), getCountY());
 	}
 
 	@Override
@@ -134,6 +133,140 @@ public class CellLayout extends LayoutType {
 		cellParams.regenerateId = true;
 
 		super.addView(child, index, params);
+
+		if (!mOccupancyDirty) {
+			occupy(child);
+		}
+	}
+
+	@Override
+	public void removeView(View view) {
+		vacate(view);
+		super.removeView(view);
+	}
+
+	@Override
+	public void removeViewInLayout(View view) {
+		vacate(view);
+		super.removeViewInLayout(view);
+	}
+
+	@Override
+	public void removeViewAt(int index) {
+		vacate(getChildAt(index));
+		super.removeViewAt(index);
+	}
+
+	@Override
+	public void removeViews(int start, int count) {
+		for (int i = start; i < start + count; i++) {
+			vacate(getChildAt(i));
+		}
+		super.removeViews(start, count);
+	}
+
+	@Override
+	public void removeViewsInLayout(int start, int count) {
+		for (int i = start; i < start + count; i++) {
+			vacate(getChildAt(i));
+		}
+		super.removeViewsInLayout(start, count);
+	}
+
+	@Override
+	public void removeAllViews() {
+		mOccupancyDirty = true;
+		super.removeAllViews();
+	}
+
+	@Override
+	public void removeAllViewsInLayout() {
+		mOccupancyDirty = true;
+		super.removeAllViewsInLayout();
+	}
+
+	/**
+	 * Returns the cells covered by the children.
+	 */
+	private CellOccupancy getOccupancy() {
+		final CellOccupancy occupancy = mOccupancy;
+		final int xCount = getCountX();
+		final int yCount = getCountY();
+
+		if (mOccupancyDirty || occupancy.getCountX() != xCount
+				|| occupancy.getCountY() != yCount) {
+			occupancy.resize(xCount, yCount);
+			final int count = getChildCount();
+			for (int i = 0; i < count; i++) {
+				occupy(getChildAt(i));
+			}
+			mOccupancyDirty = false;
+		}
+
+		return occupancy;
+	}
+
+	/**
+	 * Returns the cells covered by the children except the specified one, in
+	 * a grid reused by every call.
+	 */
+	private CellOccupancy getOccupancy(View ignoreView) {
+		final CellOccupancy occupancy = getOccupancy();
+		if (ignoreView == null || ignoreView.getParent() != this) {
+			return occupancy;
+		}
+
+		final LayoutParams lp = (LayoutParams) ignoreView.getLayoutParams();
+		if (!lp.occupying) {
+			return occupancy;
+		}
+
+		final CellOccupancy scratch = mScratchOccupancy;
+		scratch.set(occupancy);
+		scratch.remove(lp.occupiedX, lp.occupiedY, lp.occupiedSpanX,
+				lp.occupiedSpanY);
+		return scratch;
+	}
+
+	private void occupy(View child) {
+		if (child instanceof Folder) {
+			return;
+		}
+
+		final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+		lp.occupying = true;
+		lp.occupiedX = lp.cellX;
+		lp.occupiedY = lp.cellY;
+		lp.occupiedSpanX = lp.cellHSpan;
+		lp.occupiedSpanY = lp.cellVSpan;
+		mOccupancy.add(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
+	}
+
+	private void vacate(View child) {
+		if (child == null || child.getParent() != this) {
+			return;
+		}
+
+		final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+		if (lp.occupying) {
+			lp.occupying = false;
+			if (!mOccupancyDirty) {
+				mOccupancy.remove(lp.occupiedX, lp.occupiedY,
+						lp.occupiedSpanX, lp.occupiedSpanY);
+			}
+		}
+	}
+
+	/**
+	 * Returns {@link #mOccupied}, sized for the current orientation.
+	 */
+	private boolean[][] getOccupied(int xCount, int yCount) {
+		boolean[][] occupied = mOccupied;
+		if (occupied == null || occupied.length != xCount
+				|| occupied[0].length != yCount) {
+			occupied = mOccupied = new boolean[xCount][yCount];
+		}
+		return occupied;
 	}
 
 	@Override
@@ -194,9 +327,6 @@ public class CellLayout extends LayoutType {
 				final int xCount = portrait ? mShortAxisCells : mLongAxisCells;
 				final int yCount = portrait ? mLongAxisCells : mShortAxisCells;
 
-				final boolean[][] occupied = mOccupied;
-				findOccupiedCells(xCount, yCount, occupied, null);
-
 				cellInfo.cell = null;
 				cellInfo.cellX = cellXY[0];
 				cellInfo.cellY = cellXY[1];
@@ -204,7 +334,7 @@ public class CellLayout extends LayoutType {
 				cellInfo.spanY = 1;
 				cellInfo.valid = cellXY[0] >= 0 && cellXY[1] >= 0
 						&& cellXY[0] < xCount && cellXY[1] < yCount
-						&& !occupied[cellXY[0]][cellXY[1]];
+						&& !getOccupancy().isOccupied(cellXY[0], cellXY[1]);
 
 				// Instead of finding the interesting vacant cells here, wait
 				// until a
@@ -240,8 +370,8 @@ public class CellLayout extends LayoutType {
 			final int xCount = portrait ? mShortAxisCells : mLongAxisCells;
 			final int yCount = portrait ? mLongAxisCells : mShortAxisCells;
 
-			final boolean[][] occupied = mOccupied;
-			findOccupiedCells(xCount, yCount, occupied, null);
+			final boolean[][] occupied = getOccupied(xCount, yCount);
+			getOccupancy().copyTo(occupied);
 
 			findIntersectingVacantCells(info, info.cellX, info.cellY, xCount,
 					yCount, occupied);
@@ -353,7 +483,7 @@ public class CellLayout extends LayoutType {
 		final int xCount = portrait ? mShortAxisCells : mLongAxisCells;
 		final int yCount = portrait ? mLongAxisCells : mShortAxisCells;
 
-		boolean[][] occupied = mOccupied;
+		final boolean[][] occupied = getOccupied(xCount, yCount);
 
 		if (occupiedCells != null) {
 			for (int y = 0; y < yCount; y++) {
@@ -362,7 +492,7 @@ public class CellLayout extends LayoutType {
 				}
 			}
 		} else {
-			findOccupiedCells(xCount, yCount, occupied, ignoreView);
+			getOccupancy(ignoreView).copyTo(occupied);
 		}
 
 		return findAllVacantCellsFromOccupied(occupied, xCount, yCount);
@@ -524,9 +654,6 @@ public class CellLayout extends LayoutType {
 		}
 
 		setMeasuredDimension(widthSpecSize, heightSpecSize);
-
-		if (mThumb == null)
-			initThumb(widthSpecSize >> 2, heightSpecSize >> 2);
 	}
 
 	@Override
@@ -547,62 +674,8 @@ public class CellLayout extends LayoutType {
 			}
 		}
 
-		layoutDrawed = false;
-	}
-
-	private Bitmap mThumb;
-	private Canvas mThumbCanvas;
-	private Paint mThumbPaint;
-
-	boolean layoutDrawed = false;
-
-	private void initThumb(int width, int height) {
-		if (mThumb == null || mThumb.isRecycled())
-			mThumb = Bitmap
-					.createBitmap(width, height, Bitmap.Config.ARGB_4444);
-
-		Matrix matrix = new Matrix();
-		matrix.setScale(0.25f, 0.25f);
-		mThumbCanvas = new Canvas(mThumb);
-		mThumbCanvas.concat(matrix);
-
-		mThumbPaint = new Paint();
-		mThumbPaint.setDither(true);
-		mThumbPaint.setAntiAlias(true);
-	}
-
-	public Bitmap getThumb() {
-		return mThumb;
-	}
-
-	synchronized void saveThumb() {
-		if (layoutDrawed)
-			return;
-
-		if (mThumbCanvas == null)
-			initThumb(getWidth() >> 2, getHeight() >> 2);
-
-		setDrawingCacheEnabled(true);
-
-		// Get bitmap
-		Bitmap bmp = getDrawingCache();
-		if (bmp != null) {
-			mThumbCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
-			mThumbCanvas.drawBitmap(bmp, 0, 0, mThumbPaint);
-		}
-
-		// Clean up
-		destroyDrawingCache();
-		setDrawingCacheEnabled(false);
-		layoutDrawed = true;
-	}
-
-	protected void onDetachedFromWindow() {
-		super.onDetachedFromWindow();
-		if (mThumb != null)
-			mThumb.recycle();
-		mThumb = null;
-		mThumbCanvas = null;
+		if (changed)
+			setThumbDirty(true);
 	}
 
 	@Override
@@ -693,8 +766,12 @@ public class CellLayout extends LayoutType {
 	void onDropChild(View child, int[] targetXY) {
 		if (child != null) {
 			LayoutParams lp = (LayoutParams) child.getLayoutParams();
+			vacate(child);
 			lp.cellX = targetXY[0];
 			lp.cellY = targetXY[1];
+			if (!mOccupancyDirty && child.getParent() == this) {
+				occupy(child);
+			}
 			lp.isDragging = false;
 			mDragRect.setEmpty();
 			child.requestLayout();
@@ -765,14 +842,48 @@ public class CellLayout extends LayoutType {
 	 * @return True if a vacant cell was found
 	 */
 	public boolean getVacantCell(int[] vacant, int spanX, int spanY) {
-		final boolean portrait = mPortrait;
-		final int xCount = portrait ? mShortAxisCells : mLongAxisCells;
-		final int yCount = portrait ? mLongAxisCells : mShortAxisCells;
-		final boolean[][] occupied = mOccupied;
+		return getOccupancy().findVacantCell(vacant, spanX, spanY);
+	}
 
-		findOccupiedCells(xCount, yCount, occupied, null);
+	/**
+	 * Find the first vacant area that can hold the specified span, ignoring
+	 * the given child.
+	 * 
+	 * @param cellXY
+	 *            Holds the x and y coordinate of the vacant area
+	 * @param ignoreView
+	 *            Child whose cells are considered vacant, usually the one
+	 *            being dragged. Can be null.
+	 * 
+	 * @return True if a vacant area was found
+	 */
+	boolean findCellForSpan(int[] cellXY, int spanX, int spanY,
+			View ignoreView) {
+		return getOccupancy(ignoreView).findVacantCell(cellXY, spanX, spanY);
+	}
 
-		return findVacantCell(vacant, spanX, spanY, xCount, yCount, occupied);
+	/**
+	 * Find the vacant area that can hold the specified span nearest to the
+	 * cell under the given point, ignoring the given child.
+	 * 
+	 * @param pixelX
+	 *            The X location at which you want to search for a vacant area.
+	 * @param pixelY
+	 *            The Y location at which you want to search for a vacant area.
+	 * @param ignoreView
+	 *            Child whose cells are considered vacant, usually the one
+	 *            being dropped. Can be null.
+	 * @param result
+	 *            Holds the x and y coordinate of the vacant area
+	 * 
+	 * @return True if a vacant area was found
+	 */
+	boolean estimateDropCell(int pixelX, int pixelY, int spanX, int spanY,
+			View ignoreView, int[] result) {
+		final int[] cellXY = mCellXY;
+		pointToCellExact(pixelX, pixelY, cellXY);
+		return getOccupancy(ignoreView).findNearestVacantCell(cellXY[0],
+				cellXY[1], spanX, spanY, result);
 	}
 
 	static boolean findVacantCell(int[] vacant, int spanX, int spanY,
@@ -804,45 +915,11 @@ public class CellLayout extends LayoutType {
 		final boolean portrait = mPortrait;
 		final int xCount = portrait ? mShortAxisCells : mLongAxisCells;
 		final int yCount = portrait ? mLongAxisCells : mShortAxisCells;
-		final boolean[][] occupied = mOccupied;
-
-		findOccupiedCells(xCount, yCount, occupied, null);
-
 		final boolean[] flat = new boolean[xCount * yCount];
-		for (int y = 0; y < yCount; y++) {
-			for (int x = 0; x < xCount; x++) {
-				flat[y * xCount + x] = occupied[x][y];
-			}
-		}
-
+		getOccupancy().copyTo(flat);
 		return flat;
 	}
 
-	private void findOccupiedCells(int xCount, int yCount,
-			boolean[][] occupied, View ignoreView) {
-		for (int x = 0; x < xCount; x++) {
-			for (int y = 0; y < yCount; y++) {
-				occupied[x][y] = false;
-			}
-		}
-
-		int count = getChildCount();
-		for (int i = 0; i < count; i++) {
-			View child = getChildAt(i);
-			if (child instanceof Folder || child.equals(ignoreView)) {
-				continue;
-			}
-			LayoutParams lp = (LayoutParams) child.getLayoutParams();
-
-			for (int x = lp.cellX; x < lp.cellX + lp.cellHSpan && x < xCount; x++) {
-				for (int y = lp.cellY; y < lp.cellY + lp.cellVSpan
-						&& y < yCount; y++) {
-					occupied[x][y] = true;
-				}
-			}
-		}
-	}
-
 	@Override
 	public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
 		return new CellLayout.LayoutParams(getContext(), attrs);
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.Arrays;
+
+/**
+ * Occupancy of the cells of a {@link CellLayout}, kept up to date as views
+ * are added, moved and removed instead of being rebuilt from the children.
+ *
+ * Every row is a bitmask with bit x set when cell x of the row is occupied, so
+ * span queries are a few bit operations per row. The number of views covering
+ * each cell is kept as well, so a view can be taken out of the grid even when
+ * it overlaps another one.
+ *
+ * This class does not allocate once sized and has no Android dependencies.
+ */
+final class CellOccupancy {
+	/**
+	 * Maximum number of cells on the horizontal axis.
+	 */
+	static final int MAX_COUNT_X = 63;
+
+	private int mCountX;
+	private int mCountY;
+
+	private long[] mRows;
+	private byte[] mCounts;
+
+	CellOccupancy(int countX, int countY) {
+		resize(countX, countY);
+	}
+
+	/**
+	 * Changes the size of the grid, which is left empty.
+	 */
+	void resize(int countX, int countY) {
+		if (countX > MAX_COUNT_X) {
+			throw new IllegalArgumentException("At most " + MAX_COUNT_X
+					+ " cells per row are supported, got " + countX);
+		}
+
+		mCountX = countX;
+		mCountY = countY;
+		if (mRows == null || mRows.length < countY) {
+			mRows = new long[countY];
+		}
+		if (mCounts == null || mCounts.length < countX * countY) {
+			mCounts = new byte[countX * countY];
+		}
+		clear();
+	}
+
+	int getCountX() {
+		return mCountX;
+	}
+
+	int getCountY() {
+		return mCountY;
+	}
+
+	void clear() {
+		Arrays.fill(mRows, 0, mCountY, 0);
+		Arrays.fill(mCounts, 0, mCountX * mCountY, (byte) 0);
+	}
+
+	/**
+	 * Copies the specified grid, resizing this one if needed.
+	 */
+	void set(CellOccupancy other) {
+		if (mCountX != other.mCountX || mCountY != other.mCountY) {
+			resize(other.mCountX, other.mCountY);
+		}
+		System.arraycopy(other.mRows, 0, mRows, 0, mCountY);
+		System.arraycopy(other.mCounts, 0, mCounts, 0, mCountX * mCountY);
+	}
+
+	/**
+	 * Fills the grid from an occupied[x][y] array.
+	 */
+	void set(boolean[][] occupied) {
+		clear();
+		for (int x = 0; x < mCountX; x++) {
+			for (int y = 0; y < mCountY; y++) {
+				if (occupied[x][y]) {
+					add(x, y, 1, 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the cells covered by a view as occupied. Cells out of the grid
+	 * are ignored.
+	 */
+	void add(int cellX, int cellY, int spanX, int spanY) {
+		final int right = Math.min(cellX + spanX, mCountX);
+		final int bottom = Math.min(cellY + spanY, mCountY);
+		final int countX = mCountX;
+		final byte[] counts = mCounts;
+		final long[] rows = mRows;
+
+		for (int y = Math.max(cellY, 0); y < bottom; y++) {
+			for (int x = Math.max(cellX, 0); x < right; x++) {
+				counts[y * countX + x]++;
+				rows[y] |= 1L << x;
+			}
+		}
+	}
+
+	/**
+	 * Releases the cells covered by a view previously passed to {@link #add}.
+	 * Cells also covered by another view stay occupied.
+	 */
+	void remove(int cellX, int cellY, int spanX, int spanY) {
+		final int right = Math.min(cellX + spanX, mCountX);
+		final int bottom = Math.min(cellY + spanY, mCountY);
+		final int countX = mCountX;
+		final byte[] counts = mCounts;
+		final long[] rows = mRows;
+
+		for (int y = Math.max(cellY, 0); y < bottom; y++) {
+			for (int x = Math.max(cellX, 0); x < right; x++) {
+				final int index = y * countX + x;
+				if (counts[index] > 0 && --counts[index] == 0) {
+					rows[y] &= ~(1L << x);
+				}
+			}
+		}
+	}
+
+	boolean isOccupied(int x, int y) {
+		return (mRows[y] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Returns true if the specified area is inside the grid and entirely
+	 * vacant.
+	 */
+	boolean isVacant(int cellX, int cellY, int spanX, int spanY) {
+		if (cellX < 0 || cellY < 0 || spanX <= 0 || spanY <= 0
+				|| cellX + spanX > mCountX || cellY + spanY > mCountY) {
+			return false;
+		}
+
+		final long mask = ((1L << spanX) - 1) << cellX;
+		final long[] rows = mRows;
+		for (int y = cellY; y < cellY + spanY; y++) {
+			if ((rows[y] & mask) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the first vacant area of the specified span, scanning column by
+	 * column like {@link CellLayout#findVacantCell}.
+	 *
+	 * @return True if a vacant area was found
+	 */
+	boolean findVacantCell(int[] vacant, int spanX, int spanY) {
+		final int lastY = mCountY - spanY;
+		if (spanX <= 0 || spanY <= 0 || spanX > mCountX || lastY < 0) {
+			return false;
+		}
+
+		int bestX = Integer.MAX_VALUE;
+		int bestY = -1;
+
+		for (int y = 0; y <= lastY; y++) {
+			final long starts = findSpanStarts(y, spanX, spanY);
+			if (starts != 0) {
+				final int x = Long.numberOfTrailingZeros(starts);
+				if (x < bestX) {
+					bestX = x;
+					bestY = y;
+				}
+			}
+		}
+
+		if (bestY < 0) {
+			return false;
+		}
+		vacant[0] = bestX;
+		vacant[1] = bestY;
+		return true;
+	}
+
+	/**
+	 * Finds the vacant area of the specified span whose top left cell is the
+	 * nearest to the given cell.
+	 *
+	 * @return True if a vacant area was found
+	 */
+	boolean findNearestVacantCell(int cellX, int cellY, int spanX,
+			int spanY, int[] result) {
+		final int lastY = mCountY - spanY;
+		if (spanX <= 0 || spanY <= 0 || spanX > mCountX || lastY < 0) {
+			return false;
+		}
+
+		int bestDistance = Integer.MAX_VALUE;
+
+		for (int y = 0; y <= lastY; y++) {
+			long starts = findSpanStarts(y, spanX, spanY);
+			final int dy = y - cellY;
+			while (starts != 0) {
+				final int x = Long.numberOfTrailingZeros(starts);
+				starts &= starts - 1;
+
+				final int dx = x - cellX;
+				final int distance = dx * dx + dy * dy;
+				if (distance < bestDistance) {
+					bestDistance = distance;
+					result[0] = x;
+					result[1] = y;
+				}
+			}
+		}
+
+		return bestDistance != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Copies the grid to an occupied[x][y] array.
+	 */
+	void copyTo(boolean[][] occupied) {
+		final long[] rows = mRows;
+		for (int x = 0; x < mCountX; x++) {
+			final long bit = 1L << x;
+			for (int y = 0; y < mCountY; y++) {
+				occupied[x][y] = (rows[y] & bit) != 0;
+			}
+		}
+	}
+
+	/**
+	 * Copies the grid to an occupied[y * countX + x] array.
+	 */
+	void copyTo(boolean[] occupied) {
+		final long[] rows = mRows;
+		final int countX = mCountX;
+		for (int y = 0; y < mCountY; y++) {
+			final long row = rows[y];
+			for (int x = 0; x < countX; x++) {
+				occupied[y * countX + x] = (row & (1L << x)) != 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns a mask with bit x set when an area of the specified span can
+	 * start at cell (x, y).
+	 */
+	private long findSpanStarts(int y, int spanX, int spanY) {
+		long used = 0;
+		for (int row = y; row < y + spanY; row++) {
+			used |= mRows[row];
+		}
+
+		// Cells past the last column count as occupied
+		long free = ~used & ((1L << mCountX) - 1);
+		// Keep bit x only if bits x..x+spanX-1 are all free
+		for (int i = 1; i < spanX && free != 0; i++) {
+			free &= free >>> 1;
+		}
+		return free;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search index over a list of titles supporting Hangul initial sound (chosung)
+ * queries, built once when the list is loaded.
+ *
+ * Every title is stored with its key, the title where each Hangul syllable is
+ * replaced by its initial sound. A query matches a title when it is a
+ * substring of it, each initial sound of the query matching any syllable
+ * starting with that sound, like {@link SoundSearcher#matchString}. Queries
+ * can mix initial sounds and full syllables. Letters are compared ignoring
+ * case.
+ *
+ * Candidates are taken from the posting list of the query's first key bigram,
+ * and when a query extends the previous one only the previous results are
+ * checked again, so typing stays cheap with thousands of titles.
+ *
+ * This class is not thread-safe.
+ */
+final class ChosungIndex {
+	private static final char HANGUL_BEGIN_UNICODE = '가';
+	private static final char HANGUL_LAST_UNICODE = '힣';
+	private static final char HANGUL_BASE_UNIT = 588;
+
+	private static final char[] INITIAL_SOUND = { 'ㄱ', 'ㄲ', 'ㄴ', 'ㄷ', 'ㄸ',
+			'ㄹ', 'ㅁ', 'ㅂ', 'ㅃ', 'ㅅ', 'ㅆ', 'ㅇ', 'ㅈ', 'ㅉ', 'ㅊ', 'ㅋ', 'ㅌ', 'ㅍ',
+			'ㅎ' };
+
+	// Compatibility jamo range holding every initial sound
+	private static final char JAMO_BEGIN = 'ㄱ';
+	private static final char JAMO_LAST = 'ㅎ';
+	private static final boolean[] IS_INITIAL_SOUND = new boolean[JAMO_LAST
+			- JAMO_BEGIN + 1];
+
+	static {
+		for (char c : INITIAL_SOUND) {
+			IS_INITIAL_SOUND[c - JAMO_BEGIN] = true;
+		}
+	}
+
+	private final String[] mTitles;
+	private final char[][] mKeys;
+
+	/**
+	 * Positions of the titles containing each key unigram and bigram.
+	 */
+	private final HashMap<Long, int[]> mPostings = new HashMap<Long, int[]>();
+
+	private String mLastQuery;
+	private int[] mLastResults;
+
+	private int[] mSectionPositions;
+	private String mSections;
+
+	/**
+	 * @param titles The titles to index, in list order. Null titles never
+	 *            match.
+	 */
+	ChosungIndex(List<String> titles) {
+		final int count = titles.size();
+		mTitles = new String[count];
+		mKeys = new char[count][];
+
+		final HashMap<Long, IntList> postings = new HashMap<Long, IntList>();
+		for (int i = 0; i < count; i++) {
+			final String title = titles.get(i);
+			mTitles[i] = title;
+			final char[] key = title != null ? toKey(title) : new char[0];
+			mKeys[i] = key;
+
+			for (int j = 0; j < key.length; j++) {
+				addPosting(postings, key[j], i);
+				if (j + 1 < key.length) {
+					addPosting(postings, bigram(key[j], key[j + 1]), i);
+				}
+			}
+		}
+
+		for (Map.Entry<Long, IntList> entry : postings.entrySet()) {
+			mPostings.put(entry.getKey(), entry.getValue().toArray());
+		}
+	}
+
+	int size() {
+		return mTitles.length;
+	}
+
+	/**
+	 * Returns the title at the specified position with its syllables
+	 * replaced by their initial sound.
+	 */
+	String getKey(int position) {
+		return new String(mKeys[position]);
+	}
+
+	/**
+	 * Returns the positions of the titles matching the specified query, in
+	 * list order. An empty query matches every title.
+	 */
+	int[] search(String query) {
+		final int count = mTitles.length;
+		if (query == null || query.length() == 0) {
+			final int[] all = new int[count];
+			for (int i = 0; i < count; i++) {
+				all[i] = i;
+			}
+			return remember(query, all);
+		}
+
+		final char[] queryChars = toQuery(query);
+
+		final int[] candidates;
+		if (mLastQuery != null && mLastQuery.length() > 0
+				&& query.startsWith(mLastQuery)) {
+			// The query grew, only the previous results can still match
+			candidates = mLastResults;
+		} else {
+			final char[] queryKey = toKey(query);
+			final long gram = queryKey.length > 1 ? bigram(queryKey[0],
+					queryKey[1]) : queryKey[0];
+			candidates = mPostings.get(gram);
+			if (candidates == null) {
+				return remember(query, new int[0]);
+			}
+		}
+
+		final int[] matches = new int[candidates.length];
+		int found = 0;
+		for (int candidate : candidates) {
+			if (matches(candidate, queryChars)) {
+				matches[found++] = candidate;
+			}
+		}
+
+		final int[] results = new int[found];
+		System.arraycopy(matches, 0, results, 0, found);
+		return remember(query, results);
+	}
+
+	/**
+	 * Returns true if the title at the specified position matches the query.
+	 */
+	boolean matches(int position, String query) {
+		return matches(position, toQuery(query));
+	}
+
+	/**
+	 * Returns the position of the first title of the specified section of
+	 * the given sections string, or of the closest previous section holding a
+	 * title. Section 0 holds the titles starting with a digit, the other
+	 * sections the titles whose first letter, ignoring case, or initial sound
+	 * is the section character. Positions are computed once per sections string.
+	 */
+	int getPositionForSection(String sections, int section) {
+		if (!sections.equals(mSections)) {
+			mSections = sections;
+			mSectionPositions = computeSectionPositions(sections);
+		}
+
+		for (int i = Math.min(section, mSectionPositions.length - 1); i >= 0; i--) {
+			if (mSectionPositions[i] >= 0) {
+				return mSectionPositions[i];
+			}
+		}
+		return 0;
+	}
+
+	private int[] computeSectionPositions(String sections) {
+		final int sectionCount = sections.length();
+		final int[] positions = new int[sectionCount];
+		Arrays.fill(positions, -1);
+
+		final HashMap<Character, Integer> sectionIndices = new HashMap<Character, Integer>();
+		for (int i = 1; i < sectionCount; i++) {
+			sectionIndices.put(sections.charAt(i), i);
+		}
+
+		final int count = mTitles.length;
+		for (int j = 0; j < count; j++) {
+			final String title = mTitles[j];
+			if (title == null || title.length() == 0) {
+				continue;
+			}
+
+			final char first = title.charAt(0);
+			final int section;
+			if (first >= '0' && first <= '9') {
+				section = 0;
+			} else {
+				final Integer index = sectionIndices.get(Character
+						.toUpperCase(getInitialSound(first)));
+				if (index == null) {
+					continue;
+				}
+				section = index;
+			}
+
+			if (positions[section] < 0) {
+				positions[section] = j;
+			}
+		}
+
+		return positions;
+	}
+
+	private int[] remember(String query, int[] results) {
+		mLastQuery = query;
+		mLastResults = results;
+		return results;
+	}
+
+	private boolean matches(int position, char[] query) {
+		if (mTitles[position] == null) {
+			return false;
+		}
+
+		final char[] key = mKeys[position];
+		final String title = mTitles[position];
+		final int length = query.length;
+		final int last = key.length - length;
+
+		for (int i = 0; i <= last; i++) {
+			int t = 0;
+			while (t < length) {
+				final char q = query[t];
+				if (isInitialSound(q)) {
+					// An initial sound matches any syllable starting with it
+					if (key[i + t] != q) {
+						break;
+					}
+				} else if (Character.toLowerCase(title.charAt(i + t)) != q) {
+					break;
+				}
+				t++;
+			}
+			if (t == length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the specified character is a Hangul initial sound.
+	 */
+	static boolean isInitialSound(char c) {
+		return c >= JAMO_BEGIN && c <= JAMO_LAST
+				&& IS_INITIAL_SOUND[c - JAMO_BEGIN];
+	}
+
+	static boolean isHangul(char c) {
+		return HANGUL_BEGIN_UNICODE <= c && c <= HANGUL_LAST_UNICODE;
+	}
+
+	/**
+	 * Returns the initial sound of a Hangul syllable, or the character itself
+	 * otherwise.
+	 */
+	static char getInitialSound(char c) {
+		if (isHangul(c)) {
+			return INITIAL_SOUND[(c - HANGUL_BEGIN_UNICODE) / HANGUL_BASE_UNIT];
+		}
+		return c;
+	}
+
+	private static char[] toKey(String value) {
+		final int length = value.length();
+		final char[] key = new char[length];
+		for (int i = 0; i < length; i++) {
+			key[i] = Character.toLowerCase(getInitialSound(value.charAt(i)));
+		}
+		return key;
+	}
+
+	private static char[] toQuery(String query) {
+		final int length = query.length();
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = Character.toLowerCase(query.charAt(i));
+		}
+		return chars;
+	}
+
+	private static long bigram(char first, char second) {
+		// Unigrams are plain chars, bigrams never fit in 16 bits
+		return ((long) first + 1) << 16 | second;
+	}
+
+	private static void addPosting(HashMap<Long, IntList> postings,
+			long gram, int position) {
+		IntList list = postings.get(gram);
+		if (list == null) {
+			list = new IntList();
+			postings.put(gram, list);
+		}
+		list.add(position);
+	}
+
+	/**
+	 * Growable list of distinct, increasing ints.
+	 */
+	private static final class IntList {
+		private int[] mValues = new int[4];
+		private int mSize;
+
+		void add(int value) {
+			// Titles repeating a gram are only listed once
+			if (mSize > 0 && mValues[mSize - 1] == value) {
+				return;
+			}
+			if (mSize == mValues.length) {
+				final int[] values = new int[mSize * 2];
+				System.arraycopy(mValues, 0, values, 0, mSize);
+				mValues = values;
+			}
+			mValues[mSize++] = value;
+		}
+
+		int[] toArray() {
+			final int[] values = new int[mSize];
+			System.arraycopy(mValues, 0, values, 0, mSize);
+			return values;
+		}
+	}
+}
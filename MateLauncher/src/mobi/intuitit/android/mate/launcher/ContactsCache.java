@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.util.Log;
+
+/**
+ * Sorted, searchable list of the contacts having a mobile number, used by the
+ * avatar contact picker.
+ *
+ * The list is read from a local table first so the picker can open right
+ * away, then refreshed from the contacts provider with a single query on the
+ * phone data rows. A {@link ContentObserver} refreshes it again whenever the
+ * contacts change; only the rows that differ are written back to the table.
+ *
+ * Every load publishes a new immutable {@link Snapshot}, all the work is done
+ * on a background thread.
+ */
+final class ContactsCache {
+	private static final String LOG_TAG = "ContactsCache";
+
+	private static final String DATABASE_NAME = "contacts.db";
+	private static final int DATABASE_VERSION = 1;
+
+	static final String TABLE_CONTACTS = "contacts";
+
+	static final String ID = "_id";
+	static final String NAME = "name";
+	static final String NUMBER = "number";
+
+	/**
+	 * Delay used to coalesce the bursts of notifications sent by the contacts
+	 * provider during a sync.
+	 */
+	private static final long REFRESH_DELAY = 2000;
+
+	private static final String[] PHONE_PROJECTION = new String[] {
+			Phone.CONTACT_ID, Phone.DISPLAY_NAME, Phone.NUMBER };
+
+	private static final String PHONE_SELECTION = Phone.TYPE + "="
+			+ Phone.TYPE_MOBILE;
+
+	/**
+	 * A contact and the mobile number it is matched with.
+	 */
+	static final class Contact {
+		final long id;
+		final String name;
+		final String phoneNumber;
+
+		Contact(long id, String name, String phoneNumber) {
+			this.id = id;
+			this.name = name;
+			this.phoneNumber = phoneNumber;
+		}
+
+		boolean sameAs(Contact other) {
+			return equals(name, other.name)
+					&& equals(phoneNumber, other.phoneNumber);
+		}
+
+		private static boolean equals(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * Contacts sorted by name and the index used to search them. The index is
+	 * not thread-safe, callers synchronize on it.
+	 */
+	static final class Snapshot {
+		final List<Contact> contacts;
+		final ChosungIndex index;
+
+		Snapshot(ArrayList<Contact> contacts) {
+			this.contacts = Collections.unmodifiableList(contacts);
+
+			final ArrayList<String> names = new ArrayList<String>(contacts
+					.size());
+			for (Contact contact : contacts) {
+				names.add(contact.name);
+			}
+			index = new ChosungIndex(names);
+		}
+	}
+
+	interface Callbacks {
+		void onContactsLoaded(Snapshot snapshot);
+	}
+
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final ArrayList<Callbacks> mPendingCallbacks = new ArrayList<Callbacks>();
+
+	private Context mContext;
+	private DatabaseHelper mOpenHelper;
+	private Handler mWorker;
+	private ContentObserver mObserver;
+
+	private volatile Snapshot mSnapshot;
+
+	/**
+	 * Contacts of the current snapshot by id, only used on the worker thread.
+	 */
+	private HashMap<Long, Contact> mContacts;
+
+	private final Runnable mRefresh = new Runnable() {
+		public void run() {
+			refresh();
+		}
+	};
+
+	/**
+	 * Starts loading the contacts and watching for changes. Subsequent calls
+	 * do nothing.
+	 */
+	synchronized void start(Context context) {
+		if (mWorker != null) {
+			return;
+		}
+
+		mContext = context.getApplicationContext();
+		mOpenHelper = new DatabaseHelper(mContext);
+
+		final HandlerThread thread = new HandlerThread(LOG_TAG,
+				Process.THREAD_PRIORITY_BACKGROUND);
+		thread.start();
+		mWorker = new Handler(thread.getLooper());
+
+		mWorker.post(new Runnable() {
+			public void run() {
+				loadStored();
+				refresh();
+			}
+		});
+
+		mObserver = new ContentObserver(mWorker) {
+			@Override
+			public void onChange(boolean selfChange) {
+				mWorker.removeCallbacks(mRefresh);
+				mWorker.postDelayed(mRefresh, REFRESH_DELAY);
+			}
+		};
+		mContext.getContentResolver().registerContentObserver(
+				ContactsContract.Contacts.CONTENT_URI, true, mObserver);
+	}
+
+	/**
+	 * Returns the latest snapshot, or null if the contacts were not loaded
+	 * yet.
+	 */
+	Snapshot getSnapshot() {
+		return mSnapshot;
+	}
+
+	/**
+	 * Hands the latest snapshot to the specified callbacks on the main thread,
+	 * as soon as the contacts are loaded.
+	 */
+	void getSnapshot(final Callbacks callbacks) {
+		final Snapshot snapshot = mSnapshot;
+		if (snapshot != null) {
+			callbacks.onContactsLoaded(snapshot);
+			return;
+		}
+
+		synchronized (mPendingCallbacks) {
+			if (mSnapshot == null) {
+				mPendingCallbacks.add(callbacks);
+				return;
+			}
+		}
+		callbacks.onContactsLoaded(mSnapshot);
+	}
+
+	/**
+	 * Forgets the specified callbacks if they are still waiting for the
+	 * contacts.
+	 */
+	void cancel(Callbacks callbacks) {
+		synchronized (mPendingCallbacks) {
+			mPendingCallbacks.remove(callbacks);
+		}
+	}
+
+	private void loadStored() {
+		final ArrayList<Contact> contacts = new ArrayList<Contact>();
+
+		Cursor c = null;
+		try {
+			final SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+			c = db.query(TABLE_CONTACTS, new String[] { ID, NAME, NUMBER },
+					null, null, null, null, null);
+			while (c.moveToNext()) {
+				contacts.add(new Contact(c.getLong(0), c.getString(1), c
+						.getString(2)));
+			}
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not read stored contacts", e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+
+		// An empty table is either a first run or no contacts at all, wait
+		// for the provider to tell
+		if (!contacts.isEmpty()) {
+			publish(contacts);
+		}
+	}
+
+	private void refresh() {
+		final LinkedHashMap<Long, Contact> contacts = queryContacts(mContext
+				.getContentResolver());
+		if (contacts == null) {
+			return;
+		}
+
+		final HashMap<Long, Contact> previous = mContacts;
+		final ArrayList<Contact> changed = new ArrayList<Contact>();
+		final ArrayList<Long> removed = new ArrayList<Long>();
+
+		for (Contact contact : contacts.values()) {
+			final Contact old = previous != null ? previous.get(contact.id)
+					: null;
+			if (old == null || !old.sameAs(contact)) {
+				changed.add(contact);
+			}
+		}
+		if (previous != null) {
+			for (Long id : previous.keySet()) {
+				if (!contacts.containsKey(id)) {
+					removed.add(id);
+				}
+			}
+		}
+
+		if (mSnapshot != null && changed.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+
+		publish(new ArrayList<Contact>(contacts.values()));
+		store(changed, removed);
+	}
+
+	/**
+	 * Reads every contact having a mobile number. When a contact has several
+	 * mobile numbers the last one is kept.
+	 *
+	 * @return The contacts by id, or null if the provider could not be queried
+	 */
+	private static LinkedHashMap<Long, Contact> queryContacts(
+			ContentResolver resolver) {
+		final Cursor c = resolver.query(Phone.CONTENT_URI, PHONE_PROJECTION,
+				PHONE_SELECTION, null, Phone._ID);
+		if (c == null) {
+			return null;
+		}
+
+		final LinkedHashMap<Long, Contact> contacts = new LinkedHashMap<Long, Contact>();
+		try {
+			while (c.moveToNext()) {
+				final String number = c.getString(2);
+				if (number == null) {
+					continue;
+				}
+				final long id = c.getLong(0);
+				contacts.put(id, new Contact(id, c.getString(1), number));
+			}
+		} finally {
+			c.close();
+		}
+		return contacts;
+	}
+
+	private void publish(ArrayList<Contact> contacts) {
+		final Collator collator = Collator.getInstance();
+		Collections.sort(contacts, new Comparator<Contact>() {
+			public int compare(Contact a, Contact b) {
+				return collator.compare(a.name != null ? a.name : "",
+						b.name != null ? b.name : "");
+			}
+		});
+
+		final HashMap<Long, Contact> byId = new HashMap<Long, Contact>(
+				contacts.size());
+		for (Contact contact : contacts) {
+			byId.put(contact.id, contact);
+		}
+		mContacts = byId;
+
+		final Snapshot snapshot = new Snapshot(contacts);
+		final ArrayList<Callbacks> callbacks;
+		synchronized (mPendingCallbacks) {
+			mSnapshot = snapshot;
+			callbacks = new ArrayList<Callbacks>(mPendingCallbacks);
+			mPendingCallbacks.clear();
+		}
+
+		if (!callbacks.isEmpty()) {
+			mMainHandler.post(new Runnable() {
+				public void run() {
+					for (Callbacks c : callbacks) {
+						c.onContactsLoaded(snapshot);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes the changed contacts to the table and drops the removed ones, in
+	 * a single transaction.
+	 */
+	private void store(List<Contact> changed, List<Long> removed) {
+		final ContentValues values = new ContentValues();
+
+		try {
+			final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+			db.beginTransaction();
+			try {
+				for (Contact contact : changed) {
+					values.clear();
+					values.put(ID, contact.id);
+					values.put(NAME, contact.name);
+					values.put(NUMBER, contact.phoneNumber);
+					db.replace(TABLE_CONTACTS, null, values);
+				}
+				final String[] args = new String[1];
+				for (Long id : removed) {
+					args[0] = String.valueOf(id);
+					db.delete(TABLE_CONTACTS, ID + "=?", args);
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not store contacts", e);
+		}
+	}
+
+	private static class DatabaseHelper extends SQLiteOpenHelper {
+		DatabaseHelper(Context context) {
+			super(context, DATABASE_NAME, null, DATABASE_VERSION);
+		}
+
+		@Override
+		public void onCreate(SQLiteDatabase db) {
+			db.execSQL("CREATE TABLE " + TABLE_CONTACTS + " (" + ID
+					+ " INTEGER PRIMARY KEY," + NAME + " TEXT," + NUMBER
+					+ " TEXT" + ");");
+		}
+
+		@Override
+		public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+			// The table can always be rebuilt from the contacts provider
+			db.execSQL("DROP TABLE IF EXISTS " + TABLE_CONTACTS);
+			onCreate(db);
+		}
+	}
+}
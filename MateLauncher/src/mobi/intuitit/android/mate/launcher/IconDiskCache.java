@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.HashMap;
+import java.util.List;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+/**
+ * Persistent cache of the pre-scaled labels and icons of the applications
+ * shown in the drawer. Entries are keyed by component name and are only valid
+ * for the package lastUpdateTime and locale they were created with.
+ *
+ * The cache is used to warm {@link LauncherModel}'s in-memory application
+ * cache before the PackageManager is queried, so a cold start does not have to
+ * load and rescale every icon.
+ */
+final class IconDiskCache {
+	private static final String LOG_TAG = "IconDiskCache";
+
+	private static final String DATABASE_NAME = "app_icons.db";
+	private static final int DATABASE_VERSION = 1;
+
+	static final String TABLE_ICONS = "icons";
+
+	static final String COMPONENT = "component";
+	static final String PACKAGE = "package";
+	static final String LAST_UPDATE_TIME = "lastUpdateTime";
+	static final String LOCALE = "locale";
+	static final String TITLE = "title";
+	static final String ICON = LauncherSettings.BaseLauncherColumns.ICON;
+
+	private final DatabaseHelper mOpenHelper;
+
+	/**
+	 * lastUpdateTime of every entry handed out by {@link #warm}, used to
+	 * revalidate them once the drawer is populated.
+	 */
+	private final HashMap<ComponentName, Long> mWarmStamps = new HashMap<ComponentName, Long>();
+
+	IconDiskCache(Context context) {
+		mOpenHelper = new DatabaseHelper(context.getApplicationContext());
+	}
+
+	/**
+	 * Fills the specified cache with every entry stored for the given locale.
+	 * Entries already present in the cache are left untouched.
+	 *
+	 * @return The number of entries added to the cache.
+	 */
+	synchronized int warm(HashMap<ComponentName, ItemInfo> appInfoCache,
+			String locale) {
+		mWarmStamps.clear();
+
+		Cursor c = null;
+		int count = 0;
+		try {
+			final SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+			c = db.query(TABLE_ICONS, new String[] { COMPONENT,
+					LAST_UPDATE_TIME, TITLE, ICON }, LOCALE + "=?",
+					new String[] { locale }, null, null, null);
+
+			while (c.moveToNext()) {
+				final ComponentName componentName = ComponentName
+						.unflattenFromString(c.getString(0));
+				if (componentName == null
+						|| appInfoCache.containsKey(componentName)) {
+					continue;
+				}
+
+				final byte[] data = c.getBlob(3);
+				if (data == null) {
+					continue;
+				}
+				final Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0,
+						data.length);
+				if (bitmap == null) {
+					continue;
+				}
+
+				final ItemInfo application = new ItemInfo();
+				application.container = ItemInfo.NO_ID;
+				application.title = c.getString(2);
+				application.icon = new FastBitmapDrawable(bitmap);
+				application.filtered = true;
+				application.setActivity(componentName,
+						Intent.FLAG_ACTIVITY_NEW_TASK
+								| Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
+
+				appInfoCache.put(componentName, application);
+				mWarmStamps.put(componentName, c.getLong(1));
+				count++;
+			}
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not read icon cache", e);
+		} finally {
+			if (c != null) {
+				c.close();
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the components handed out by the last {@link #warm} whose
+	 * package has been updated since they were stored. The returned components
+	 * are forgotten, so they are only reported once.
+	 */
+	synchronized List<ComponentName> collectStale(PackageManager manager,
+			List<ComponentName> stale) {
+		final HashMap<String, Long> updateTimes = new HashMap<String, Long>();
+
+		for (ComponentName componentName : mWarmStamps.keySet()) {
+			final String packageName = componentName.getPackageName();
+			Long updateTime = updateTimes.get(packageName);
+			if (updateTime == null) {
+				updateTime = getLastUpdateTime(manager, packageName);
+				updateTimes.put(packageName, updateTime);
+			}
+
+			if (updateTime != mWarmStamps.get(componentName).longValue()) {
+				stale.add(componentName);
+			}
+		}
+
+		mWarmStamps.clear();
+		return stale;
+	}
+
+	/**
+	 * Stores the label and icon of the specified applications in a single
+	 * transaction.
+	 */
+	synchronized void putAll(PackageManager manager, List<ItemInfo> applications,
+			String locale) {
+		if (applications.isEmpty()) {
+			return;
+		}
+
+		final HashMap<String, Long> updateTimes = new HashMap<String, Long>();
+		final ContentValues values = new ContentValues();
+
+		try {
+			final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+			db.beginTransaction();
+			try {
+				for (ItemInfo application : applications) {
+					final ComponentName componentName = application.intent
+							.getComponent();
+					final String packageName = componentName.getPackageName();
+					Long updateTime = updateTimes.get(packageName);
+					if (updateTime == null) {
+						updateTime = getLastUpdateTime(manager, packageName);
+						updateTimes.put(packageName, updateTime);
+					}
+
+					values.clear();
+					values.put(COMPONENT, componentName.flattenToString());
+					values.put(PACKAGE, packageName);
+					values.put(LAST_UPDATE_TIME, updateTime);
+					values.put(LOCALE, locale);
+					values.put(TITLE, application.title != null ? application.title
+							.toString() : null);
+					ItemInfo.writeBitmap(values, getIconBitmap(application.icon));
+
+					db.replace(TABLE_ICONS, null, values);
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not write icon cache", e);
+		}
+	}
+
+	/**
+	 * Drops every entry of the specified package.
+	 */
+	synchronized void removePackage(String packageName) {
+		try {
+			final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+			db.delete(TABLE_ICONS, PACKAGE + "=?", new String[] { packageName });
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not remove " + packageName
+					+ " from icon cache", e);
+		}
+	}
+
+	/**
+	 * Drops the entries of the specified components.
+	 */
+	synchronized void removeComponents(List<ComponentName> components) {
+		if (components.isEmpty()) {
+			return;
+		}
+
+		try {
+			final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+			db.beginTransaction();
+			try {
+				for (ComponentName componentName : components) {
+					db.delete(TABLE_ICONS, COMPONENT + "=?",
+							new String[] { componentName.flattenToString() });
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} catch (SQLException e) {
+			Log.w(LOG_TAG, "Could not remove " + components.size()
+					+ " components from icon cache", e);
+		}
+	}
+
+	private static long getLastUpdateTime(PackageManager manager,
+			String packageName) {
+		try {
+			return manager.getPackageInfo(packageName, 0).lastUpdateTime;
+		} catch (PackageManager.NameNotFoundException e) {
+			return 0;
+		}
+	}
+
+	private static Bitmap getIconBitmap(Drawable icon) {
+		if (icon instanceof FastBitmapDrawable) {
+			return ((FastBitmapDrawable) icon).getBitmap();
+		} else if (icon instanceof BitmapDrawable) {
+			return ((BitmapDrawable) icon).getBitmap();
+		}
+
+		final int width = icon.getIntrinsicWidth();
+		final int height = icon.getIntrinsicHeight();
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+
+		final Bitmap bitmap = Bitmap.createBitmap(width, height,
+				Bitmap.Config.ARGB_8888);
+		final Canvas canvas = new Canvas(bitmap);
+		final Rect oldBounds = new Rect(icon.getBounds());
+		icon.setBounds(0, 0, width, height);
+		icon.draw(canvas);
+		icon.setBounds(oldBounds);
+		return bitmap;
+	}
+
+	private static class DatabaseHelper extends SQLiteOpenHelper {
+		DatabaseHelper(Context context) {
+			super(context, DATABASE_NAME, null, DATABASE_VERSION);
+		}
+
+		@Override
+		public void onCreate(SQLiteDatabase db) {
+			db.execSQL("CREATE TABLE " + TABLE_ICONS + " (" + COMPONENT
+					+ " TEXT PRIMARY KEY," + PACKAGE + " TEXT,"
+					+ LAST_UPDATE_TIME + " INTEGER," + LOCALE + " TEXT,"
+					+ TITLE + " TEXT," + ICON + " BLOB" + ");");
+			db.execSQL("CREATE INDEX icons_package ON " + TABLE_ICONS + " ("
+					+ PACKAGE + ");");
+		}
+
+		@Override
+		public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+			// The cache can always be rebuilt from the PackageManager
+			db.execSQL("DROP TABLE IF EXISTS " + TABLE_ICONS);
+			onCreate(db);
+		}
+	}
+}
@@ -32,6 +32,7 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
@@ -81,7 +82,6 @@ import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
@@ -116,6 +116,8 @@ import android.widget.ArrayAdapter;
 import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Filter;
+import android.widget.Filterable;
 import android.widget.GridView;
 import android.widget.ImageView;
 import android.widget.LinearLayout.LayoutParams;
@@ -200,6 +202,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 	private static final String RUNTIME_STATE_PENDING_FOLDER_RENAME_ID = "launcher.rename_folder_id";
 
 	public static final LauncherModel sModel = new LauncherModel();
+	static final ContactsCache sContactsCache = new ContactsCache();
 
 	private static final Object sLock = new Object();
 	private static int sScreen = DEFAULT_SCREN;
@@ -301,6 +304,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 		registerIntentReceivers();
 		registerContentObservers();
+		sContactsCache.start(this);
 
 		mSavedState = savedInstanceState;
 		restoreState(mSavedState);
@@ -544,6 +548,9 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		super.onPause();
 		// closeDrawer(false);
 		closeGridView(false);
+
+		// Write the pending favorites updates before the process may be killed
+		LauncherModel.flushPendingUpdates(this);
 	}
 
 	@Override
@@ -606,7 +613,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 			if (mScreenLayout.isShown())
 				mScreenLayout.fadeOut();
 			else if (!DeleteZone.sDragging)
-				new SwitcherTask().execute();
+				showScreenSwitcher();
 
 			return true;
 		}
@@ -1273,6 +1280,9 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		sModel.unbind();
 		sModel.abortLoaders();
 		mWorkspace.unbindWidgetScrollableViews();
+		if (mContactsCallbacks != null) {
+			sContactsCache.cancel(mContactsCallbacks);
+		}
 
 		getContentResolver().unregisterContentObserver(mObserver);
 		getContentResolver().unregisterContentObserver(mWidgetObserver);
@@ -1889,7 +1899,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 	private void onFavoritesChanged() {
 		mDesktopLocked = true;
 		// mDrawer.lock();
-		sModel.loadUserItems(false, this, false, false);
+		sModel.loadChangedItems(this);
 	}
 
 	/**
@@ -1911,6 +1921,66 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		bindDesktopItems(shortcuts, appWidgets);
 	}
 
+	/**
+	 * Binds desktop items loaded after the ones handed to
+	 * {@link #onDesktopItemsLoaded}, the loader streams the screens other than
+	 * the current one as their icons become available.
+	 */
+	void onMoreDesktopItemsLoaded(ArrayList<ItemInfo> shortcuts) {
+		if (mDestroyed || mBinder == null || mBinder.mTerminate) {
+			return;
+		}
+		mBinder.addItems(shortcuts);
+	}
+
+	/**
+	 * Replaces the views of the specified favorites with the given items,
+	 * leaving the rest of the workspace untouched.
+	 */
+	void onDesktopItemsChanged(long[] changedIds, ArrayList<ItemInfo> shortcuts,
+			ArrayList<LauncherAppWidgetInfo> appWidgets) {
+		if (mDestroyed) {
+			return;
+		}
+
+		final Workspace workspace = mWorkspace;
+		final int screenCount = workspace.getChildCount();
+		for (int screen = 0; screen < screenCount; screen++) {
+			final ViewGroup layout = (ViewGroup) workspace.getChildAt(screen);
+			boolean removed = false;
+			for (int i = layout.getChildCount() - 1; i >= 0; i--) {
+				final Object tag = layout.getChildAt(i).getTag();
+				if (tag instanceof ItemInfo) {
+					final long id = ((ItemInfo) tag).id;
+					for (long changedId : changedIds) {
+						if (id == changedId) {
+							layout.removeViewAt(i);
+							removed = true;
+							break;
+						}
+					}
+				}
+			}
+			if (removed) {
+				layout.invalidate();
+			}
+		}
+
+		final int count = shortcuts.size();
+		for (int i = 0; i < count; i++) {
+			final ItemInfo item = shortcuts.get(i);
+			if (item.screen < screenCount)
+				bindItem(item, false);
+		}
+		for (LauncherAppWidgetInfo item : appWidgets) {
+			if (item.screen < screenCount)
+				bindAppWidget(item, false);
+		}
+
+		workspace.requestLayout();
+		mDesktopLocked = false;
+	}
+
 	/**
 	 * Refreshes the shortcuts shown on the workspace.
 	 */
@@ -1969,63 +2039,75 @@ public final class Launcher extends Activity implements View.OnClickListener,
 			final ItemInfo item = shortcuts.get(i);
 			if (item.screen >= screenNumber)
 				continue;
-			switch (item.itemType) {
-			case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
-			case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
-				final View shortcut;
-
-				if (item instanceof ApplicationInfo) {
-					shortcut = createShortcut((ApplicationInfo) item);
-				} else {
-					shortcut = createShortcut((Mobject) item);
-				}
-
-				workspace.addInScreen(shortcut, item.screen, item.cellX,
-						item.cellY, 1, 1, !desktopLocked);
-				break;
-			case LauncherSettings.Favorites.ITEM_TYPE_USER_FOLDER:
-				// final FolderIcon newFolder = FolderIcon.fromXml(
-				// R.layout.folder_icon, this, (ViewGroup) workspace
-				// .getChildAt(workspace.getCurrentScreen()),
-				// (UserFolderInfo) item);
-				// workspace.addInScreen(newFolder, item.screen, item.cellX,
-				// item.cellY, 1, 1, !desktopLocked);
-				break;
-			case LauncherSettings.Favorites.ITEM_TYPE_LIVE_FOLDER:
-				final FolderIcon newLiveFolder = LiveFolderIcon.fromXml(
-						R.layout.live_folder_icon, this, (ViewGroup) workspace
-								.getChildAt(workspace.getCurrentScreen()),
-						(LiveFolderInfo) item);
-				workspace.addInScreen(newLiveFolder, item.screen, item.cellX,
-						item.cellY, 1, 1, !desktopLocked);
-				break;
-			case LauncherSettings.Favorites.ITEM_TYPE_WIDGET_SEARCH:
-				final int screen = workspace.getCurrentScreen();
-				final View view = mInflater.inflate(R.layout.widget_search,
-						(ViewGroup) workspace.getChildAt(screen), false);
-
-				Search search = (Search) view.findViewById(R.id.widget_search);
-				search.setLauncher(this);
-
-				final Widget widget = (Widget) item;
-				view.setTag(widget);
-
-				workspace.addWidget(view, widget, !desktopLocked);
-				break;
-			}
+			bindItem(item, desktopLocked);
 		}
 
 		workspace.requestLayout();
 
 		if (end >= count) {
-			finishBindDesktopItems();
-			binder.startBindingDrawer();
+			if (binder.finishBindingItems()) {
+				finishBindDesktopItems();
+				binder.startBindingDrawer();
+			}
 		} else {
 			binder.obtainMessage(DesktopBinder.MESSAGE_BIND_ITEMS, i, count)
 					.sendToTarget();
 		}
 	}
 
+	/**
+	 * Adds the view of a single shortcut, folder or search widget to the
+	 * workspace.
+	 */
+	private void bindItem(ItemInfo item, boolean desktopLocked) {
+		final Workspace workspace = mWorkspace;
+
+		switch (item.itemType) {
+		case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
+		case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
+			final View shortcut;
+
+			if (item instanceof ApplicationInfo) {
+				shortcut = createShortcut((ApplicationInfo) item);
+			} else {
+				shortcut = createShortcut((Mobject) item);
+			}
+
+			workspace.addInScreen(shortcut, item.screen, item.cellX,
+					item.cellY, 1, 1, !desktopLocked);
+			break;
+		case LauncherSettings.Favorites.ITEM_TYPE_USER_FOLDER:
+			// final FolderIcon newFolder = FolderIcon.fromXml(
+			// R.layout.folder_icon, this, (ViewGroup) workspace
+			// .getChildAt(workspace.getCurrentScreen()),
+			// (UserFolderInfo) item);
+			// workspace.addInScreen(newFolder, item.screen, item.cellX,
+			// item.cellY, 1, 1, !desktopLocked);
+			break;
+		case LauncherSettings.Favorites.ITEM_TYPE_LIVE_FOLDER:
+			final FolderIcon newLiveFolder = LiveFolderIcon.fromXml(
+					R.layout.live_folder_icon, this, (ViewGroup) workspace
+							.getChildAt(workspace.getCurrentScreen()),
+					(LiveFolderInfo) item);
+			workspace.addInScreen(newLiveFolder, item.screen, item.cellX,
+					item.cellY, 1, 1, !desktopLocked);
+			break;
+		case LauncherSettings.Favorites.ITEM_TYPE_WIDGET_SEARCH:
+			final int screen = workspace.getCurrentScreen();
+			final View view = mInflater.inflate(R.layout.widget_search,
+					(ViewGroup) workspace.getChildAt(screen), false);
+
+			Search search = (Search) view.findViewById(R.id.widget_search);
+			search.setLauncher(this);
+
+			final Widget widget = (Widget) item;
+			view.setTag(widget);
+
+			workspace.addWidget(view, widget, !desktopLocked);
+			break;
+		}
+	}
+
 	private void finishBindDesktopItems() {
 		if (mSavedState != null) {
 			if (!mWorkspace.hasFocus()) {
@@ -2080,35 +2162,11 @@ public final class Launcher extends Activity implements View.OnClickListener,
 	private void bindAppWidgets(Launcher.DesktopBinder binder,
 			LinkedList<LauncherAppWidgetInfo> appWidgets) {
 
-		final Workspace workspace = mWorkspace;
 		final boolean desktopLocked = mDesktopLocked;
 
 		if (!appWidgets.isEmpty()) {
-			final LauncherAppWidgetInfo item = appWidgets.removeFirst();
-
-			final int appWidgetId = item.appWidgetId;
-			final AppWidgetProviderInfo appWidgetInfo = mAppWidgetManager
-					.getAppWidgetInfo(appWidgetId);
-			item.hostView = mAppWidgetHost.createView(this, appWidgetId,
-					appWidgetInfo);
-
-			if (LOGD) {
-				d(LOG_TAG, String.format(
-						"about to setAppWidget for id=%d, info=%s",
-						appWidgetId, appWidgetInfo));
-			}
-
-			item.hostView.setAppWidget(appWidgetId, appWidgetInfo);
-			item.hostView.setTag(item);
-
-			workspace.addInScreen(item.hostView, item.screen, item.cellX,
-					item.cellY, item.spanX, item.spanY, !desktopLocked);
-
-			workspace.requestLayout();
-
-			// finish load a widget, send it an intent
-			if (appWidgetInfo != null)
-				appwidgetReadyBroadcast(appWidgetId, appWidgetInfo.provider);
+			bindAppWidget(appWidgets.removeFirst(), desktopLocked);
+			mWorkspace.requestLayout();
 		}
 
 		if (appWidgets.isEmpty()) {
@@ -2121,6 +2179,33 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		}
 	}
 
+	/**
+	 * Creates the host view of a single widget and adds it to the workspace.
+	 */
+	private void bindAppWidget(LauncherAppWidgetInfo item, boolean desktopLocked) {
+		final int appWidgetId = item.appWidgetId;
+		final AppWidgetProviderInfo appWidgetInfo = mAppWidgetManager
+				.getAppWidgetInfo(appWidgetId);
+		item.hostView = mAppWidgetHost.createView(this, appWidgetId,
+				appWidgetInfo);
+
+		if (LOGD) {
+			d(LOG_TAG, String.format(
+					"about to setAppWidget for id=%d, info=%s", appWidgetId,
+					appWidgetInfo));
+		}
+
+		item.hostView.setAppWidget(appWidgetId, appWidgetInfo);
+		item.hostView.setTag(item);
+
+		mWorkspace.addInScreen(item.hostView, item.screen, item.cellX,
+				item.cellY, item.spanX, item.spanY, !desktopLocked);
+
+		// finish load a widget, send it an intent
+		if (appWidgetInfo != null)
+			appwidgetReadyBroadcast(appWidgetId, appWidgetInfo.provider);
+	}
+
 	private void appwidgetReadyBroadcast(int appWidgetId, ComponentName cname) {
 		Intent ready = new Intent(LauncherIntent.Action.ACTION_READY)
 				.putExtra(LauncherIntent.Extra.EXTRA_APPWIDGET_ID, appWidgetId)
@@ -2130,35 +2215,14 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		sendBroadcast(ready);
 	}
 
-	class SwitcherTask extends AsyncTask<Integer, Integer, Integer> {
-
-		final int count = mWorkspace.getChildCount();
-
-		@Override
-		protected Integer doInBackground(Integer... params) {
-			LayoutType screenView;
-			// Create screen array
-			if (sScreens == null || sScreens.length != count)
-				sScreens = new Bitmap[count];
-
-			for (int i = 0; i < count; i++) {
-				// Prepare cache
-				screenView = (LayoutType) mWorkspace.getChildAt(i);
-				screenView.saveThumb();
-				sScreens[i] = screenView.getThumb();
-			}
-			return null;
-		}
-
-		protected void onPreExecute() {
-			Toast.makeText(Launcher.this, R.string.starting_screen_switcher,
-					Toast.LENGTH_SHORT).show();
-		}
-
-		protected void onPostExecute(Integer result) {
-			mScreenLayout.show(Launcher.this, sScreens);
-		}
-
+	/**
+	 * Shows the screen switcher with the thumbnails kept by the workspace, only
+	 * the screens changed since they were last drawn are drawn again.
+	 */
+	private void showScreenSwitcher() {
+		sScreens = mWorkspace.getScreenThumbnails().getThumbnails(
+				mWorkspace.getCurrentScreen());
+		mScreenLayout.show(Launcher.this, sScreens);
 	}
 
 	static Bitmap[] sScreens;
@@ -2320,36 +2384,40 @@ public final class Launcher extends Activity implements View.OnClickListener,
 	}
 
 	Object clickedInfo;
-	private Handler handler = new Handler() {
-		public void handleMessage(Message msg) {
-			loagindDialog.dismiss(); // ���̾�α� ����
-
-			ContactList_dialog dialog = new ContactList_dialog(mLauncher,
-					clickedInfo);
-			dialog.setCancelable(true);
-			android.view.WindowManager.LayoutParams params = dialog.getWindow()
-					.getAttributes();
-			params.width = LayoutParams.FILL_PARENT;
-			params.height = LayoutParams.FILL_PARENT;
-			dialog.getWindow().setAttributes(params);
-			dialog.show();
-		}
-	};
 
 	private ProgressDialog loagindDialog; // Loading Dialog
+	private ContactsCache.Callbacks mContactsCallbacks;
 
 	void createThreadAndDialog() {
-		/* ProgressDialog */
+		final ContactsCache.Snapshot snapshot = sContactsCache.getSnapshot();
+		if (snapshot != null) {
+			showContactListDialog(snapshot);
+			return;
+		}
+
+		// First run, wait for the contacts provider
 		loagindDialog = ProgressDialog.show(this, null, "연락처를 불러오는 중입니다.",
 				true, false);
-
-		Thread thread = new Thread(new Runnable() {
-			public void run() {
-				readContacts();
-				handler.sendEmptyMessage(0);
+		mContactsCallbacks = new ContactsCache.Callbacks() {
+			public void onContactsLoaded(ContactsCache.Snapshot snapshot) {
+				mContactsCallbacks = null;
+				loagindDialog.dismiss();
+				showContactListDialog(snapshot);
 			}
-		});
-		thread.start();
+		};
+		sContactsCache.getSnapshot(mContactsCallbacks);
+	}
+
+	private void showContactListDialog(ContactsCache.Snapshot snapshot) {
+		ContactList_dialog dialog = new ContactList_dialog(mLauncher,
+				clickedInfo, snapshot);
+		dialog.setCancelable(true);
+		android.view.WindowManager.LayoutParams params = dialog.getWindow()
+				.getAttributes();
+		params.width = LayoutParams.FILL_PARENT;
+		params.height = LayoutParams.FILL_PARENT;
+		dialog.getWindow().setAttributes(params);
+		dialog.show();
 	}
 
 	void startActivitySafely(Intent intent) {
@@ -2942,12 +3010,15 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 		public boolean mTerminate = false;
 
+		private boolean mBindingItems;
+		private boolean mItemsBound;
+
 		DesktopBinder(Launcher launcher, ArrayList<ItemInfo> shortcuts,
 				ArrayList<LauncherAppWidgetInfo> appWidgets,
 				ApplicationsAdapter drawerAdapter) {
 
 			mLauncher = new WeakReference<Launcher>(launcher);
-			mShortcuts = shortcuts;
+			mShortcuts = new ArrayList<ItemInfo>(shortcuts);
 			mDrawerAdapter = drawerAdapter;
 
 			// Sort widgets so active workspace is bound first
@@ -2978,10 +3049,40 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		public void startBindingItems() {
 			if (LauncherModel.DEBUG_LOADERS)
 				d(Launcher.LOG_TAG, "------> start binding items");
+			mBindingItems = true;
 			obtainMessage(MESSAGE_BIND_ITEMS, 0, mShortcuts.size())
 					.sendToTarget();
 		}
 
+		/**
+		 * Queues more items, binding resumes right away if it was done.
+		 */
+		public void addItems(ArrayList<ItemInfo> shortcuts) {
+			final int start = mShortcuts.size();
+			mShortcuts.addAll(shortcuts);
+			if (LauncherModel.DEBUG_LOADERS)
+				d(Launcher.LOG_TAG, "------> binding " + shortcuts.size()
+						+ " more items");
+			if (!mBindingItems) {
+				mBindingItems = true;
+				obtainMessage(MESSAGE_BIND_ITEMS, start, mShortcuts.size())
+						.sendToTarget();
+			}
+		}
+
+		/**
+		 * Called once every queued item is bound. Returns true the first
+		 * time, when the rest of the desktop should be bound.
+		 */
+		public boolean finishBindingItems() {
+			mBindingItems = false;
+			if (mItemsBound) {
+				return false;
+			}
+			mItemsBound = true;
+			return true;
+		}
+
 		public void startBindingDrawer() {
 			obtainMessage(MESSAGE_BIND_DRAWER).sendToTarget();
 		}
@@ -3011,7 +3112,9 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 			switch (msg.what) {
 			case MESSAGE_BIND_ITEMS: {
-				launcher.bindItems(this, mShortcuts, msg.arg1, msg.arg2);
+				// Items may have been queued since the message was sent
+				launcher.bindItems(this, mShortcuts, msg.arg1,
+						mShortcuts.size());
 				break;
 			}
 			case MESSAGE_BIND_DRAWER: {
@@ -3179,82 +3282,54 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		return mWorkspace.getChildCount();
 	}
 
-	ArrayList<Contacts> contactInfoArry;
-
-	public class Contacts {
-		public String Name;
-		public String PhoneNum;
-	}
-
-	// ����ó �о����
-	public void readContacts() {
-		contactInfoArry = new ArrayList<Contacts>();
-
-		Comparator<Contacts> myComparator = new Comparator<Contacts>() {
-			Collator app_Collator = Collator.getInstance();
-
-			@Override
-			public int compare(Contacts a, Contacts b) {
-				return app_Collator.compare(a.Name, b.Name);
-			}
-		};
+	/**
+	 * Filters a list through a {@link ChosungIndex}, handing the positions of
+	 * the matching items to {@link #onFiltered}, or null when the filter is
+	 * cleared.
+	 */
+	private static abstract class ChosungFilter extends Filter {
+		private final ChosungIndex mIndex;
 
-		ContentResolver cr = mLauncher.getContentResolver();
-		Cursor cur = cr.query(ContactsContract.Contacts.CONTENT_URI, null,
-				null, null, null);
-
-		if (cur.getCount() > 0) {
-			while (cur.moveToNext()) {
-				Contacts contact = new Contacts();
-				String id = cur.getString(cur
-						.getColumnIndex(ContactsContract.Contacts._ID));
-				String name = cur
-						.getString(cur
-								.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME));
-				if (Integer
-						.parseInt(cur.getString(cur
-								.getColumnIndex(ContactsContract.Contacts.HAS_PHONE_NUMBER))) > 0) {
-					contact.Name = name;
-					// sb.append(name);
-					// get the phone number
-					Cursor pCur = cr.query(
-							ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-							null,
-							ContactsContract.CommonDataKinds.Phone.CONTACT_ID
-									+ " = ?", new String[] { id }, null);
-					int typeIndex = pCur
-							.getColumnIndex(ContactsContract.CommonDataKinds.Phone.TYPE);
-					int numIndex = pCur
-							.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER);
-					while (pCur.moveToNext()) {
-						String num = pCur.getString(numIndex);
-						switch (pCur.getInt(typeIndex)) {
-						case ContactsContract.CommonDataKinds.Phone.TYPE_MOBILE:
-							contact.PhoneNum = num;
-							// sb.append(", Mobile:" + num);
-							break;
-						// case
-						// ContactsContract.CommonDataKinds.Phone.TYPE_HOME:
-						// sb.append(", Home:" + num);
-						// break;
-						// case
-						// ContactsContract.CommonDataKinds.Phone.TYPE_WORK:
-						// sb.append(", Work:" + num);
-						// break;
-						}
-					}
-					pCur.close();
-				}
+		ChosungFilter(ChosungIndex index) {
+			mIndex = index;
+		}
 
-				if (contact.PhoneNum != null) {
-					contactInfoArry.add(contact);
+		@Override
+		protected FilterResults performFiltering(CharSequence constraint) {
+			final FilterResults results = new FilterResults();
+			if (constraint != null && constraint.length() > 0) {
+				final int[] positions;
+				synchronized (mIndex) {
+					positions = mIndex.search(constraint.toString());
 				}
+				results.values = positions;
+				results.count = positions.length;
 			}
+			return results;
+		}
 
+		@Override
+		protected void publishResults(CharSequence constraint,
+				FilterResults results) {
+			onFiltered((int[]) results.values);
 		}
 
-		cur.close();
-		Collections.sort(contactInfoArry, myComparator);
+		abstract void onFiltered(int[] positions);
+	}
+
+	/**
+	 * Returns the position in the filtered list of the item at the specified
+	 * position in the full list, or of the next item still shown.
+	 */
+	private static int toFilteredPosition(int[] positions, int position) {
+		if (positions == null) {
+			return position;
+		}
+		final int index = Arrays.binarySearch(positions, position);
+		if (index >= 0) {
+			return index;
+		}
+		return Math.max(0, Math.min(-index - 1, positions.length - 1));
 	}
 
 	public class ContactList_dialog extends Dialog implements
@@ -3263,8 +3338,14 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		IndexableListView listview;
 		Contact_Adapter contact_Adapter;
 
-		public ContactList_dialog(Context context, Object tag) {
+		private final List<ContactsCache.Contact> contactInfoArry;
+		private final ChosungIndex contactIndex;
+
+		public ContactList_dialog(Context context, Object tag,
+				ContactsCache.Snapshot snapshot) {
 			super(context);
+			contactInfoArry = snapshot.contacts;
+			contactIndex = snapshot.index;
 			requestWindowFeature(Window.FEATURE_NO_TITLE);
 			setContentView(R.layout.list_dialog);
 			getWindow().setBackgroundDrawable(
@@ -3276,6 +3357,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 			listview.setAdapter(contact_Adapter);
 			listview.setFastScrollEnabled(true);
+			listview.setTextFilterEnabled(true);
 
 			// listview.addFooterView(v)
 			final long App_id = ((Mobject) tag).id;
@@ -3287,8 +3369,10 @@ public final class Launcher extends Activity implements View.OnClickListener,
 						int position, long id) {
 					final ContentValues values = new ContentValues();
 					final ContentResolver cr = getContentResolver();
-					String name = contactInfoArry.get(position).Name;
-					String num = contactInfoArry.get(position).PhoneNum;
+					final ContactsCache.Contact contact = contactInfoArry
+							.get(contact_Adapter.getContactPosition(position));
+					String name = contact.name;
+					String num = contact.phoneNumber;
 
 					num = num.replace("-", "");
 
@@ -3321,10 +3405,14 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 		// ����ó adapter
 		public class Contact_Adapter extends BaseAdapter implements
-				SectionIndexer {
+				SectionIndexer, Filterable {
 
 			private String mSections = "#ㄱㄴㄷㄹㅁㅂㅅㅇㅈㅊㅋㅌㅍㅎABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
+			// Positions of the contacts matching the text filter, or null
+			private int[] mPositions;
+			private Filter mFilter;
+
 			TextView Name;
 			// TextView PhoneNum;
 			LayoutInflater inflater;
@@ -3336,10 +3424,20 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 			@Override
 			public int getCount() {
-				// TODO Auto-generated method stub
+				if (mPositions != null) {
+					return mPositions.length;
+				}
 				return contactInfoArry.size();
 			}
 
+			/**
+			 * Returns the position in contactInfoArry of the contact shown at
+			 * the specified position.
+			 */
+			int getContactPosition(int position) {
+				return mPositions != null ? mPositions[position] : position;
+			}
+
 			@Override
 			public Object getItem(int position) {
 				// TODO Auto-generated method stub
@@ -3362,7 +3460,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 				// PhoneNum = (TextView) convertView
 				// .findViewById(R.id.contact_phonenum);
 
-				Name.setText(contactInfoArry.get(position).Name);
+				Name.setText(contactInfoArry.get(getContactPosition(position)).name);
 				// PhoneNum.setText(contactlist.get(position).PhoneNum);
 				return convertView;
 			}
@@ -3371,26 +3469,26 @@ public final class Launcher extends Activity implements View.OnClickListener,
 			public int getPositionForSection(int section) {
 				// If there is no item for current section, previous section
 				// will be selected
-				for (int i = section; i >= 0; i--) {
-					for (int j = 0; j < getCount(); j++) {
-						if (i == 0) {
-							// For numeric section
-							for (int k = 0; k <= 9; k++) {
-								if (StringMatcher.matchInitial(String
-										.valueOf((contactInfoArry.get(j).Name)
-												.charAt(0)), String.valueOf(k)))
-									return j;
-							}
-						} else {
-							if (StringMatcher.matchInitial(String
-									.valueOf((contactInfoArry.get(j).Name)
-											.charAt(0)), String
-									.valueOf(mSections.charAt(i))))
-								return j;
+				final int position;
+				synchronized (contactIndex) {
+					position = contactIndex.getPositionForSection(mSections,
+							section);
+				}
+				return toFilteredPosition(mPositions, position);
+			}
+
+			@Override
+			public Filter getFilter() {
+				if (mFilter == null) {
+					mFilter = new ChosungFilter(contactIndex) {
+						@Override
+						void onFiltered(int[] positions) {
+							mPositions = positions;
+							notifyDataSetChanged();
 						}
-					}
+					};
 				}
-				return 0;
+				return mFilter;
 			}
 
 			@Override
@@ -3454,7 +3552,8 @@ public final class Launcher extends Activity implements View.OnClickListener,
 	public class AppList_dialog extends Dialog {
 		IndexableListView listview;
 		App_Adapter App_Adapter;
-		ArrayList<AppInfo> appInfoArry;
+		List<ItemInfo> appInfoArry;
+		ChosungIndex appIndex;
 
 		public AppList_dialog(Context context, Object tag) {
 			super(context);
@@ -3466,13 +3565,13 @@ public final class Launcher extends Activity implements View.OnClickListener,
 			getWindow().setBackgroundDrawable(
 					getResources().getDrawable(R.drawable.gridback));
 			listview = (IndexableListView) findViewById(R.id.applist_listview);
-			appInfoArry = new ArrayList<AppInfo>();
 			final long App_id = ((Mobject) tag).id;
 			Apptag = (Mobject) tag;
 			App_Adapter = new App_Adapter();
+			loadApp();
 			listview.setAdapter(App_Adapter);
 			listview.setFastScrollEnabled(true);
-			loadApp();
+			listview.setTextFilterEnabled(true);
 
 			listview.setOnItemClickListener(new AdapterView.OnItemClickListener() {
 				@Override
@@ -3481,38 +3580,14 @@ public final class Launcher extends Activity implements View.OnClickListener,
 				int position, long id) {
 					final ContentValues values = new ContentValues();
 					final ContentResolver cr = getContentResolver();
+					final ItemInfo appInfo = appInfoArry.get(App_Adapter
+							.getAppPosition(position));
 					ItemInfo itemInfo = new ItemInfo();
-					Intent intent = getPackageManager()
-							.getLaunchIntentForPackage(
-									appInfoArry.get(position).packagename);
-					ComponentName component = new ComponentName(appInfoArry
-							.get(position).packagename, intent.getComponent()
-							.getClassName());
-					PackageManager packageManager = getPackageManager();
-					ActivityInfo activityInfo = null;
-					try {
-						activityInfo = packageManager.getActivityInfo(
-								component, 0 /*
-											 * no flags
-											 */);
-					} catch (NameNotFoundException e) {
-						e("matching-app",
-								"Couldn't find ActivityInfo for selected application",
-								e);
-					}
-
-					if (activityInfo != null) {
-						itemInfo.title = activityInfo.loadLabel(packageManager);
-						if (itemInfo.title == null) {
-							itemInfo.title = activityInfo.name;
-						}
-
-						itemInfo.setActivity(
-								component,
-								Intent.FLAG_ACTIVITY_NEW_TASK
-										| Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
-						itemInfo.container = ItemInfo.NO_ID;
-					}
+					itemInfo.title = appInfo.title;
+					itemInfo.setActivity(appInfo.intent.getComponent(),
+							Intent.FLAG_ACTIVITY_NEW_TASK
+									| Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
+					itemInfo.container = ItemInfo.NO_ID;
 					Apptag.intent = itemInfo.intent;
 					Apptag.title = itemInfo.title;
 
@@ -3527,7 +3602,7 @@ public final class Launcher extends Activity implements View.OnClickListener,
 							false), values, null, null);
 					Toast.makeText(
 							mLauncher,
-							appInfoArry.get(position).appName
+							appInfo.title
 									+ " 어플리케이션이 매칭되었습니다.", Toast.LENGTH_SHORT)
 							.show();
 					viewSetTag(Apptag);
@@ -3543,59 +3618,22 @@ public final class Launcher extends Activity implements View.OnClickListener,
 		}
 
 		public void loadApp() {
-			Comparator<AppInfo> myComparator = new Comparator<AppInfo>() {
-				Collator app_Collator = Collator.getInstance();
+			final AppCatalog catalog = sModel.getAppCatalog();
+			appInfoArry = catalog.applications;
+			appIndex = catalog.index;
 
-				@Override
-				public int compare(AppInfo a, AppInfo b) {
-					return app_Collator.compare(a.appName, b.appName);
-				}
-			};
-			PackageManager pm = getPackageManager();
-			final Intent mainIntent = new Intent(Intent.ACTION_MAIN, null);
-			mainIntent.addCategory(Intent.CATEGORY_LAUNCHER);
-			final List<ResolveInfo> apps = pm.queryIntentActivities(mainIntent,
-					0);
-			final int count = apps.size();
-			for (int i = 0; i < count; i++) {
-				ResolveInfo info = apps.get(i);
-				AppInfo appinfo = new AppInfo();
-				appinfo.packagename = info.activityInfo.packageName;
-				appinfo.appName = info.activityInfo.applicationInfo.loadLabel(
-						pm).toString();
-				appinfo.appIcon = info.activityInfo.applicationInfo
-						.loadIcon(pm);
-				if (i == 0) {
-					appInfoArry.add(appinfo);
-				} else {
-					for (int j = 0; j <= appInfoArry.size(); j++) {
-						if ((appInfoArry.get(j).appName)
-								.equals(appinfo.appName) == true)
-							break;
-						else {
-							if (j == appInfoArry.size() - 1) {
-								appInfoArry.add(appinfo);
-							}
-						}
-					}
-				}
-			}
-
-			Collections.sort(appInfoArry, myComparator);
 			App_Adapter.notifyDataSetChanged();
 		}
 
-		// �� ���� ������ Ŭ����
-		class AppInfo {
-			public String packagename;
-			public String appName;
-			public Drawable appIcon;
-		}
-
-		public class App_Adapter extends BaseAdapter implements SectionIndexer {
+		public class App_Adapter extends BaseAdapter implements
+				SectionIndexer, Filterable {
 
 			private String mSections = "#ㄱㄴㄷㄹㅁㅂㅅㅇㅈㅊㅋㅌㅍㅎABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
+			// Positions of the applications matching the text filter, or null
+			private int[] mPositions;
+			private Filter mFilter;
+
 			ImageView image;
 			TextView name;
 			LayoutInflater inflater;
@@ -3607,10 +3645,20 @@ public final class Launcher extends Activity implements View.OnClickListener,
 
 			@Override
 			public int getCount() {
-				// TODO Auto-generated method stub
+				if (mPositions != null) {
+					return mPositions.length;
+				}
 				return appInfoArry.size();
 			}
 
+			/**
+			 * Returns the position in appInfoArry of the application shown at
+			 * the specified position.
+			 */
+			int getAppPosition(int position) {
+				return mPositions != null ? mPositions[position] : position;
+			}
+
 			@Override
 			public Object getItem(int position) {
 				// TODO Auto-generated method stub
@@ -3633,10 +3681,10 @@ public final class Launcher extends Activity implements View.OnClickListener,
 						.findViewById(R.id.applist_image);
 				name = (TextView) convertView.findViewById(R.id.applist_name);
 
-				Drawable icon = Utilities.createIconThumbnail(
-						appInfoArry.get(position).appIcon, getContext());
-				image.setImageDrawable(icon);
-				name.setText(appInfoArry.get(position).appName);
+				final ItemInfo appInfo = appInfoArry.get(getAppPosition(position));
+				ApplicationsAdapter.filterIcon(appInfo, getContext());
+				image.setImageDrawable(appInfo.icon);
+				name.setText(appInfo.title);
 				return convertView;
 
 			}
@@ -3645,25 +3693,26 @@ public final class Launcher extends Activity implements View.OnClickListener,
 			public int getPositionForSection(int section) {
 				// If there is no item for current section, previous section
 				// will be selected
-				for (int i = section; i >= 0; i--) {
-					for (int j = 0; j < getCount(); j++) {
-						if (i == 0) {
-							// For numeric section
-							for (int k = 0; k <= 9; k++) {
-								if (StringMatcher.matchInitial(String
-										.valueOf(appInfoArry.get(j).appName),
-										String.valueOf(k)))
-									return j;
-							}
-						} else {
-							if (StringMatcher.matchInitial(
-									String.valueOf(appInfoArry.get(j).appName),
-									String.valueOf(mSections.charAt(i))))
-								return j;
+				final int position;
+				synchronized (appIndex) {
+					position = appIndex.getPositionForSection(mSections,
+							section);
+				}
+				return toFilteredPosition(mPositions, position);
+			}
+
+			@Override
+			public Filter getFilter() {
+				if (mFilter == null) {
+					mFilter = new ChosungFilter(appIndex) {
+						@Override
+						void onFiltered(int[] positions) {
+							mPositions = positions;
+							notifyDataSetChanged();
 						}
-					}
+					};
 				}
-				return 0;
+				return mFilter;
 			}
 
 			@Override
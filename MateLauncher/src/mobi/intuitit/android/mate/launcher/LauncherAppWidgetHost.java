@@ -16,6 +16,7 @@
 
 package mobi.intuitit.android.mate.launcher;
 
+import mobi.intuitit.android.widget.WidgetSpace;
 import android.appwidget.AppWidgetHost;
 import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetProviderInfo;
@@ -27,9 +28,19 @@ import android.content.Context;
  * always pick up and move widgets.
  */
 public class LauncherAppWidgetHost extends AppWidgetHost {
+
+    private final Context mContext;
 	
     public LauncherAppWidgetHost(Context context, int hostId) {
         super(context, hostId);
+        mContext = context;
+    }
+
+    @Override
+    public void deleteAppWidgetId(int appWidgetId) {
+        // Drop the lists the widget made scrollable
+        WidgetSpace.releaseWidgetScrollable(mContext, appWidgetId);
+        super.deleteAppWidgetId(appWidgetId);
     }
     
     @Override
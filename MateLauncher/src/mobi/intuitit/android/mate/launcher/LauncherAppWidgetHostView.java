@@ -23,6 +23,7 @@ import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
+import android.widget.RemoteViews;
 
 /**
  * {@inheritDoc}
@@ -39,6 +40,24 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView {
 
     private LayoutInflater mInflater;
 
+    /**
+     * False while the screen of the widget is out of the viewport. Set by
+     * its screen as soon as it is added, including to a screen never shown.
+     */
+    private boolean mActive = true;
+
+    /**
+     * Latest update received while inactive, applied once active again.
+     */
+    private RemoteViews mPendingViews;
+    private boolean mHasPendingViews;
+
+    private final Runnable mApplyPendingRunnable = new Runnable() {
+        public void run() {
+            applyPendingViews();
+        }
+    };
+
     public LauncherAppWidgetHostView(Context context) {
         super(context);
         mInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
@@ -49,6 +68,49 @@ public class LauncherAppWidgetHostView extends AppWidgetHostView {
         return mInflater.inflate(R.layout.appwidget_error, this, false);
     }
 
+    /**
+     * Holds the updates of the widget while its screen is out of the viewport.
+     * Only the latest update is kept, and it is applied after the widget gets
+     * active again so the screen scroll is not stalled by its inflation.
+     */
+    public void setActive(boolean active) {
+        if (mActive == active)
+            return;
+
+        mActive = active;
+        if (active) {
+            if (mHasPendingViews)
+                post(mApplyPendingRunnable);
+        } else {
+            removeCallbacks(mApplyPendingRunnable);
+        }
+    }
+
+    @Override
+    public void updateAppWidget(RemoteViews remoteViews) {
+        if (!mActive) {
+            mPendingViews = remoteViews;
+            mHasPendingViews = true;
+            return;
+        }
+
+        // Drop an older update not applied yet
+        removeCallbacks(mApplyPendingRunnable);
+        mPendingViews = null;
+        mHasPendingViews = false;
+        super.updateAppWidget(remoteViews);
+    }
+
+    private void applyPendingViews() {
+        if (!mActive || !mHasPendingViews)
+            return;
+
+        final RemoteViews remoteViews = mPendingViews;
+        mPendingViews = null;
+        mHasPendingViews = false;
+        super.updateAppWidget(remoteViews);
+    }
+
     @Override
     protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
         try {
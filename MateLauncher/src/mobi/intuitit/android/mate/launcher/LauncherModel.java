@@ -26,14 +26,24 @@ import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import android.content.ComponentName;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
@@ -43,7 +53,10 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Process;
+import android.os.RemoteException;
 import android.util.Log;
 
 /**
@@ -56,15 +69,44 @@ public class LauncherModel {
 	static final String LOG_TAG = "HomeLoaders";
 
 	private static final int UI_NOTIFICATION_RATE = 4;
+	private static final int DESKTOP_NOTIFICATION_RATE = 6;
+	private static final int DESKTOP_LOADER_WORKERS = Math.min(3, Runtime
+			.getRuntime().availableProcessors());
 	private static final int DEFAULT_APPLICATIONS_NUMBER = 42;
 	private static final long APPLICATION_NOT_RESPONDING_TIMEOUT = 5000;
 	private static final int INITIAL_ICON_CACHE_CAPACITY = 50;
 
 	private static final Collator sCollator = Collator.getInstance();
 
+	/**
+	 * Time the favorites updates are held to be written together.
+	 */
+	private static final long FAVORITES_FLUSH_DELAY = 1000;
+
+	private static final HandlerThread sFavoritesWriterThread = new HandlerThread(
+			"launcher-favorites-writer", Process.THREAD_PRIORITY_BACKGROUND);
+	static {
+		sFavoritesWriterThread.start();
+	}
+	private static final Handler sFavoritesWriter = new Handler(
+			sFavoritesWriterThread.getLooper());
+
+	/**
+	 * Favorites updates not written yet, merged per item id.
+	 */
+	private static final LinkedHashMap<Long, ContentValues> sPendingUpdates = new LinkedHashMap<Long, ContentValues>();
+	private static final Object sFlushLock = new Object();
+	private static boolean sFlushScheduled;
+
 	private boolean mApplicationsLoaded;
 	private boolean mDesktopItemsLoaded;
 
+	/**
+	 * Last entry of the favorites change log reflected by mDesktopItems and
+	 * mDesktopAppWidgets, or -1 when unknown.
+	 */
+	private long mChangeSequence = -1;
+
 	public ArrayList<ItemInfo> mDesktopItems;
 	private ArrayList<LauncherAppWidgetInfo> mDesktopAppWidgets;
 	private HashMap<Long, FolderInfo> mFolders;
@@ -73,12 +115,15 @@ public class LauncherModel {
 	private ApplicationsAdapter mApplicationsAdapter;
 	private ApplicationsLoader mApplicationsLoader;
 	private DesktopItemsLoader mDesktopItemsLoader;
+	private DesktopChangesLoader mDesktopChangesLoader;
 	private Thread mApplicationsLoaderThread;
 	private Thread mDesktopLoaderThread;
 
 	private final HashMap<ComponentName, ItemInfo> mAppInfoCache = new HashMap<ComponentName, ItemInfo>(
 			INITIAL_ICON_CACHE_CAPACITY);
 
+	private IconDiskCache mIconDiskCache;
+
 	synchronized void abortLoaders() {
 		if (DEBUG_LOADERS)
 			d(LOG_TAG, "aborting loaders");
@@ -96,6 +141,10 @@ public class LauncherModel {
 			mDesktopItemsLoader.stop();
 			mDesktopItemsLoaded = false;
 		}
+
+		if (mDesktopChangesLoader != null) {
+			mDesktopChangesLoader.stop();
+		}
 	}
 
 	/**
@@ -107,6 +156,20 @@ public class LauncherModel {
 		mAppInfoCache.clear();
 	}
 
+	/**
+	 * Returns the persistent label & icon cache, creating it the first time.
+	 */
+	private synchronized IconDiskCache getIconDiskCache(Context context) {
+		if (mIconDiskCache == null) {
+			mIconDiskCache = new IconDiskCache(context);
+		}
+		return mIconDiskCache;
+	}
+
+	private static String getLocale(Context context) {
+		return context.getResources().getConfiguration().locale.toString();
+	}
+
 	/**
 	 * Loads the list of installed applications in mApplications.
 	 * 
@@ -203,20 +266,31 @@ public class LauncherModel {
 			if (matches.size() > 0) {
 				final ApplicationsAdapter adapter = mApplicationsAdapter;
 				final HashMap<ComponentName, ItemInfo> cache = mAppInfoCache;
+				final List<ItemInfo> added = new ArrayList<ItemInfo>(
+						matches.size());
 
 				for (ResolveInfo info : matches) {
+					final ItemInfo application = makeAndCacheApplicationInfo(
+							packageManager, cache, info, launcher);
 					adapter.setNotifyOnChange(false);
-					adapter.add(makeAndCacheApplicationInfo(packageManager,
-							cache, info, launcher));
+					adapter.add(application);
+					added.add(application);
 				}
 
 				adapter.sort(new ApplicationInfoComparator());
 				adapter.notifyDataSetChanged();
+
+				getIconDiskCache(launcher).putAll(packageManager, added,
+						getLocale(launcher));
 			}
 		}
 	}
 
 	synchronized void removePackage(Launcher launcher, String packageName) {
+		if (packageName != null && packageName.length() > 0) {
+			getIconDiskCache(launcher).removePackage(packageName);
+		}
+
 		if (mApplicationsLoader != null && mApplicationsLoader.isRunning()) {
 			dropApplicationCache(); // TODO: this could be optimized
 			startApplicationsLoaderLocked(launcher, false);
@@ -300,6 +374,11 @@ public class LauncherModel {
 				info.activityInfo.applicationInfo.packageName,
 				info.activityInfo.name);
 		mAppInfoCache.put(componentName, applicationInfo);
+
+		final ArrayList<ItemInfo> updated = new ArrayList<ItemInfo>(1);
+		updated.add(applicationInfo);
+		getIconDiskCache(context).putAll(packageManager, updated,
+				getLocale(context));
 	}
 
 	synchronized void syncPackage(Launcher launcher, String packageName) {
@@ -555,9 +634,21 @@ public class LauncherModel {
 			mainIntent.addCategory(Intent.CATEGORY_LAUNCHER);
 
 			final Launcher launcher = mLauncher.get();
+			final String locale = getLocale(launcher);
+			final IconDiskCache diskCache = getIconDiskCache(launcher);
+			final HashMap<ComponentName, ItemInfo> appInfoCache = mAppInfoCache;
+
+			// Labels and icons stored by a previous run are still valid
+			// unless the package was updated since, which is checked once
+			// the list has been handed to the UI
+			final int warmed = diskCache.warm(appInfoCache, locale);
+			if (DEBUG_LOADERS)
+				d(LOG_TAG, "  ----> warmed " + warmed + " icons from disk");
+
 			final PackageManager manager = launcher.getPackageManager();
 			final List<ResolveInfo> apps = manager.queryIntentActivities(
 					mainIntent, 0);
+			final List<ItemInfo> loaded = new ArrayList<ItemInfo>();
 
 			if (apps != null && !mStopped) {
 				final int count = apps.size();
@@ -567,13 +658,19 @@ public class LauncherModel {
 
 				ChangeNotifier action = new ChangeNotifier(applicationList,
 						true);
-				final HashMap<ComponentName, ItemInfo> appInfoCache = mAppInfoCache;
 
 				for (int i = 0; i < count && !mStopped; i++) {
 					ResolveInfo info = apps.get(i);
 
+					final boolean cached = appInfoCache
+							.containsKey(new ComponentName(
+									info.activityInfo.applicationInfo.packageName,
+									info.activityInfo.name));
 					ItemInfo application = makeAndCacheApplicationInfo(manager,
 							appInfoCache, info, launcher);
+					if (!cached) {
+						loaded.add(application);
+					}
 
 					if (action.add(application) && !mStopped) {
 						launcher.runOnUiThread(action);
@@ -593,10 +690,112 @@ public class LauncherModel {
 								+ mId + ")");
 				}
 			}
+
+			if (!mStopped) {
+				android.os.Process
+						.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+				diskCache.putAll(manager, loaded, locale);
+				revalidateIconCache(launcher, manager, diskCache, locale);
+			}
 			mRunning = false;
 		}
 	}
 
+	/**
+	 * Reloads the label and icon of every application warmed from the disk
+	 * cache whose package has been updated since it was stored, and forgets
+	 * the applications that are gone. The new labels and icons are built on
+	 * the loader thread and handed to the cached applications on the UI
+	 * thread, which sorts and draws them.
+	 */
+	private void revalidateIconCache(final Launcher launcher,
+			PackageManager manager, IconDiskCache diskCache, String locale) {
+		final List<ComponentName> stale = diskCache.collectStale(manager,
+				new ArrayList<ComponentName>());
+		if (stale.isEmpty()) {
+			return;
+		}
+
+		if (DEBUG_LOADERS)
+			d(LOG_TAG, "  ----> revalidating " + stale.size() + " icons");
+
+		final Intent intent = new Intent(Intent.ACTION_MAIN, null);
+		intent.addCategory(Intent.CATEGORY_LAUNCHER);
+
+		final List<ItemInfo> updated = new ArrayList<ItemInfo>(stale.size());
+		final List<ResolveInfo> infos = new ArrayList<ResolveInfo>(stale.size());
+		final List<ComponentName> removed = new ArrayList<ComponentName>();
+		for (ComponentName componentName : stale) {
+			intent.setComponent(componentName);
+			final ResolveInfo info = manager.resolveActivity(intent, 0);
+			if (info == null) {
+				// Uninstalled while the launcher was not running
+				removed.add(componentName);
+				continue;
+			}
+
+			final ItemInfo application = new ItemInfo();
+			application.container = ItemInfo.NO_ID;
+			application.title = info.loadLabel(manager);
+			if (application.title == null) {
+				application.title = info.activityInfo.name;
+			}
+			application.setActivity(componentName,
+					Intent.FLAG_ACTIVITY_NEW_TASK
+							| Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
+			updated.add(application);
+			infos.add(info);
+		}
+
+		// Thumbnail the new icons in one pass
+		final int count = updated.size();
+		final Drawable[] icons = new Drawable[count];
+		for (int i = 0; i < count; i++) {
+			icons[i] = infos.get(i).activityInfo.loadIcon(manager);
+		}
+		Utilities.createIconThumbnails(icons, launcher);
+		for (int i = 0; i < count; i++) {
+			updated.get(i).icon = icons[i];
+		}
+
+		diskCache.putAll(manager, updated, locale);
+		diskCache.removeComponents(removed);
+
+		launcher.runOnUiThread(new Runnable() {
+			public void run() {
+				final HashMap<ComponentName, ItemInfo> cache = mAppInfoCache;
+				for (ComponentName componentName : removed) {
+					cache.remove(componentName);
+				}
+
+				// The drawer keeps drawing the old icons until it is
+				// notified
+				boolean changed = false;
+				for (int i = 0; i < count; i++) {
+					final ItemInfo fresh = updated.get(i);
+					final ItemInfo application = cache.get(fresh.intent
+							.getComponent());
+					if (application == null) {
+						continue;
+					}
+
+					changed = true;
+					application.title = fresh.title;
+					application.icon = fresh.icon;
+					application.filtered = false;
+				}
+
+				final ApplicationsAdapter adapter = mApplicationsAdapter;
+				// Can be set to null on the UI thread by the unbind()
+				// method
+				if (adapter != null && changed) {
+					adapter.sort(new ApplicationInfoComparator());
+					adapter.notifyDataSetChanged();
+				}
+			}
+		});
+	}
+
 	private static class ChangeNotifier implements Runnable {
 		private final ApplicationsAdapter mApplicationList;
 		private final ArrayList<ItemInfo> mBuffer;
@@ -695,6 +894,11 @@ public class LauncherModel {
 			loadApplications = mDesktopItemsLoader.mLoadApplications;
 		}
 
+		if (mDesktopChangesLoader != null) {
+			mDesktopChangesLoader.stop();
+			mDesktopChangesLoader = null;
+		}
+
 		if (DEBUG_LOADERS)
 			d(LOG_TAG, "  --> starting workspace loader");
 		mDesktopItemsLoaded = false;
@@ -797,6 +1001,11 @@ public class LauncherModel {
 		private final boolean mIsLaunching;
 		private final int mId;
 
+		/**
+		 * Number of desktop items already handed to the launcher.
+		 */
+		private int mPostedItems;
+
 		DesktopItemsLoader(Launcher launcher, boolean localeChanged,
 				boolean loadApplications, boolean isLaunching) {
 			mLoadApplications = loadApplications;
@@ -828,6 +1037,9 @@ public class LauncherModel {
 					.getContentResolver();
 			final PackageManager manager = launcher.getPackageManager();
 
+			// Read the favorites with the moves not written yet
+			flushPendingUpdates(launcher);
+
 			if (mLocaleChanged) {
 				updateShortcutLabels(contentResolver, manager);
 			}
@@ -839,55 +1051,134 @@ public class LauncherModel {
 			final ArrayList<ItemInfo> desktopItems = mDesktopItems;
 			final ArrayList<LauncherAppWidgetInfo> desktopAppWidgets = mDesktopAppWidgets;
 
+			// Remember where the change log stands before reading the table,
+			// changes made while loading are simply applied twice
+			final long changeSequence = readChangeSequence(contentResolver);
+
+			// Stage one: the current screen and the widgets, handed to the UI
+			// before the other screens are even read
+			final String onScreen = LauncherSettings.Favorites.CONTAINER + "="
+					+ LauncherSettings.Favorites.CONTAINER_DESKTOP + " AND "
+					+ LauncherSettings.Favorites.SCREEN + "=?";
+			final String firstStage = "(" + onScreen + ") OR "
+					+ LauncherSettings.Favorites.CONTAINER + " IN (SELECT "
+					+ LauncherSettings.Favorites._ID + " FROM "
+					+ LauncherProvider.TABLE_FAVORITES + " WHERE " + onScreen
+					+ ") OR " + LauncherSettings.Favorites.ITEM_TYPE + "="
+					+ LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
+			final String screen = String.valueOf(Launcher.getScreen());
+			final String[] firstStageArgs = new String[] { screen, screen };
+
+			loadDesktopRows(launcher, contentResolver, manager, firstStage,
+					firstStageArgs, null);
+
+			if (!mStopped) {
+				final ArrayList<ItemInfo> uiDesktopItems = new ArrayList<ItemInfo>(
+						desktopItems);
+				final ArrayList<LauncherAppWidgetInfo> uiDesktopWidgets = new ArrayList<LauncherAppWidgetInfo>(
+						desktopAppWidgets);
+				mPostedItems = uiDesktopItems.size();
+
+				launcher.runOnUiThread(new Runnable() {
+					public void run() {
+						if (mStopped)
+							return;
+						if (DEBUG_LOADERS)
+							d(LOG_TAG, "  ----> onDesktopItemsLoaded()");
+						launcher.onDesktopItemsLoaded(uiDesktopItems,
+								uiDesktopWidgets);
+					}
+				});
+			}
+
+			// Stage two: everything else. Icons of the desktop shortcuts are
+			// loaded by a bounded pool and the shortcuts are streamed to the UI
+			// as they complete. Folder contents are still loaded here so they
+			// are complete by the time their folder is handed out
+			if (!mStopped) {
+				final ExecutorService executor = Executors
+						.newFixedThreadPool(DESKTOP_LOADER_WORKERS);
+				final CompletionService<ApplicationInfo> workers = new ExecutorCompletionService<ApplicationInfo>(
+						executor);
+				try {
+					int pending = loadDesktopRows(launcher, contentResolver,
+							manager, "NOT (" + firstStage + ")",
+							firstStageArgs, workers);
+					postDesktopItems(launcher);
+
+					int ready = 0;
+					while (pending > 0 && !mStopped) {
+						try {
+							addShortcut(workers.take().get());
+						} catch (ExecutionException e) {
+							w(Launcher.LOG_TAG, "Could not load desktop icon",
+									e.getCause());
+						}
+						pending--;
+
+						if (++ready >= DESKTOP_NOTIFICATION_RATE || pending == 0) {
+							postDesktopItems(launcher);
+							ready = 0;
+						}
+					}
+				} catch (InterruptedException e) {
+					mStopped = true;
+				} finally {
+					executor.shutdownNow();
+				}
+			}
+
+			synchronized (LauncherModel.this) {
+				if (!mStopped) {
+					if (DEBUG_LOADERS) {
+						d(LOG_TAG, "  --> done loading workspace");
+						d(LOG_TAG,
+								"  ----> worskpace items="
+										+ desktopItems.size());
+						d(LOG_TAG, "  ----> worskpace widgets="
+								+ desktopAppWidgets.size());
+					}
+
+					if (mLoadApplications) {
+						if (DEBUG_LOADERS) {
+							d(LOG_TAG,
+									"  ----> loading applications from workspace loader");
+						}
+						startApplicationsLoader(launcher, mIsLaunching);
+					}
+
+					mChangeSequence = changeSequence;
+					mDesktopItemsLoaded = true;
+				} else {
+					if (DEBUG_LOADERS)
+						d(LOG_TAG, "  ----> worskpace loader was stopped");
+				}
+			}
+			mRunning = false;
+		}
+
+		/**
+		 * Reads the favorites matching the specified selection into the
+		 * model. When workers are given, the icons of desktop applications and
+		 * shortcuts are loaded by them instead of this thread, and those
+		 * items are only added by {@link #addShortcut} once they complete.
+		 * 
+		 * @return The number of icon tasks submitted to the workers.
+		 */
+		private int loadDesktopRows(Launcher launcher,
+				ContentResolver contentResolver, PackageManager manager,
+				String selection, String[] selectionArgs,
+				CompletionService<ApplicationInfo> workers) {
+			final ArrayList<ItemInfo> desktopItems = mDesktopItems;
+			final ArrayList<LauncherAppWidgetInfo> desktopAppWidgets = mDesktopAppWidgets;
+
 			final Cursor c = contentResolver.query(
-					LauncherSettings.Favorites.CONTENT_URI, null, null, null,
-					null);
+					LauncherSettings.Favorites.CONTENT_URI, null, selection,
+					selectionArgs, null);
+			int submitted = 0;
 
 			try {
-				final int idIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites._ID);
-				final int intentIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.INTENT);
-				final int titleIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.TITLE);
-				final int iconTypeIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_TYPE);
-				final int iconIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON);
-				final int iconPackageIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_PACKAGE);
-				final int iconResourceIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_RESOURCE);
-				final int containerIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.CONTAINER);
-				final int itemTypeIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.ITEM_TYPE);
-				final int appWidgetIdIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.APPWIDGET_ID);
-				final int screenIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.SCREEN);
-				final int cellXIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.CELLX);
-				final int cellYIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.CELLY);
-				final int spanXIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.SPANX);
-				final int spanYIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.SPANY);
-				final int uriIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.URI);
-				final int displayModeIndex = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.DISPLAY_MODE);
-				final int mobjectType = c
-						.getColumnIndexOrThrow(LauncherSettings.Favorites.MOBJECT_TYPE);
-				final int mobjectIcon = c
-						.getColumnIndex(LauncherSettings.Favorites.MOBJECT_ICON);
-				final int contact_num = c
-						.getColumnIndex(LauncherSettings.Favorites.CONTACT_NUM);
-				final int contact_name = c
-						.getColumnIndex(LauncherSettings.Favorites.CONTACT_NAME);
-				final int reverseIcon = c
-						.getColumnIndex(LauncherSettings.Favorites.REVERSE_ICON);
+				final FavoritesIndices indices = new FavoritesIndices(c);
 
 				Mobject appinfo;
 				ApplicationInfo info;
@@ -902,43 +1193,20 @@ public class LauncherModel {
 
 				while (!mStopped && c.moveToNext()) {
 					try {
-						int itemType = c.getInt(itemTypeIndex);
-						int MobjectType = c.getInt(mobjectType);
+						int itemType = c.getInt(indices.itemType);
+						int MobjectType = c.getInt(indices.mobjectType);
 						switch (itemType) {
 						case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
 						case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
 							// ó оºκ
 							if (MobjectType == MGlobal.MOBJECTTYPE_FURNITURE || MobjectType == MGlobal.MOBJECTTYPE_AVATAR
 									|| MobjectType == MGlobal.MOBJECTTYPE_WIDGET) {
-								appinfo = new Mobject();
-								if (c.getString(intentIndex) != null) {
-									intentDescription = c
-											.getString(intentIndex);
-									try {
-										intent = Intent.parseUri(
-												intentDescription, 0);
-										appinfo.intent = intent;
-									} catch (java.net.URISyntaxException e) {
-										continue;
-									}
-								} else
-									appinfo.intent = null;
-
-								appinfo.contact_num = c.getString(contact_num);
-								appinfo.contact_name = c
-										.getString(contact_name);
-
-								appinfo.mobjectIcon = c.getInt(mobjectIcon);
-								appinfo.title = c.getString(titleIndex);
-								appinfo.id = c.getLong(idIndex);
-								container = c.getInt(containerIndex);
-								appinfo.container = container;
-								appinfo.screen = c.getInt(screenIndex);
-								appinfo.cellX = c.getInt(cellXIndex);
-								appinfo.cellY = c.getInt(cellYIndex);
-								appinfo.mobjectType = c.getInt(mobjectType);
-								appinfo.reverseIcon = c.getInt(reverseIcon);								
-								
+								appinfo = loadMobject(c, indices);
+								if (appinfo == null) {
+									continue;
+								}
+								container = (int) appinfo.container;
+
 								switch (container) {
 								case LauncherSettings.Favorites.CONTAINER_DESKTOP:
 									desktopItems.add(appinfo);
@@ -951,73 +1219,36 @@ public class LauncherModel {
 									break;
 								}
 							} else {
-								intentDescription = c.getString(intentIndex);
-								try {
-									intent = Intent.parseUri(intentDescription,
-											0);
-								} catch (java.net.URISyntaxException e) {
+								info = loadShortcutInfo(c, indices);
+								if (info == null) {
 									continue;
 								}
 
-								if (itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION) {
-									info = getApplicationInfo(manager, intent,
-											launcher);
+								final ShortcutIconTask task = new ShortcutIconTask(
+										launcher, manager, info, c, indices);
+								if (workers != null
+										&& info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+									workers.submit(task);
+									submitted++;
 								} else {
-									info = getApplicationInfoShortcut(c,
-											launcher, iconTypeIndex,
-											iconPackageIndex,
-											iconResourceIndex, iconIndex);
-								}
-
-								if (info == null) {
-									info = new ApplicationInfo();
-									info.icon = manager
-											.getDefaultActivityIcon();
-								}
-
-								if (info != null) {
-									info.title = c.getString(titleIndex);
-									info.intent = intent;
-
-									info.id = c.getLong(idIndex);
-									container = c.getInt(containerIndex);
-									info.container = container;
-									info.screen = c.getInt(screenIndex);
-									info.cellX = c.getInt(cellXIndex);
-									info.cellY = c.getInt(cellYIndex);
-
-									info.mobjectType = c.getInt(mobjectType);
-									info.mobjectIcon = c.getInt(mobjectIcon);
-									info.reverseIcon = c.getInt(reverseIcon);
-									
-									switch (container) {
-									case LauncherSettings.Favorites.CONTAINER_DESKTOP:
-										desktopItems.add(info);
-										break;
-									default:
-										// Item is in a user folder
-										UserFolderInfo folderInfo = findOrMakeUserFolder(
-												folders, container);
-										folderInfo.add(info);
-										break;
-									}
+									addShortcut(task.call());
 								}
 								break;
 							}
 						case LauncherSettings.Favorites.ITEM_TYPE_USER_FOLDER:
 
-							id = c.getLong(idIndex);
+							id = c.getLong(indices.id);
 							UserFolderInfo folderInfo = findOrMakeUserFolder(
 									folders, id);
 
-							folderInfo.title = c.getString(titleIndex);
+							folderInfo.title = c.getString(indices.title);
 
 							folderInfo.id = id;
-							container = c.getInt(containerIndex);
+							container = c.getInt(indices.container);
 							folderInfo.container = container;
-							folderInfo.screen = c.getInt(screenIndex);
-							folderInfo.cellX = c.getInt(cellXIndex);
-							folderInfo.cellY = c.getInt(cellYIndex);
+							folderInfo.screen = c.getInt(indices.screen);
+							folderInfo.cellX = c.getInt(indices.cellX);
+							folderInfo.cellY = c.getInt(indices.cellY);
 //							folderInfo.mobjectIcon = c.getInt(mobjectIcon);
 //							folderInfo.mobjectType = c.getInt(mobjectType);
 
@@ -1029,11 +1260,11 @@ public class LauncherModel {
 							break;
 						case LauncherSettings.Favorites.ITEM_TYPE_LIVE_FOLDER:
 
-							id = c.getLong(idIndex);
+							id = c.getLong(indices.id);
 							LiveFolderInfo liveFolderInfo = findOrMakeLiveFolder(
 									folders, id);
 
-							intentDescription = c.getString(intentIndex);
+							intentDescription = c.getString(indices.intent);
 							intent = null;
 							if (intentDescription != null) {
 								try {
@@ -1045,21 +1276,21 @@ public class LauncherModel {
 								}
 							}
 
-							liveFolderInfo.title = c.getString(titleIndex);
+							liveFolderInfo.title = c.getString(indices.title);
 							liveFolderInfo.id = id;
-							container = c.getInt(containerIndex);
+							container = c.getInt(indices.container);
 							liveFolderInfo.container = container;
-							liveFolderInfo.screen = c.getInt(screenIndex);
-							liveFolderInfo.cellX = c.getInt(cellXIndex);
-							liveFolderInfo.cellY = c.getInt(cellYIndex);
+							liveFolderInfo.screen = c.getInt(indices.screen);
+							liveFolderInfo.cellX = c.getInt(indices.cellX);
+							liveFolderInfo.cellY = c.getInt(indices.cellY);
 							liveFolderInfo.uri = Uri.parse(c
-									.getString(uriIndex));
+									.getString(indices.uri));
 							liveFolderInfo.baseIntent = intent;
 							liveFolderInfo.displayMode = c
-									.getInt(displayModeIndex);
+									.getInt(indices.displayMode);
 
-							loadLiveFolderIcon(launcher, c, iconTypeIndex,
-									iconPackageIndex, iconResourceIndex,
+							loadLiveFolderIcon(launcher, c, indices.iconType,
+									indices.iconPackage, indices.iconResource,
 									liveFolderInfo);
 
 							switch (container) {
@@ -1071,7 +1302,7 @@ public class LauncherModel {
 						case LauncherSettings.Favorites.ITEM_TYPE_WIDGET_SEARCH:
 							widgetInfo = Widget.makeSearch();
 
-							container = c.getInt(containerIndex);
+							container = c.getInt(indices.container);
 							if (container != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
 								e(Launcher.LOG_TAG,
 										"Widget found where container "
@@ -1079,34 +1310,19 @@ public class LauncherModel {
 								continue;
 							}
 
-							widgetInfo.id = c.getLong(idIndex);
-							widgetInfo.screen = c.getInt(screenIndex);
+							widgetInfo.id = c.getLong(indices.id);
+							widgetInfo.screen = c.getInt(indices.screen);
 							widgetInfo.container = container;
-							widgetInfo.cellX = c.getInt(cellXIndex);
-							widgetInfo.cellY = c.getInt(cellYIndex);
+							widgetInfo.cellX = c.getInt(indices.cellX);
+							widgetInfo.cellY = c.getInt(indices.cellY);
 
 							desktopItems.add(widgetInfo);
 							break;
 						case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET:
-							// Read all Launcher-specific widget details
-							int appWidgetId = c.getInt(appWidgetIdIndex);
-							appWidgetInfo = new LauncherAppWidgetInfo(
-									appWidgetId);
-							appWidgetInfo.id = c.getLong(idIndex);
-							appWidgetInfo.screen = c.getInt(screenIndex);
-							appWidgetInfo.cellX = c.getInt(cellXIndex);
-							appWidgetInfo.cellY = c.getInt(cellYIndex);
-							appWidgetInfo.spanX = c.getInt(spanXIndex);
-							appWidgetInfo.spanY = c.getInt(spanYIndex);
-
-							container = c.getInt(containerIndex);
-							if (container != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-								e(Launcher.LOG_TAG,
-										"Widget found where container "
-												+ "!= CONTAINER_DESKTOP -- ignoring!");
+							appWidgetInfo = loadAppWidget(c, indices);
+							if (appWidgetInfo == null) {
 								continue;
 							}
-							appWidgetInfo.container = c.getInt(containerIndex);
 
 							desktopAppWidgets.add(appWidgetInfo);
 							break;
@@ -1120,56 +1336,569 @@ public class LauncherModel {
 				c.close();
 			}
 
-			synchronized (LauncherModel.this) {
-				if (!mStopped) {
-					if (DEBUG_LOADERS) {
-						d(LOG_TAG, "  --> done loading workspace");
-						d(LOG_TAG,
-								"  ----> worskpace items="
-										+ desktopItems.size());
-						d(LOG_TAG, "  ----> worskpace widgets="
-								+ desktopAppWidgets.size());
+			return submitted;
+		}
+
+		/**
+		 * Adds an application or shortcut whose icon has been loaded to the
+		 * desktop or to its user folder.
+		 */
+		private void addShortcut(ApplicationInfo info) {
+			final int container = (int) info.container;
+			switch (container) {
+			case LauncherSettings.Favorites.CONTAINER_DESKTOP:
+				mDesktopItems.add(info);
+				break;
+			default:
+				// Item is in a user folder
+				UserFolderInfo folderInfo = findOrMakeUserFolder(mFolders,
+						container);
+				folderInfo.add(info);
+				break;
+			}
+		}
+
+		/**
+		 * Hands the desktop items read since the last call to the launcher.
+		 */
+		private void postDesktopItems(final Launcher launcher) {
+			final ArrayList<ItemInfo> desktopItems = mDesktopItems;
+			final int count = desktopItems.size();
+			if (count == mPostedItems) {
+				return;
+			}
+
+			// Copy the items in case the workspace loader is restarted and
+			// the list is cleared before the UI can go through them
+			final ArrayList<ItemInfo> uiDesktopItems = new ArrayList<ItemInfo>(
+					desktopItems.subList(mPostedItems, count));
+			mPostedItems = count;
+
+			launcher.runOnUiThread(new Runnable() {
+				public void run() {
+					if (mStopped)
+						return;
+					if (DEBUG_LOADERS)
+						d(LOG_TAG, "  ----> onMoreDesktopItemsLoaded("
+								+ uiDesktopItems.size() + ")");
+					launcher.onMoreDesktopItemsLoaded(uiDesktopItems);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Reloads only the favorites that changed since the desktop was last
+	 * loaded, according to the favorites change log, and hands them to
+	 * {@link Launcher#onDesktopItemsChanged}. Falls back to a full
+	 * {@link #loadUserItems} when the log cannot describe the changes.
+	 */
+	void loadChangedItems(Launcher launcher) {
+		if (!isDesktopLoaded() || mChangeSequence < 0
+				|| (mDesktopItemsLoader != null && mDesktopItemsLoader
+						.isRunning())) {
+			loadUserItems(false, launcher, false, false);
+			return;
+		}
+
+		if (mDesktopChangesLoader != null) {
+			// The running loader will pick up this change as well, but it
+			// might already be past the change log
+			mDesktopChangesLoader.stop();
+		}
+
+		if (DEBUG_LOADERS)
+			d(LOG_TAG, "  --> starting changes loader from " + mChangeSequence);
+
+		mDesktopChangesLoader = new DesktopChangesLoader(launcher,
+				mChangeSequence);
+		new Thread(mDesktopChangesLoader, "Desktop Changes Loader").start();
+	}
+
+	/**
+	 * Applies the result of a {@link DesktopChangesLoader} to the model. Must
+	 * be called on the UI thread.
+	 */
+	private void applyChangedItems(Launcher launcher,
+			DesktopChangesLoader loader, long[] changedIds,
+			ArrayList<ItemInfo> items, ArrayList<LauncherAppWidgetInfo> appWidgets) {
+		if (loader != mDesktopChangesLoader || loader.mStopped) {
+			return;
+		}
+		mDesktopChangesLoader = null;
+
+		if (changedIds == null) {
+			loadUserItems(false, launcher, false, false);
+			return;
+		}
+
+		final ArrayList<ItemInfo> desktopItems = mDesktopItems;
+		for (int i = desktopItems.size() - 1; i >= 0; i--) {
+			if (contains(changedIds, desktopItems.get(i).id)) {
+				desktopItems.remove(i);
+			}
+		}
+		final ArrayList<LauncherAppWidgetInfo> desktopAppWidgets = mDesktopAppWidgets;
+		for (int i = desktopAppWidgets.size() - 1; i >= 0; i--) {
+			if (contains(changedIds, desktopAppWidgets.get(i).id)) {
+				desktopAppWidgets.remove(i);
+			}
+		}
+
+		// Forget the deleted folders and folder contents, a changed folder
+		// that still exists goes through the full loader
+		final HashMap<Long, FolderInfo> folders = mFolders;
+		if (folders != null) {
+			for (long id : changedIds) {
+				folders.remove(id);
+			}
+			for (FolderInfo folder : folders.values()) {
+				if (folder instanceof UserFolderInfo) {
+					final ArrayList<ItemInfo> contents = ((UserFolderInfo) folder).contents;
+					for (int i = contents.size() - 1; i >= 0; i--) {
+						if (contains(changedIds, contents.get(i).id)) {
+							contents.remove(i);
+						}
 					}
+				}
+			}
+		}
 
-					// Create a copy of the lists in case the workspace loader
-					// is restarted
-					// and the list are cleared before the UI can go through
-					// them
-					final ArrayList<ItemInfo> uiDesktopItems = new ArrayList<ItemInfo>(
-							desktopItems);
-					final ArrayList<LauncherAppWidgetInfo> uiDesktopWidgets = new ArrayList<LauncherAppWidgetInfo>(
-							desktopAppWidgets);
-
-					if (!mStopped) {
-						d(LOG_TAG, "  ----> items cloned, ready to refresh UI");
-						launcher.runOnUiThread(new Runnable() {
-							public void run() {
-								if (DEBUG_LOADERS)
-									d(LOG_TAG, "  ----> onDesktopItemsLoaded()");
-								launcher.onDesktopItemsLoaded(uiDesktopItems,
-										uiDesktopWidgets);
-							}
-						});
+		desktopItems.addAll(items);
+		desktopAppWidgets.addAll(appWidgets);
+		mChangeSequence = loader.mSequence;
+
+		launcher.onDesktopItemsChanged(changedIds, items, appWidgets);
+	}
+
+	private static boolean contains(long[] ids, long id) {
+		for (long i : ids) {
+			if (i == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the last entry of the favorites change log, or -1 if the log is
+	 * empty.
+	 */
+	private static long readChangeSequence(ContentResolver resolver) {
+		final Cursor c = resolver.query(
+				LauncherSettings.FavoritesChangelog.CONTENT_URI,
+				new String[] { "MAX(" + LauncherSettings.FavoritesChangelog._ID
+						+ ")" }, null, null, null);
+		if (c == null) {
+			return -1;
+		}
+		try {
+			return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) : -1;
+		} finally {
+			c.close();
+		}
+	}
+
+	private class DesktopChangesLoader implements Runnable {
+		private volatile boolean mStopped;
+
+		private final WeakReference<Launcher> mLauncher;
+		private long mSequence;
+
+		DesktopChangesLoader(Launcher launcher, long sequence) {
+			mLauncher = new WeakReference<Launcher>(launcher);
+			mSequence = sequence;
+		}
+
+		void stop() {
+			mStopped = true;
+		}
+
+		public void run() {
+			final Launcher launcher = mLauncher.get();
+			if (launcher == null || mStopped) {
+				return;
+			}
+
+			android.os.Process
+					.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+
+			final ContentResolver contentResolver = launcher
+					.getContentResolver();
+
+			flushPendingUpdates(launcher);
+
+			final HashMap<Long, Integer> changes = readChanges(contentResolver);
+			if (mStopped) {
+				return;
+			}
+
+			final ArrayList<ItemInfo> items = new ArrayList<ItemInfo>();
+			final ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<LauncherAppWidgetInfo>();
+			long[] changedIds = null;
+
+			if (changes != null
+					&& readChangedItems(launcher, contentResolver, changes,
+							items, appWidgets)) {
+				changedIds = new long[changes.size()];
+				int i = 0;
+				for (Long id : changes.keySet()) {
+					changedIds[i++] = id;
+				}
+			}
+
+			if (DEBUG_LOADERS) {
+				d(LOG_TAG, "  ----> changes loaded up to " + mSequence + ", "
+						+ (changedIds != null ? changedIds.length + " items"
+								: "full reload needed"));
+			}
+
+			final long[] uiChangedIds = changedIds;
+			launcher.runOnUiThread(new Runnable() {
+				public void run() {
+					applyChangedItems(launcher, DesktopChangesLoader.this,
+							uiChangedIds, items, appWidgets);
+				}
+			});
+		}
+
+		/**
+		 * Collapses the change log entries following mSequence into the last
+		 * operation of every item. Returns null if the log does not go back
+		 * far enough or if the whole table was replaced.
+		 */
+		private HashMap<Long, Integer> readChanges(ContentResolver resolver) {
+			final Cursor c = resolver.query(
+					LauncherSettings.FavoritesChangelog.CONTENT_URI,
+					new String[] { LauncherSettings.FavoritesChangelog._ID,
+							LauncherSettings.FavoritesChangelog.ITEM_ID,
+							LauncherSettings.FavoritesChangelog.OPERATION },
+					LauncherSettings.FavoritesChangelog._ID + ">?",
+					new String[] { String.valueOf(mSequence) },
+					LauncherSettings.FavoritesChangelog._ID);
+			if (c == null) {
+				return null;
+			}
+
+			final HashMap<Long, Integer> changes = new HashMap<Long, Integer>();
+			try {
+				long sequence = mSequence;
+				while (c.moveToNext()) {
+					final long entry = c.getLong(0);
+					final int operation = c.getInt(2);
+					if (entry != sequence + 1
+							|| operation == LauncherSettings.FavoritesChangelog.OPERATION_RESET) {
+						return null;
+					}
+					final long id = c.getLong(1);
+					final Integer previous = changes.get(id);
+					// An item inserted then updated is still new
+					if (operation != LauncherSettings.FavoritesChangelog.OPERATION_UPDATE
+							|| previous == null
+							|| previous != LauncherSettings.FavoritesChangelog.OPERATION_INSERT) {
+						changes.put(id, operation);
 					}
+					sequence = entry;
+				}
+				mSequence = sequence;
+			} finally {
+				c.close();
+			}
 
-					if (mLoadApplications) {
-						if (DEBUG_LOADERS) {
-							d(LOG_TAG,
-									"  ----> loading applications from workspace loader");
-						}
-						startApplicationsLoader(launcher, mIsLaunching);
+			return changes;
+		}
+
+		/**
+		 * Reads the current state of the updated items. Returns false if one
+		 * of them can only be handled by a full reload.
+		 */
+		private boolean readChangedItems(Launcher launcher,
+				ContentResolver resolver, HashMap<Long, Integer> changes,
+				ArrayList<ItemInfo> items,
+				ArrayList<LauncherAppWidgetInfo> appWidgets) {
+			final StringBuilder selection = new StringBuilder();
+			for (Long id : changes.keySet()) {
+				if (changes.get(id) == LauncherSettings.FavoritesChangelog.OPERATION_DELETE) {
+					continue;
+				}
+				selection.append(selection.length() == 0 ? "_id IN (" : ",")
+						.append(id);
+			}
+			if (selection.length() == 0) {
+				return true;
+			}
+			selection.append(')');
+
+			final Cursor c = resolver.query(
+					LauncherSettings.Favorites.CONTENT_URI, null,
+					selection.toString(), null, null);
+			if (c == null) {
+				return false;
+			}
+
+			final PackageManager manager = launcher.getPackageManager();
+			try {
+				final FavoritesIndices indices = new FavoritesIndices(c);
+				while (!mStopped && c.moveToNext()) {
+					if (c.getInt(indices.container) != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+						return false;
 					}
 
-					mDesktopItemsLoaded = true;
-				} else {
-					if (DEBUG_LOADERS)
-						d(LOG_TAG, "  ----> worskpace loader was stopped");
+					switch (c.getInt(indices.itemType)) {
+					case LauncherSettings.Favorites.ITEM_TYPE_APPLICATION:
+					case LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT:
+						final int mobjectType = c.getInt(indices.mobjectType);
+						final ItemInfo item;
+						if (mobjectType == MGlobal.MOBJECTTYPE_FURNITURE
+								|| mobjectType == MGlobal.MOBJECTTYPE_AVATAR
+								|| mobjectType == MGlobal.MOBJECTTYPE_WIDGET) {
+							item = loadMobject(c, indices);
+						} else {
+							item = loadShortcut(launcher, manager, c, indices);
+						}
+						if (item != null) {
+							items.add(item);
+						}
+						break;
+					case LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET:
+						final LauncherAppWidgetInfo appWidgetInfo = loadAppWidget(
+								c, indices);
+						if (appWidgetInfo != null) {
+							appWidgets.add(appWidgetInfo);
+						}
+						break;
+					default:
+						// Folders and search widgets are only handled by the
+						// full loader
+						return false;
+					}
 				}
+			} finally {
+				c.close();
 			}
-			mRunning = false;
+
+			return true;
+		}
+	}
+
+	/**
+	 * Column indices of the favorites table.
+	 */
+	private static class FavoritesIndices {
+		final int id;
+		final int intent;
+		final int title;
+		final int iconType;
+		final int icon;
+		final int iconPackage;
+		final int iconResource;
+		final int container;
+		final int itemType;
+		final int appWidgetId;
+		final int screen;
+		final int cellX;
+		final int cellY;
+		final int spanX;
+		final int spanY;
+		final int uri;
+		final int displayMode;
+		final int mobjectType;
+		final int mobjectIcon;
+		final int contactNum;
+		final int contactName;
+		final int reverseIcon;
+
+		FavoritesIndices(Cursor c) {
+			id = c.getColumnIndexOrThrow(LauncherSettings.Favorites._ID);
+			intent = c.getColumnIndexOrThrow(LauncherSettings.Favorites.INTENT);
+			title = c.getColumnIndexOrThrow(LauncherSettings.Favorites.TITLE);
+			iconType = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_TYPE);
+			icon = c.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON);
+			iconPackage = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_PACKAGE);
+			iconResource = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.ICON_RESOURCE);
+			container = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.CONTAINER);
+			itemType = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.ITEM_TYPE);
+			appWidgetId = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.APPWIDGET_ID);
+			screen = c.getColumnIndexOrThrow(LauncherSettings.Favorites.SCREEN);
+			cellX = c.getColumnIndexOrThrow(LauncherSettings.Favorites.CELLX);
+			cellY = c.getColumnIndexOrThrow(LauncherSettings.Favorites.CELLY);
+			spanX = c.getColumnIndexOrThrow(LauncherSettings.Favorites.SPANX);
+			spanY = c.getColumnIndexOrThrow(LauncherSettings.Favorites.SPANY);
+			uri = c.getColumnIndexOrThrow(LauncherSettings.Favorites.URI);
+			displayMode = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.DISPLAY_MODE);
+			mobjectType = c
+					.getColumnIndexOrThrow(LauncherSettings.Favorites.MOBJECT_TYPE);
+			mobjectIcon = c
+					.getColumnIndex(LauncherSettings.Favorites.MOBJECT_ICON);
+			contactNum = c
+					.getColumnIndex(LauncherSettings.Favorites.CONTACT_NUM);
+			contactName = c
+					.getColumnIndex(LauncherSettings.Favorites.CONTACT_NAME);
+			reverseIcon = c
+					.getColumnIndex(LauncherSettings.Favorites.REVERSE_ICON);
+		}
+	}
+
+	/**
+	 * Makes a Mobject (furniture, avatar or widget) from the current row.
+	 * Returns null if the row's intent is malformed.
+	 */
+	private static Mobject loadMobject(Cursor c, FavoritesIndices indices) {
+		final Mobject appinfo = new Mobject();
+		final String intentDescription = c.getString(indices.intent);
+		if (intentDescription != null) {
+			try {
+				appinfo.intent = Intent.parseUri(intentDescription, 0);
+			} catch (java.net.URISyntaxException e) {
+				return null;
+			}
+		} else
+			appinfo.intent = null;
+
+		appinfo.contact_num = c.getString(indices.contactNum);
+		appinfo.contact_name = c.getString(indices.contactName);
+
+		appinfo.mobjectIcon = c.getInt(indices.mobjectIcon);
+		appinfo.title = c.getString(indices.title);
+		appinfo.id = c.getLong(indices.id);
+		appinfo.container = c.getInt(indices.container);
+		appinfo.screen = c.getInt(indices.screen);
+		appinfo.cellX = c.getInt(indices.cellX);
+		appinfo.cellY = c.getInt(indices.cellY);
+		appinfo.mobjectType = c.getInt(indices.mobjectType);
+		appinfo.reverseIcon = c.getInt(indices.reverseIcon);
+		return appinfo;
+	}
+
+	/**
+	 * Makes an ApplicationInfo for the application or shortcut of the current
+	 * row, icon included. Returns null if the row's intent is malformed.
+	 */
+	private ApplicationInfo loadShortcut(Launcher launcher,
+			PackageManager manager, Cursor c, FavoritesIndices indices) {
+		final ApplicationInfo info = loadShortcutInfo(c, indices);
+		if (info == null) {
+			return null;
+		}
+		return new ShortcutIconTask(launcher, manager, info, c, indices).call();
+	}
+
+	/**
+	 * Makes an ApplicationInfo for the application or shortcut of the current
+	 * row, without its icon. Returns null if the row's intent is malformed.
+	 */
+	private static ApplicationInfo loadShortcutInfo(Cursor c,
+			FavoritesIndices indices) {
+		final Intent intent;
+		try {
+			intent = Intent.parseUri(c.getString(indices.intent), 0);
+		} catch (java.net.URISyntaxException e) {
+			return null;
+		}
+
+		final ApplicationInfo info = new ApplicationInfo();
+		info.title = c.getString(indices.title);
+		info.intent = intent;
+
+		info.id = c.getLong(indices.id);
+		info.container = c.getInt(indices.container);
+		info.screen = c.getInt(indices.screen);
+		info.cellX = c.getInt(indices.cellX);
+		info.cellY = c.getInt(indices.cellY);
+
+		info.mobjectType = c.getInt(indices.mobjectType);
+		info.mobjectIcon = c.getInt(indices.mobjectIcon);
+		info.reverseIcon = c.getInt(indices.reverseIcon);
+		return info;
+	}
+
+	/**
+	 * Loads the icon of an application or shortcut. Everything it needs is
+	 * read from the cursor up front so it can run on any thread once the
+	 * cursor has moved on.
+	 */
+	private class ShortcutIconTask implements Callable<ApplicationInfo> {
+		private final Context mContext;
+		private final PackageManager mManager;
+		private final ApplicationInfo mInfo;
+		private final int mItemType;
+		private final int mIconType;
+		private final String mIconPackage;
+		private final String mIconResource;
+		private final byte[] mIconData;
+
+		ShortcutIconTask(Context context, PackageManager manager,
+				ApplicationInfo info, Cursor c, FavoritesIndices indices) {
+			mContext = context;
+			mManager = manager;
+			mInfo = info;
+			mItemType = c.getInt(indices.itemType);
+			mIconType = c.getInt(indices.iconType);
+			mIconPackage = c.getString(indices.iconPackage);
+			mIconResource = c.getString(indices.iconResource);
+			mIconData = mItemType != LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+					&& mIconType == LauncherSettings.Favorites.ICON_TYPE_BITMAP ? c
+					.getBlob(indices.icon) : null;
+		}
+
+		public ApplicationInfo call() {
+			final ApplicationInfo info = mInfo;
+
+			final ApplicationInfo loaded;
+			if (mItemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION) {
+				loaded = getApplicationInfo(mManager, info.intent, mContext);
+			} else {
+				loaded = getApplicationInfoShortcut(mContext, mIconType,
+						mIconPackage, mIconResource, mIconData);
+			}
+
+			if (loaded == null) {
+				info.icon = mManager.getDefaultActivityIcon();
+			} else {
+				info.icon = loaded.icon;
+				info.itemType = loaded.itemType;
+				info.iconResource = loaded.iconResource;
+				info.customIcon = loaded.customIcon;
+				info.filtered = loaded.filtered;
+			}
+			return info;
 		}
 	}
 
+	/**
+	 * Makes a LauncherAppWidgetInfo from the current row. Returns null if the
+	 * widget is not on the desktop.
+	 */
+	private static LauncherAppWidgetInfo loadAppWidget(Cursor c,
+			FavoritesIndices indices) {
+		// Read all Launcher-specific widget details
+		int appWidgetId = c.getInt(indices.appWidgetId);
+		final LauncherAppWidgetInfo appWidgetInfo = new LauncherAppWidgetInfo(
+				appWidgetId);
+		appWidgetInfo.id = c.getLong(indices.id);
+		appWidgetInfo.screen = c.getInt(indices.screen);
+		appWidgetInfo.cellX = c.getInt(indices.cellX);
+		appWidgetInfo.cellY = c.getInt(indices.cellY);
+		appWidgetInfo.spanX = c.getInt(indices.spanX);
+		appWidgetInfo.spanY = c.getInt(indices.spanY);
+
+		final int container = c.getInt(indices.container);
+		if (container != LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+			e(Launcher.LOG_TAG, "Widget found where container "
+					+ "!= CONTAINER_DESKTOP -- ignoring!");
+			return null;
+		}
+		appWidgetInfo.container = container;
+		return appWidgetInfo;
+	}
+
 	private static void loadLiveFolderIcon(Launcher launcher, Cursor c,
 			int iconTypeIndex, int iconPackageIndex, int iconResourceIndex,
 			LiveFolderInfo liveFolderInfo) {
@@ -1364,6 +2093,17 @@ public class LauncherModel {
 		return mApplicationsAdapter;
 	}
 
+	/**
+	 * Returns the catalog of the applications shown in the drawer.
+	 */
+	AppCatalog getAppCatalog() {
+		final ApplicationsAdapter adapter = mApplicationsAdapter;
+		if (adapter == null) {
+			return new AppCatalog(new ArrayList<ItemInfo>(0));
+		}
+		return adapter.getCatalog();
+	}
+
 	/**
 	 * Add an item to the desktop
 	 * 
@@ -1432,18 +2172,14 @@ public class LauncherModel {
 	/**
 	 * Make an ApplicationInfo object for a sortcut
 	 */
-	private ApplicationInfo getApplicationInfoShortcut(Cursor c,
-			Context context, int iconTypeIndex, int iconPackageIndex,
-			int iconResourceIndex, int iconIndex) {
+	private static ApplicationInfo getApplicationInfoShortcut(Context context,
+			int iconType, String packageName, String resourceName, byte[] data) {
 
 		final ApplicationInfo info = new ApplicationInfo();
 		info.itemType = LauncherSettings.Favorites.ITEM_TYPE_SHORTCUT;
 
-		int iconType = c.getInt(iconTypeIndex);
 		switch (iconType) {
 		case LauncherSettings.Favorites.ICON_TYPE_RESOURCE:
-			String packageName = c.getString(iconPackageIndex);
-			String resourceName = c.getString(iconResourceIndex);
 			PackageManager packageManager = context.getPackageManager();
 			try {
 				Resources resources = packageManager
@@ -1461,7 +2197,6 @@ public class LauncherModel {
 			info.customIcon = false;
 			break;
 		case LauncherSettings.Favorites.ICON_TYPE_BITMAP:
-			byte[] data = c.getBlob(iconIndex);
 			try {
 				Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0,
 						data.length);
@@ -1528,15 +2263,75 @@ public class LauncherModel {
 		item.cellY = cellY;
 
 		final ContentValues values = new ContentValues();
-		final ContentResolver cr = context.getContentResolver();
 
 		values.put(LauncherSettings.Favorites.CONTAINER, item.container);
 		values.put(LauncherSettings.Favorites.CELLX, item.cellX);
 		values.put(LauncherSettings.Favorites.CELLY, item.cellY);
 		values.put(LauncherSettings.Favorites.SCREEN, item.screen);	
 
-		cr.update(LauncherSettings.Favorites.getContentUri(item.id, false),
-				values, null, null);
+		queueItemUpdate(context, item.id, values);
+	}
+
+	/**
+	 * Queues an update of the columns of a favorites item. The updates of an
+	 * item are merged, and the queue is written in a single transaction
+	 * shortly after, or by {@link #flushPendingUpdates}.
+	 */
+	static void queueItemUpdate(Context context, long id, ContentValues values) {
+		final Context appContext = context.getApplicationContext();
+		synchronized (sPendingUpdates) {
+			final ContentValues pending = sPendingUpdates.get(id);
+			if (pending != null)
+				pending.putAll(values);
+			else
+				sPendingUpdates.put(id, new ContentValues(values));
+
+			if (!sFlushScheduled) {
+				sFlushScheduled = true;
+				sFavoritesWriter.postDelayed(new Runnable() {
+					public void run() {
+						flushPendingUpdates(appContext);
+					}
+				}, FAVORITES_FLUSH_DELAY);
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued favorites updates now, on the calling thread. Called
+	 * when the launcher pauses so no update is lost if the process is killed,
+	 * and before the favorites are read again.
+	 */
+	static void flushPendingUpdates(Context context) {
+		// Batches are written one at a time so they land in queue order
+		synchronized (sFlushLock) {
+			final ArrayList<ContentProviderOperation> ops;
+			synchronized (sPendingUpdates) {
+				sFlushScheduled = false;
+				if (sPendingUpdates.isEmpty())
+					return;
+
+				ops = new ArrayList<ContentProviderOperation>(sPendingUpdates
+						.size());
+				for (Map.Entry<Long, ContentValues> entry : sPendingUpdates
+						.entrySet()) {
+					ops.add(ContentProviderOperation.newUpdate(
+							LauncherSettings.Favorites.getContentUri(
+									entry.getKey(), false)).withValues(
+							entry.getValue()).build());
+				}
+				sPendingUpdates.clear();
+			}
+
+			try {
+				context.getContentResolver().applyBatch(
+						LauncherProvider.AUTHORITY, ops);
+			} catch (RemoteException e) {
+				w(LOG_TAG, "Could not write " + ops.size() + " favorites updates", e);
+			} catch (OperationApplicationException e) {
+				w(LOG_TAG, "Could not write " + ops.size() + " favorites updates", e);
+			}
+		}
 	}
 
 	/**
@@ -1641,12 +2436,10 @@ public class LauncherModel {
 	 */
 	static void updateItemInDatabase(Context context, ItemInfo item) {
 		final ContentValues values = new ContentValues();
-		final ContentResolver cr = context.getContentResolver();
 
 		item.onAddToDatabase(values);
 
-		cr.update(LauncherSettings.Favorites.getContentUri(item.id, false),
-				values, null, null);
+		queueItemUpdate(context, item.id, values);
 	}
 
 	/**
@@ -1658,6 +2451,10 @@ public class LauncherModel {
 	static void deleteItemFromDatabase(Context context, ItemInfo item) {
 		final ContentResolver cr = context.getContentResolver();
 
+		synchronized (sPendingUpdates) {
+			sPendingUpdates.remove(item.id);
+		}
+
 		cr.delete(LauncherSettings.Favorites.getContentUri(item.id, false),
 				null, null);
 	}
@@ -20,16 +20,20 @@ import static android.util.Log.w;
 
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 
 import mobi.intuitit.android.mate.launcher.LauncherSettings.Favorites;
 import android.appwidget.AppWidgetHost;
 import android.content.ComponentName;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
@@ -51,7 +55,7 @@ public class LauncherProvider extends ContentProvider {
 
 	private static final String DATABASE_NAME = "launcher.db";
 
-	private static final int DATABASE_VERSION = 4;
+	private static final int DATABASE_VERSION = 5;
 
 	static final String AUTHORITY = "mobi.intuitit.android.mate.launcher.settings";
 
@@ -60,10 +64,17 @@ public class LauncherProvider extends ContentProvider {
 
 	static final String TABLE_FAVORITES = "favorites";
 	static final String TABLE_GESTURES = "gestures";
+	static final String TABLE_FAVORITES_CHANGELOG = "favorites_changelog";
 	static final String PARAMETER_NOTIFY = "notify";
 
 	static final String TABLE_MSCREENS = "mscreens";
 
+	/**
+	 * Number of entries kept in the favorites change log. Readers that are
+	 * further behind have to reload the whole favorites table.
+	 */
+	private static final int CHANGELOG_LIMIT = 256;
+
 	/**
 	 * {@link Uri} triggered at any registered
 	 * {@link android.database.ContentObserver} when
@@ -75,6 +86,12 @@ public class LauncherProvider extends ContentProvider {
 
 	public static SQLiteOpenHelper mOpenHelper;
 
+	/**
+	 * Notifications held until the batch applied by the thread ends, null
+	 * outside of a batch.
+	 */
+	private final ThreadLocal<LinkedHashSet<Uri>> mBatchNotifications = new ThreadLocal<LinkedHashSet<Uri>>();
+
 	@Override
 	public boolean onCreate() {
 		mOpenHelper = new DatabaseHelper(getContext());
@@ -112,7 +129,23 @@ public class LauncherProvider extends ContentProvider {
 		SqlArguments args = new SqlArguments(uri);
 
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		final long rowId = db.insert(args.table, null, initialValues);
+		final long rowId;
+		if (isLogged(uri, args)) {
+			db.beginTransaction();
+			try {
+				rowId = db.insert(args.table, null, initialValues);
+				if (rowId > 0) {
+					logFavoritesChange(db, rowId,
+							LauncherSettings.FavoritesChangelog.OPERATION_INSERT);
+					trimFavoritesChangelog(db);
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} else {
+			rowId = db.insert(args.table, null, initialValues);
+		}
 		if (rowId <= 0)
 			return null;
 
@@ -127,13 +160,20 @@ public class LauncherProvider extends ContentProvider {
 		SqlArguments args = new SqlArguments(uri);
 
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+		final boolean logChanges = isLogged(uri, args);
 		db.beginTransaction();
 		try {
 			int numValues = values.length;
 			for (int i = 0; i < numValues; i++) {
-				if (db.insert(args.table, null, values[i]) < 0)
+				final long rowId = db.insert(args.table, null, values[i]);
+				if (rowId < 0)
 					return 0;
+				if (logChanges)
+					logFavoritesChange(db, rowId,
+							LauncherSettings.FavoritesChangelog.OPERATION_INSERT);
 			}
+			if (logChanges)
+				trimFavoritesChangelog(db);
 			db.setTransactionSuccessful();
 		} finally {
 			db.endTransaction();
@@ -143,6 +183,34 @@ public class LauncherProvider extends ContentProvider {
 		return values.length;
 	}
 
+	/**
+	 * Applies the operations in a single transaction, and sends the change
+	 * notifications once the whole batch is written, once per URI.
+	 */
+	@Override
+	public ContentProviderResult[] applyBatch(
+			ArrayList<ContentProviderOperation> operations)
+			throws OperationApplicationException {
+		final LinkedHashSet<Uri> notifications = new LinkedHashSet<Uri>();
+		final ContentProviderResult[] results;
+
+		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+		mBatchNotifications.set(notifications);
+		db.beginTransaction();
+		try {
+			results = super.applyBatch(operations);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+			mBatchNotifications.set(null);
+		}
+
+		for (Uri uri : notifications) {
+			getContext().getContentResolver().notifyChange(uri, null);
+		}
+		return results;
+	}
+
 	public void delete_table() {
 		// DB Table ʵ 
 		Uri uri = Uri.parse("content://" + LauncherProvider.AUTHORITY + "/"
@@ -151,7 +219,15 @@ public class LauncherProvider extends ContentProvider {
 
 		String table = uri.getPathSegments().get(0);
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		db.delete(table, null, null);
+		db.beginTransaction();
+		try {
+			db.delete(table, null, null);
+			logFavoritesChange(db, ItemInfo.NO_ID,
+					LauncherSettings.FavoritesChangelog.OPERATION_RESET);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
 		sendNotify(uri);
 
 		// ȭ鿡  
@@ -170,7 +246,24 @@ public class LauncherProvider extends ContentProvider {
 		SqlArguments args = new SqlArguments(uri, selection, selectionArgs);
 
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		int count = db.delete(args.table, args.where, args.args);
+		int count;
+		if (isLogged(uri, args)) {
+			db.beginTransaction();
+			try {
+				final long[] ids = queryIds(db, args);
+				count = db.delete(args.table, args.where, args.args);
+				for (long id : ids) {
+					logFavoritesChange(db, id,
+							LauncherSettings.FavoritesChangelog.OPERATION_DELETE);
+				}
+				trimFavoritesChangelog(db);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} else {
+			count = db.delete(args.table, args.where, args.args);
+		}
 		if (count > 0)
 			sendNotify(uri);
 
@@ -183,17 +276,91 @@ public class LauncherProvider extends ContentProvider {
 		SqlArguments args = new SqlArguments(uri, selection, selectionArgs);
 
 		SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-		int count = db.update(args.table, values, args.where, args.args);
+		int count;
+		if (isLogged(uri, args)) {
+			db.beginTransaction();
+			try {
+				final long[] ids = queryIds(db, args);
+				count = db.update(args.table, values, args.where, args.args);
+				for (long id : ids) {
+					logFavoritesChange(db, id,
+							LauncherSettings.FavoritesChangelog.OPERATION_UPDATE);
+				}
+				trimFavoritesChangelog(db);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} else {
+			count = db.update(args.table, values, args.where, args.args);
+		}
 		if (count > 0)
 			sendNotify(uri);
 
 		return count;
 	}
 
+	/**
+	 * Returns true if the changes made through the specified URI go to the
+	 * favorites change log. Writes made without notification are the
+	 * launcher's own, already shown by its views, so they are not replayed by
+	 * the change log readers.
+	 */
+	private static boolean isLogged(Uri uri, SqlArguments args) {
+		if (!TABLE_FAVORITES.equals(args.table)) {
+			return false;
+		}
+		final String notify = uri.getQueryParameter(PARAMETER_NOTIFY);
+		return notify == null || "true".equals(notify);
+	}
+
+	/**
+	 * Returns the ids of the rows matched by the specified arguments.
+	 */
+	private static long[] queryIds(SQLiteDatabase db, SqlArguments args) {
+		final Cursor c = db.query(args.table,
+				new String[] { LauncherSettings.Favorites._ID }, args.where,
+				args.args, null, null, null);
+		try {
+			final long[] ids = new long[c.getCount()];
+			int i = 0;
+			while (c.moveToNext()) {
+				ids[i++] = c.getLong(0);
+			}
+			return ids;
+		} finally {
+			c.close();
+		}
+	}
+
+	/**
+	 * Appends an entry to the favorites change log. Must be called in the
+	 * transaction that changes the favorites table.
+	 */
+	private static void logFavoritesChange(SQLiteDatabase db, long itemId,
+			int operation) {
+		final ContentValues values = new ContentValues(2);
+		values.put(LauncherSettings.FavoritesChangelog.ITEM_ID, itemId);
+		values.put(LauncherSettings.FavoritesChangelog.OPERATION, operation);
+		db.insert(TABLE_FAVORITES_CHANGELOG, null, values);
+	}
+
+	private static void trimFavoritesChangelog(SQLiteDatabase db) {
+		db.delete(TABLE_FAVORITES_CHANGELOG, LauncherSettings.FavoritesChangelog._ID
+				+ "<=(SELECT MAX(" + LauncherSettings.FavoritesChangelog._ID
+				+ ") FROM " + TABLE_FAVORITES_CHANGELOG + ")-" + CHANGELOG_LIMIT,
+				null);
+	}
+
 	private void sendNotify(Uri uri) {
 		String notify = uri.getQueryParameter(PARAMETER_NOTIFY);
 		if (notify == null || "true".equals(notify)) {
-			getContext().getContentResolver().notifyChange(uri, null);
+			final LinkedHashSet<Uri> notifications = mBatchNotifications.get();
+			if (notifications != null) {
+				notifications.add(uri);
+			} else {
+				getContext().getContentResolver().notifyChange(uri, null);
+			}
 		}
 	}
 
@@ -248,6 +415,8 @@ public class LauncherProvider extends ContentProvider {
 					+ "iconType INTEGER," + "iconPackage TEXT,"
 					+ "iconResource TEXT," + "icon BLOB" + ");");
 
+			createFavoritesChangelog(db);
+
 			// Database was just created, so wipe any previous widgets
 			if (mAppWidgetHost != null) {
 				mAppWidgetHost.deleteHost();
@@ -450,14 +619,34 @@ public class LauncherProvider extends ContentProvider {
 				}
 			}
 
+			if (version < 5) {
+				db.beginTransaction();
+				try {
+					createFavoritesChangelog(db);
+					db.setTransactionSuccessful();
+					version = 5;
+				} catch (SQLException ex) {
+					// Old version remains, which means we wipe old data
+					Log.e(LOG_TAG, ex.getMessage(), ex);
+				} finally {
+					db.endTransaction();
+				}
+			}
 			if (version != DATABASE_VERSION) {
 				Log.w(LOG_TAG, "Destroying all old data.");
 				db.execSQL("DROP TABLE IF EXISTS " + TABLE_FAVORITES);
 				db.execSQL("DROP TABLE IF EXISTS " + TABLE_GESTURES);
+				db.execSQL("DROP TABLE IF EXISTS " + TABLE_FAVORITES_CHANGELOG);
 				onCreate(db);
 			}
 		}
 
+		private void createFavoritesChangelog(SQLiteDatabase db) {
+			db.execSQL("CREATE TABLE favorites_changelog ("
+					+ "_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+					+ "itemId INTEGER," + "operation INTEGER" + ");");
+		}
+
 		/**
 		 * Upgrade existing clock and photo frame widgets into their new widget
 		 * equivalents. This method allocates appWidgetIds, and then hands off
@@ -241,4 +241,30 @@ public class LauncherSettings {
         static final String CONTACT_NAME = "contact_name";
         static final String REVERSE_ICON = "reverseIcon";
     }
+
+    /**
+     * Log of the rows changed in the favorites table. Every entry is numbered
+     * by its _ID, so a reader can ask for the changes made since the last
+     * entry it has seen.
+     */
+    static final class FavoritesChangelog implements BaseColumns {
+        static final Uri CONTENT_URI = Uri.parse("content://" +
+                LauncherProvider.AUTHORITY + "/" + LauncherProvider.TABLE_FAVORITES_CHANGELOG +
+                "?" + LauncherProvider.PARAMETER_NOTIFY + "=false");
+
+        static final String ITEM_ID = "itemId";
+
+        static final String OPERATION = "operation";
+
+        static final int OPERATION_UPDATE = 0;
+
+        static final int OPERATION_DELETE = 1;
+
+        /**
+         * The whole favorites table was replaced, ITEM_ID is not set.
+         */
+        static final int OPERATION_RESET = 2;
+
+        static final int OPERATION_INSERT = 3;
+    }
 }
@@ -3,24 +3,39 @@ package mobi.intuitit.android.mate.launcher;
 import java.util.ArrayList;
 
 import mobi.intuitit.android.widget.WidgetCellLayout;
+import android.appwidget.AppWidgetHostView;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.view.ContextMenu;
 import android.view.View;
 import android.view.ViewDebug;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
 abstract public class LayoutType extends WidgetCellLayout {
+	private boolean mThumbDirty = true;
+
+	private final OnHierarchyChangeListener mThumbChildrenListener = new OnHierarchyChangeListener() {
+		public void onChildViewAdded(View parent, View child) {
+			mThumbDirty = true;
+		}
+
+		public void onChildViewRemoved(View parent, View child) {
+			mThumbDirty = true;
+		}
+	};
 
 	public LayoutType(Context context) {
 		super(context);
-		// TODO Auto-generated constructor stub
+		setOnHierarchyChangeListener(mThumbChildrenListener);
 	}
 
 	public LayoutType(Context context, AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
+		setOnHierarchyChangeListener(mThumbChildrenListener);
 	}
 
 	abstract int getCountX();
@@ -31,9 +46,38 @@ abstract public class LayoutType extends WidgetCellLayout {
 
 	abstract int[] rectToCell(int width, int height);
 
-	abstract void saveThumb();
+	/**
+	 * Returns true if the screen changed since its thumbnail was last drawn
+	 * by {@link ScreenThumbnails}: it was resized, a child was added, removed
+	 * or redrawn, or its background was replaced.
+	 */
+	boolean isThumbDirty() {
+		return mThumbDirty;
+	}
+
+	void setThumbDirty(boolean dirty) {
+		mThumbDirty = dirty;
+	}
+
+	@Override
+	public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+		// Moved children are invalidated too
+		mThumbDirty = true;
+		return super.invalidateChildInParent(location, dirty);
+	}
 
-	abstract Bitmap getThumb();
+	@Override
+	public void setBackgroundDrawable(Drawable d) {
+		super.setBackgroundDrawable(d);
+		mThumbDirty = true;
+	}
+
+	/**
+	 * Returns the config of the thumbnails of this screen.
+	 */
+	Bitmap.Config getThumbConfig() {
+		return Bitmap.Config.ARGB_4444;
+	}
 
 	abstract CellInfo findAllVacantCells(boolean[] occupiedCells,
 			View ignoreView);
@@ -44,6 +88,42 @@ abstract public class LayoutType extends WidgetCellLayout {
 	@Override
 	protected abstract void setChildrenDrawingCacheEnabled(boolean enabled);
 
+	@Override
+	public void onViewportIn() {
+		setWidgetsActive(true);
+		super.onViewportIn();
+	}
+
+	@Override
+	public void onViewportOut() {
+		super.onViewportOut();
+		setWidgetsActive(false);
+	}
+
+	/**
+	 * Widgets bound to a screen never shown, or dropped on this one after
+	 * being dragged off theirs, start in the state of this screen.
+	 */
+	@Override
+	protected void onWidgetAdded(AppWidgetHostView widgetView) {
+		super.onWidgetAdded(widgetView);
+		if (widgetView instanceof LauncherAppWidgetHostView)
+			((LauncherAppWidgetHostView) widgetView).setActive(isCurrentScreen());
+	}
+
+	/**
+	 * Lets the widgets of this screen apply their updates, or hold them while
+	 * the screen is out of the viewport. Off screen, the workspace draws the
+	 * widgets from their drawing cache as they were last shown.
+	 */
+	private void setWidgetsActive(boolean active) {
+		for (int i = getChildCount() - 1; i >= 0; i--) {
+			final View child = getChildAt(i);
+			if (child instanceof LauncherAppWidgetHostView)
+				((LauncherAppWidgetHostView) child).setActive(active);
+		}
+	}
+
 	@Override
 	protected void setChildrenDrawnWithCacheEnabled(boolean enabled) {
 		super.setChildrenDrawnWithCacheEnabled(enabled);
@@ -101,6 +181,13 @@ abstract public class LayoutType extends WidgetCellLayout {
 
 		boolean regenerateId;
 
+		// Area counted in the occupancy grid of a CellLayout, if any
+		boolean occupying;
+		int occupiedX;
+		int occupiedY;
+		int occupiedSpanX;
+		int occupiedSpanY;
+
 		public LayoutParams(Context c, AttributeSet attrs) {
 			super(c, attrs);
 			cellHSpan = 1;
@@ -6,8 +6,11 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
 import android.graphics.Shader.TileMode;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
@@ -25,11 +28,6 @@ public class MBackground {
 	private Bitmap mBitmap;
 	private Paint mPaint;
 	private Paint mStrokePaint;
-	private Path mPath;
-	private int mWidth;
-	private int mHeight;
-
-	private float mWallPoint;
 
 	private MBackground() {
 		mBackList = new Vector<MBack>();
@@ -74,29 +72,21 @@ public class MBackground {
 		return mBackground;
 	}
 	
-	public Drawable getBackground(int argWidth, int argHeight, int argIdx) {
-		
-		mPath = new Path();
-
-		this.mWidth = argWidth;
-		this.mHeight = argHeight;
-		mWallPoint = (float) (mHeight / 2 + (mWidth / 2) / 1.7);
-		
-		Bitmap bitmap = Bitmap.createBitmap(argWidth,
-				argHeight, Bitmap.Config.ARGB_8888);
-		Canvas canvas = new Canvas(bitmap);
-		Paint paint = new Paint();
-		
-		paint.setColor(mBackList.get(argIdx).leftRGB);
-		canvas.drawPath(mBackground.getLeftPath(), paint);
-		
-		paint.setColor(mBackList.get(argIdx).rightRGB);
-		canvas.drawPath(mBackground.getRightPath(), paint);
-
-		paint.setColor(mBackList.get(argIdx).bottomRGB);
-		canvas.drawPath(mBackground.getBottomPath(), paint);
+	/**
+	 * Returns the room background of the specified index. The walls and the
+	 * floor are drawn as polygons fitted to the bounds of the drawable, so the
+	 * same drawable works for any screen size and no bitmap is allocated.
+	 */
+	public Drawable getBackground(int argIdx) {
+		return new RoomDrawable(mBackList.get(argIdx), argIdx);
+	}
 
-		return (Drawable) (new BitmapDrawable(bitmap));
+	/**
+	 * Returns true if the drawable is a room background of the specified
+	 * index.
+	 */
+	public static boolean isBackground(Drawable d, int argIdx) {
+		return d instanceof RoomDrawable && ((RoomDrawable) d).mIdx == argIdx;
 	}
 
 	public void setBitmap(BitmapDrawable bd) {
@@ -107,44 +97,85 @@ public class MBackground {
 				TileMode.REPEAT));
 	}
 
-	public Path getLeftPath() {
-		mPath.reset();
-
-		mPath.moveTo(0, 0);
-		mPath.lineTo(mWidth / 2, 0);
-		mPath.lineTo(mWidth / 2, mHeight / 2);
-		mPath.lineTo(0, mWallPoint);
-		mPath.lineTo(0, 0);
-
-		return mPath;
-	}
-
-	public Path getRightPath() {
-		mPath.reset();
-
-		mPath.moveTo(mWidth / 2, 0);
-		mPath.lineTo(mWidth / 2, mHeight / 2);
-		mPath.lineTo(mWidth, mWallPoint);
-		mPath.lineTo(mWidth, 0);
-		mPath.lineTo(mWidth / 2, 0);
-
-		return mPath;
-	}
-
-	public Path getBottomPath() {
-		mPath.reset();
-
-		mPath.moveTo(0, mWallPoint);
-		mPath.lineTo(mWidth / 2, mHeight / 2);
-		mPath.lineTo(mWidth, mWallPoint);
-		mPath.lineTo(mWidth, mHeight);
-		mPath.lineTo(0, mHeight);
-		mPath.lineTo(0, mWallPoint);
-
-		return mPath;
+	/**
+	 * Left wall, right wall and floor of a room, laid out again only when
+	 * the bounds change.
+	 */
+	static class RoomDrawable extends Drawable {
+		private final MBack mBack;
+		private final int mIdx;
+		private final Paint mPaint = new Paint();
+		private final Path mLeftPath = new Path();
+		private final Path mRightPath = new Path();
+		private final Path mBottomPath = new Path();
+
+		RoomDrawable(MBack back, int idx) {
+			mBack = back;
+			mIdx = idx;
+		}
+
+		@Override
+		protected void onBoundsChange(Rect bounds) {
+			final int left = bounds.left;
+			final int top = bounds.top;
+			final int width = bounds.width();
+			final int height = bounds.height();
+			final float wallPoint = top + (float) (height / 2 + (width / 2) / 1.7);
+			final float centerX = left + width / 2;
+			final float centerY = top + height / 2;
+
+			mLeftPath.reset();
+			mLeftPath.moveTo(left, top);
+			mLeftPath.lineTo(centerX, top);
+			mLeftPath.lineTo(centerX, centerY);
+			mLeftPath.lineTo(left, wallPoint);
+			mLeftPath.close();
+
+			mRightPath.reset();
+			mRightPath.moveTo(centerX, top);
+			mRightPath.lineTo(centerX, centerY);
+			mRightPath.lineTo(bounds.right, wallPoint);
+			mRightPath.lineTo(bounds.right, top);
+			mRightPath.close();
+
+			mBottomPath.reset();
+			mBottomPath.moveTo(left, wallPoint);
+			mBottomPath.lineTo(centerX, centerY);
+			mBottomPath.lineTo(bounds.right, wallPoint);
+			mBottomPath.lineTo(bounds.right, bounds.bottom);
+			mBottomPath.lineTo(left, bounds.bottom);
+			mBottomPath.close();
+		}
+
+		@Override
+		public void draw(Canvas canvas) {
+			mPaint.setColor(mBack.leftRGB);
+			canvas.drawPath(mLeftPath, mPaint);
+
+			mPaint.setColor(mBack.rightRGB);
+			canvas.drawPath(mRightPath, mPaint);
+
+			mPaint.setColor(mBack.bottomRGB);
+			canvas.drawPath(mBottomPath, mPaint);
+		}
+
+		@Override
+		public int getOpacity() {
+			return PixelFormat.OPAQUE;
+		}
+
+		@Override
+		public void setAlpha(int alpha) {
+			mPaint.setAlpha(alpha);
+		}
+
+		@Override
+		public void setColorFilter(ColorFilter cf) {
+			mPaint.setColorFilter(cf);
+		}
 	}
 
-	class MBack {
+	static class MBack {
 		int resId;
 		int leftRGB;
 		int rightRGB;
@@ -3,6 +3,9 @@ package mobi.intuitit.android.mate.launcher;
 import java.util.HashMap;
 import java.util.Vector;
 
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+
 public class MImageList {
 
 	public Vector<Integer> backgroundList;
@@ -135,4 +138,13 @@ public class MImageList {
 			return -1;
 		}
 	}
+
+	/**
+	 * Returns the drawable of a mobject icon, mirrored if reversed. Mirrored
+	 * icons are drawn from the same bitmap as the others.
+	 */
+	public Drawable getIconDrawable(Resources res, int resType, int resIdx, boolean reversed) {
+		final Drawable d = res.getDrawable(getIcon(resType, resIdx));
+		return reversed ? new MirroredDrawable(d) : d;
+	}
 }
@@ -7,14 +7,10 @@ import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
@@ -24,8 +20,8 @@ import android.widget.ImageView.ScaleType;
 public class MLayout extends LayoutType {
 	private boolean mPortrait;
 
-	private final Rect mRect = new Rect();
 	private final CellInfo mCellInfo = new CellInfo();
+	private final MobjectGrid mGrid = new MobjectGrid();
 
 	int[] mCellXY = new int[2];
 
@@ -269,29 +265,19 @@ public class MLayout extends LayoutType {
 		final CellInfo cellInfo = mCellInfo;
 
 		if (action == MotionEvent.ACTION_DOWN) {
-			final Rect frame = mRect;
 			final int x = (int) ev.getX() + getScrollX();
 			final int y = (int) ev.getY() + getScrollY();
-			final int count = getChildCount();
 
 			boolean found = false;
-			for (int i = count - 1; i >= 0; i--) {
-				final View child = getChildAt(i);
-
-				if ((child.getVisibility()) == VISIBLE
-						|| child.getAnimation() != null) {
-					child.getHitRect(frame);
-					if (frame.contains(x, y)) {
-						final LayoutParams lp = (LayoutParams) child
-								.getLayoutParams();
-						cellInfo.cell = child;
-						cellInfo.cellX = lp.cellX;
-						cellInfo.cellY = lp.cellX;
-						cellInfo.valid = true;
-						found = true;
-						break;
-					}
-				}
+			final View child = mGrid.hitTest(this, x, y);
+			if (child != null) {
+				final LayoutParams lp = (LayoutParams) child
+						.getLayoutParams();
+				cellInfo.cell = child;
+				cellInfo.cellX = lp.cellX;
+				cellInfo.cellY = lp.cellX;
+				cellInfo.valid = true;
+				found = true;
 			}
 
 			if (!found) {
@@ -358,6 +344,8 @@ public class MLayout extends LayoutType {
 	protected void onLayout(boolean changed, int l, int t, int r, int b) {
 		int count = getChildCount();
 
+		mGrid.reset(r - l, b - t);
+
 		for (int i = 0; i < count; i++) {
 			View child = getChildAt(i);
 
@@ -381,6 +369,7 @@ public class MLayout extends LayoutType {
 					childBottom = childTop + lp.height;
 
 				child.layout(childLeft, childTop, childRight, childBottom);
+				mGrid.add(child, childLeft, childTop, childRight, childBottom);
 
 				if (mSpeechBubbleMap.containsKey(child)) {
 					setSpeechBubbleLayout((MobjectImageView) child);
@@ -390,52 +379,14 @@ public class MLayout extends LayoutType {
 		}
 
 		loadMBackground();
+		if (changed)
+			setThumbDirty(true);
 	}
 
-	Bitmap mThumb;
-	private Canvas mThumbCanvas;
-	private Paint mThumbPaint;
-
-	boolean layoutDrawed = false;
-
-	private void initThumb(int width, int height) {
-		if (mThumb == null || mThumb.isRecycled())
-			mThumb = Bitmap
-					.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-
-		Matrix matrix = new Matrix();
-		matrix.setScale(0.25f, 0.25f);
-		mThumbCanvas = new Canvas(mThumb);
-		mThumbCanvas.concat(matrix);
-
-		mThumbPaint = new Paint();
-		mThumbPaint.setDither(true);
-		mThumbPaint.setAntiAlias(true);
-	}
-
-	synchronized void saveThumb() {
-		// if (layoutDrawed) ����, �ٴ� �ٲ�� ����� ����
-		// return;
-
-		if (mThumbCanvas == null)
-			initThumb(getWidth() >> 2, getHeight() >> 2);
-
-		setDrawingCacheEnabled(true);
-
-		// Get bitmap
-		Bitmap bmp = getDrawingCache();
-		if (bmp != null) {
-			mThumbCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
-			mThumbCanvas.drawBitmap(bmp, 0, 0, mThumbPaint);
-		}
-		// Clean up
-		destroyDrawingCache();
-		setDrawingCacheEnabled(false);
-		layoutDrawed = true;
-	}
-
-	public Bitmap getThumb() {
-		return mThumb;
+	@Override
+	Bitmap.Config getThumbConfig() {
+		// Rooms have full color backgrounds
+		return Bitmap.Config.ARGB_8888;
 	}
 
 	@Override
@@ -639,11 +590,15 @@ public class MLayout extends LayoutType {
 
 	public void drawMBackground() {
 		if (this.getWidth() > 0 && this.getHeight() > 0) {
+			// The background fits itself to the new size of the screen
+			if (MBackground.isBackground(getBackground(), mBackgroundResIdx))
+				return;
+
 			SharedPreference.putSharedPreference(mLauncher, mScreenIdx + "|w",
 					mBackgroundResIdx);
 			
 			Drawable dr = MBackground.getInstance().getBackground(
-					this.getWidth(), this.getHeight(), mBackgroundResIdx);
+					mBackgroundResIdx);
 
 			this.setBackgroundDrawable(dr);
 		}
@@ -655,24 +610,16 @@ public class MLayout extends LayoutType {
 		int l, r, t, b;
 		float wRate, hRate;
 
-		Log.e("RRR", "argWidth=" + argWidth + ", getWidth()=" + getWidth());
-
 		wRate = (float) argWidth / (float) getWidth();
 		hRate = (float) argHeight / (float) getHeight();
 
-		Log.e("RRR", "wRate=" + wRate + ", hRate=" + hRate);
+		mGrid.reset(getWidth(), getHeight());
 
 		for (int i = 0; i < this.getChildCount(); i++) {
 			if (getChildAt(i) instanceof MobjectImageView) {
 				mObjectTextView = (MobjectImageView) this.getChildAt(i);
 				info = (ItemInfo) mObjectTextView.getTag();
 
-				Log.e("RRR",
-						"==>>>" + mObjectTextView.getLeft() + ", "
-								+ mObjectTextView.getTop() + ", "
-								+ mObjectTextView.getRight() + ", "
-								+ mObjectTextView.getBottom());
-
 				l = (int) (mObjectTextView.getLeft() * wRate);
 				r = (int) (mObjectTextView.getRight() * wRate);
 				t = (int) (mObjectTextView.getTop() * hRate);
@@ -683,12 +630,14 @@ public class MLayout extends LayoutType {
 
 				mObjectTextView.setTag(info);
 				mObjectTextView.layout(l, t, r, b);
-
-				Log.e("RRR", "==>" + l + ", " + t + ", " + r + ", " + b);
 				// mObjectTextView.invalidate();
 				// mObjectTextView.invalidate(l, t, r, b);
 
 			}
+
+			final View child = getChildAt(i);
+			mGrid.add(child, child.getLeft(), child.getTop(), child.getRight(),
+					child.getBottom());
 		}
 	}
 
@@ -0,0 +1,95 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.ArrayList;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Uniform grid over the children of a {@link MLayout}, which places them
+ * freely by pixel. Each bucket lists the children whose bounds cross it, so a
+ * hit test only looks at the few children under the touched bucket instead of
+ * every child of the room.
+ *
+ * The grid is filled again on every layout of the room. Children removed
+ * since are skipped by the hit test until then.
+ */
+final class MobjectGrid {
+	/**
+	 * Size of a bucket in pixels, about the size of a small mobject.
+	 */
+	private static final int BUCKET_SIZE = 64;
+
+	private int mColumns;
+	private int mRows;
+	private final ArrayList<ArrayList<View>> mBuckets = new ArrayList<ArrayList<View>>();
+
+	private final Rect mHitRect = new Rect();
+
+	/**
+	 * Empties the grid and sizes it for a room of the specified size.
+	 */
+	void reset(int width, int height) {
+		mColumns = Math.max(1, (width + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		mRows = Math.max(1, (height + BUCKET_SIZE - 1) / BUCKET_SIZE);
+
+		final int count = mColumns * mRows;
+		for (int i = mBuckets.size(); i < count; i++)
+			mBuckets.add(new ArrayList<View>());
+		for (int i = mBuckets.size() - 1; i >= 0; i--)
+			mBuckets.get(i).clear();
+	}
+
+	/**
+	 * Adds a child laid out at the specified bounds.
+	 */
+	void add(View child, int left, int top, int right, int bottom) {
+		final int firstColumn = clamp(left / BUCKET_SIZE, mColumns);
+		final int lastColumn = clamp((right - 1) / BUCKET_SIZE, mColumns);
+		final int firstRow = clamp(top / BUCKET_SIZE, mRows);
+		final int lastRow = clamp((bottom - 1) / BUCKET_SIZE, mRows);
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++)
+				mBuckets.get(row * mColumns + column).add(child);
+		}
+	}
+
+	/**
+	 * Returns the topmost child of the parent containing the specified point,
+	 * or null if none.
+	 */
+	View hitTest(ViewGroup parent, int x, int y) {
+		if (x < 0 || y < 0 || x >= mColumns * BUCKET_SIZE || y >= mRows * BUCKET_SIZE)
+			return null;
+
+		final ArrayList<View> bucket = mBuckets.get((y / BUCKET_SIZE) * mColumns + x
+				/ BUCKET_SIZE);
+		final Rect frame = mHitRect;
+
+		View hit = null;
+		int hitIndex = -1;
+		for (int i = bucket.size() - 1; i >= 0; i--) {
+			final View child = bucket.get(i);
+			if (child.getParent() != parent
+					|| (child.getVisibility() != View.VISIBLE && child.getAnimation() == null))
+				continue;
+
+			child.getHitRect(frame);
+			if (frame.contains(x, y)) {
+				// Children drawn last are on top
+				final int index = parent.indexOfChild(child);
+				if (index > hitIndex) {
+					hit = child;
+					hitIndex = index;
+				}
+			}
+		}
+		return hit;
+	}
+
+	private static int clamp(int value, int count) {
+		return value < 0 ? 0 : value >= count ? count - 1 : value;
+	}
+}
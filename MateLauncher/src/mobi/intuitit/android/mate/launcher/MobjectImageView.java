@@ -1,29 +1,25 @@
 package mobi.intuitit.android.mate.launcher;
 
-import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
-import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.text.TextPaint;
-import android.text.TextUtils;
-import android.text.TextUtils.TruncateAt;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
 import android.widget.ImageView;
 
 public class MobjectImageView extends ImageView {
 	private boolean mBackgroundSizeChanged;
 	private Drawable mBackground;
 
+	// Title laid out for the last frame
+	private final MobjectTitle mTitle = new MobjectTitle();
+
 	public MobjectImageView(Context context) {
 		super(context);
 	}
@@ -45,16 +41,7 @@ public class MobjectImageView extends ImageView {
 
 		ItemInfo info = (ItemInfo) getTag();
 
-		if (info.reverseIcon == 0) {
-			this.setBackgroundResource(MImageList.getInstance().getIcon(
-					info.mobjectType, info.mobjectIcon));
-		} else {
-			Drawable d = getResources().getDrawable(
-					MImageList.getInstance().getIcon(info.mobjectType,
-							info.mobjectIcon));
-
-			this.setBackgroundDrawable(flipDrawable(d));
-		}
+		setIconBackground(info);
 
 		// this.setCompoundDrawablesWithIntrinsicBounds(0, MImageList
 		// .getInstance().getIcon(info.mobjectType, info.mobjectIcon), 0,
@@ -62,41 +49,24 @@ public class MobjectImageView extends ImageView {
 
 	}
 
-	Drawable flipDrawable(Drawable d) {
-		Matrix m = new Matrix();
-		m.preScale(-1, 1);
-		Bitmap src = ((BitmapDrawable) d).getBitmap();
-		Bitmap dst = Bitmap.createBitmap(src, 0, 0, src.getWidth(),
-				src.getHeight(), m, false);
-		dst.setDensity(DisplayMetrics.DENSITY_DEFAULT);
-		return new BitmapDrawable(dst);
+	private void setIconBackground(ItemInfo info) {
+		this.setBackgroundDrawable(MImageList.getInstance().getIconDrawable(
+				getResources(), info.mobjectType, info.mobjectIcon,
+				info.reverseIcon != 0));
 	}
 
 	public void reverseImg() {
 
 		ItemInfo info = (ItemInfo) getTag();
 
-		if (info.reverseIcon == 0) {
-			info.reverseIcon = 1;
-			Drawable d = getResources().getDrawable(
-					MImageList.getInstance().getIcon(info.mobjectType,
-							info.mobjectIcon));
-
-			this.setBackgroundDrawable(flipDrawable(d));
-		} else {
-			info.reverseIcon = 0;
-			this.setBackgroundResource(MImageList.getInstance().getIcon(
-					info.mobjectType, info.mobjectIcon));
-		}
+		info.reverseIcon = info.reverseIcon == 0 ? 1 : 0;
+		setIconBackground(info);
 
 		this.setTag(info);
 
-		MLayout mLayout = (MLayout) (this.getParent());
 		final ContentValues values = new ContentValues();
-		final ContentResolver cr = mLayout.mLauncher.getContentResolver();
 		values.put(LauncherSettings.Favorites.REVERSE_ICON, info.reverseIcon);
-		cr.update(LauncherSettings.Favorites.getContentUri(info.id, false),
-				values, null, null);
+		LauncherModel.queueItemUpdate(getContext(), info.id, values);
 	}
 
 	public BitmapDrawable writeOnDrawable(int resId, String text) {
@@ -168,40 +138,29 @@ public class MobjectImageView extends ImageView {
 		}
 		
 		super.draw(canvas);
-		
+
 		// 타이틀 표시
-		ItemInfo info = (ItemInfo) this.getTag();
-				
-		Paint paint = new Paint();
-		paint.setStyle(Style.FILL);
-		
-		paint.setColor(Color.WHITE);
-		paint.setTextSize(20);
-		paint.setFakeBoldText(true);
-		paint.setAntiAlias(true);
-		paint.setShadowLayer(5, 3, 3, Color.RED);
-		
-		String title = "";
-		
-		if (Launcher.modifyMode) {
+		if (updateTitle())
+			mTitle.draw(canvas, getHeight() / 2);
+	}
+
+	/**
+	 * Lays out the title again if its text, the view width or the modify mode
+	 * changed since the last frame.
+	 *
+	 * @return true if there is a title to draw
+	 */
+	private boolean updateTitle() {
+		final ItemInfo info = (ItemInfo) getTag();
+
+		CharSequence source = null;
+		if (Launcher.modifyMode && info != null) {
 			if (info.contact_num != null)
-			{
-//				Log.e("RRR", "contact_name=" + info.contact_name);
-				title = info.contact_name;
-			}
-			else if (info.title != null)
-			{
-//				Log.e("RRR", "title=" + info.title.toString());
-				title = info.title.toString();
-			}
+				source = info.contact_name;
+			else
+				source = info.title;
 		}
-		
-		title = TextUtils.ellipsize(title, new TextPaint(), this.getWidth() / 2, TruncateAt.END).toString();
-		
-		Rect b = new Rect();
-		paint.getTextBounds(title, 0, title.length(), b);
-		
-		canvas.drawText(title, this.getWidth() / 2 - b.width() / 2, this.getHeight() / 2, paint);
-		
+
+		return mTitle.update(source, getWidth());
 	}
 }
@@ -0,0 +1,70 @@
+package mobi.intuitit.android.mate.launcher;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.Rect;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.TextUtils.TruncateAt;
+
+/**
+ * Title drawn over a {@link MobjectImageView} in modify mode. The title is
+ * ellipsized and measured only when its text or the width of its view
+ * changes, so drawing it again allocates nothing.
+ *
+ * Must be used from the UI thread, the paints are shared by every title.
+ */
+final class MobjectTitle {
+	private static final Paint sTitlePaint = new Paint();
+	private static final TextPaint sEllipsizePaint = new TextPaint();
+
+	static {
+		sTitlePaint.setStyle(Style.FILL);
+		sTitlePaint.setColor(Color.WHITE);
+		sTitlePaint.setTextSize(20);
+		sTitlePaint.setFakeBoldText(true);
+		sTitlePaint.setAntiAlias(true);
+		sTitlePaint.setShadowLayer(5, 3, 3, Color.RED);
+	}
+
+	private CharSequence mSource;
+	private int mWidth = -1;
+	private String mText;
+	private int mX;
+	private final Rect mBounds = new Rect();
+
+	/**
+	 * Lays out the title again if its text or the view width changed since
+	 * the last frame.
+	 *
+	 * @param source
+	 *            Text of the title, null for none
+	 * @return true if there is a title to draw
+	 */
+	boolean update(CharSequence source, int width) {
+		if (source != mSource || width != mWidth) {
+			mSource = source;
+			mWidth = width;
+
+			if (source == null || source.length() == 0) {
+				mText = null;
+			} else {
+				mText = TextUtils.ellipsize(source, sEllipsizePaint, width / 2,
+						TruncateAt.END).toString();
+				sTitlePaint.getTextBounds(mText, 0, mText.length(), mBounds);
+				mX = width / 2 - mBounds.width() / 2;
+			}
+		}
+		return mText != null;
+	}
+
+	/**
+	 * Draws the title laid out by the last {@link #update}, centered
+	 * horizontally on the given baseline.
+	 */
+	void draw(Canvas canvas, int y) {
+		canvas.drawText(mText, mX, y, sTitlePaint);
+	}
+}
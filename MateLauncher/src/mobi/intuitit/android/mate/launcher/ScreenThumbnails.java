@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2008 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package mobi.intuitit.android.mate.launcher;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+/**
+ * Thumbnails of the screens of a workspace shown by {@link ScreenLayout}.
+ *
+ * Screens flag themselves dirty when they are resized, gain or lose a child,
+ * when a child is redrawn or when their background changes. Dirty screens
+ * other than the current one are drawn again, one per idle pass of the UI
+ * thread, straight into a bitmap of the size the switcher displays, so
+ * opening the switcher only has to redraw the current screen and the screens
+ * that changed since the last idle pass. The current screen is left out of
+ * the idle passes since its animations and widgets keep it dirty while
+ * {@link #getThumbnails(int)} draws it again anyway. Thumbnail bitmaps are
+ * reused as long as the screen size does not change.
+ *
+ * This class must only be used from the UI thread.
+ */
+final class ScreenThumbnails implements MessageQueue.IdleHandler {
+	/**
+	 * Scale of the thumbnails relative to the screens.
+	 */
+	static final float SCALE = 0.25f;
+
+	private final Workspace mWorkspace;
+	private final Canvas mCanvas = new Canvas();
+
+	private Bitmap[] mThumbnails = new Bitmap[0];
+	private boolean mScheduled;
+
+	ScreenThumbnails(Workspace workspace) {
+		mWorkspace = workspace;
+	}
+
+	/**
+	 * Regenerates the dirty screens the next time the UI thread is idle.
+	 */
+	void scheduleUpdate() {
+		if (!mScheduled) {
+			mScheduled = true;
+			Looper.myQueue().addIdleHandler(this);
+		}
+	}
+
+	/**
+	 * Returns up to date thumbnails of every screen. The returned array and
+	 * bitmaps are reused by later calls.
+	 *
+	 * @param current The screen currently shown, always drawn again since
+	 *            its content may be animated
+	 */
+	Bitmap[] getThumbnails(int current) {
+		final int count = ensureCapacity();
+		for (int i = 0; i < count; i++) {
+			final LayoutType screen = (LayoutType) mWorkspace.getChildAt(i);
+			if (i == current || screen.isThumbDirty()
+					|| mThumbnails[i] == null) {
+				render(i, screen);
+			}
+		}
+		return mThumbnails;
+	}
+
+	public boolean queueIdle() {
+		final int count = ensureCapacity();
+		final int current = mWorkspace.getCurrentScreen();
+		for (int i = 0; i < count; i++) {
+			if (i == current) {
+				continue;
+			}
+			final LayoutType screen = (LayoutType) mWorkspace.getChildAt(i);
+			if ((screen.isThumbDirty() || mThumbnails[i] == null)
+					&& render(i, screen)) {
+				// Leave the remaining screens to the next idle passes
+				return true;
+			}
+		}
+
+		mScheduled = false;
+		return false;
+	}
+
+	private int ensureCapacity() {
+		final int count = mWorkspace.getChildCount();
+		if (mThumbnails.length != count) {
+			final Bitmap[] thumbnails = new Bitmap[count];
+			System.arraycopy(mThumbnails, 0, thumbnails, 0, Math.min(count,
+					mThumbnails.length));
+			mThumbnails = thumbnails;
+		}
+		return count;
+	}
+
+	/**
+	 * Draws the thumbnail of the specified screen.
+	 *
+	 * @return False if the screen is not laid out yet
+	 */
+	private boolean render(int index, LayoutType screen) {
+		final int width = (int) (screen.getWidth() * SCALE);
+		final int height = (int) (screen.getHeight() * SCALE);
+		if (width <= 0 || height <= 0) {
+			return false;
+		}
+
+		Bitmap thumbnail = mThumbnails[index];
+		if (thumbnail == null || thumbnail.getWidth() != width
+				|| thumbnail.getHeight() != height) {
+			// The previous bitmap may still be displayed by the switcher, let
+			// the garbage collector release it
+			thumbnail = Bitmap.createBitmap(width, height, screen
+					.getThumbConfig());
+			mThumbnails[index] = thumbnail;
+		} else {
+			thumbnail.eraseColor(0);
+		}
+
+		final Canvas canvas = mCanvas;
+		canvas.setBitmap(thumbnail);
+		final int saveCount = canvas.save();
+		canvas.scale(SCALE, SCALE);
+		canvas.translate(-screen.getScrollX(), -screen.getScrollY());
+		screen.draw(canvas);
+		canvas.restoreToCount(saveCount);
+
+		screen.setThumbDirty(false);
+		return true;
+	}
+}
@@ -10,12 +10,7 @@ public class SoundSearcher {
 			'ㅁ', 'ㅂ', 'ㅃ', 'ㅅ', 'ㅆ', 'ㅇ', 'ㅈ', 'ㅉ', 'ㅊ', 'ㅋ', 'ㅌ', 'ㅍ', 'ㅎ' };
 
 	private static boolean isInitialSound(char searchar) {
-		for (char c : INITIAL_SOUND) {
-			if (c == searchar) {
-				return true;
-			}
-		}
-		return false;
+		return ChosungIndex.isInitialSound(searchar);
 	}
 
 	private static char getInitialSound(char c) {
@@ -81,11 +81,7 @@ public class StringMatcher {
 	}
 
 	private static boolean isInitialSound(char c) {
-		for (char i : KOREAN_INITIAL) {
-			if (c == i)
-				return true;
-		}
-		return false;
+		return ChosungIndex.isInitialSound(c);
 	}
 
 	private static char getInitialSound(char c) {
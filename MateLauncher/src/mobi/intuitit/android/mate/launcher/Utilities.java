@@ -35,14 +35,34 @@ final class Utilities {
     private static int sIconWidth = -1;
     private static int sIconHeight = -1;
 
-    private static final Paint sPaint = new Paint();
-    private static final Rect sBounds = new Rect();
-    private static final Rect sOldBounds = new Rect();
-    private static Canvas sCanvas = new Canvas();
-
-    static {
-        sCanvas.setDrawFilter(new PaintFlagsDrawFilter(Paint.DITHER_FLAG,
-                Paint.FILTER_BITMAP_FLAG));
+    /**
+     * Drawing state of one thread, so thumbnails can be created on several
+     * threads at once.
+     */
+    private static final class Thumbnailer {
+        final Paint paint = new Paint();
+        final Rect bounds = new Rect();
+        final Rect oldBounds = new Rect();
+        final Canvas canvas = new Canvas();
+
+        Thumbnailer() {
+            canvas.setDrawFilter(new PaintFlagsDrawFilter(Paint.DITHER_FLAG,
+                    Paint.FILTER_BITMAP_FLAG));
+        }
+    }
+
+    private static final ThreadLocal<Thumbnailer> sThumbnailer = new ThreadLocal<Thumbnailer>() {
+        @Override
+        protected Thumbnailer initialValue() {
+            return new Thumbnailer();
+        }
+    };
+
+    private static void loadIconSize(Context context) {
+        if (sIconWidth == -1) {
+            final Resources resources = context.getResources();
+            sIconWidth = sIconHeight = (int) resources.getDimension(android.R.dimen.app_icon_size);
+        }
     }
 
     /**
@@ -50,7 +70,8 @@ final class Utilities {
      * The size of the thumbnail is defined by the dimension
      * android.R.dimen.launcher_application_icon_size.
      *
-     * This method is not thread-safe and should be invoked on the UI thread only.
+     * This method is thread-safe, every thread draws on its own canvas. The
+     * icon itself must not be drawn by another thread meanwhile.
      *
      * @param icon The icon to get a thumbnail of.
      * @param context The application's context.
@@ -59,11 +80,31 @@ final class Utilities {
      *         thumbnail could not be created. 
      */
     static Drawable createIconThumbnail(Drawable icon, Context context) {
-        if (sIconWidth == -1) {
-            final Resources resources = context.getResources();
-            sIconWidth = sIconHeight = (int) resources.getDimension(android.R.dimen.app_icon_size);
+        loadIconSize(context);
+        return createIconThumbnail(icon, context, sThumbnailer.get());
+    }
+
+    /**
+     * Replaces every icon of the specified array with its thumbnail, as
+     * {@link #createIconThumbnail(Drawable, Context)} does, in a single pass.
+     * Null entries are left untouched.
+     *
+     * @param icons The icons to get thumbnails of.
+     * @param context The application's context.
+     */
+    static void createIconThumbnails(Drawable[] icons, Context context) {
+        loadIconSize(context);
+        final Thumbnailer thumbnailer = sThumbnailer.get();
+        final int count = icons.length;
+        for (int i = 0; i < count; i++) {
+            if (icons[i] != null) {
+                icons[i] = createIconThumbnail(icons[i], context, thumbnailer);
+            }
         }
+    }
 
+    private static Drawable createIconThumbnail(Drawable icon, Context context,
+            Thumbnailer thumbnailer) {
         int width = sIconWidth;
         int height = sIconHeight;
 
@@ -96,31 +137,33 @@ final class Utilities {
                 final Bitmap.Config c = icon.getOpacity() != PixelFormat.OPAQUE ?
                             Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
                 final Bitmap thumb = Bitmap.createBitmap(sIconWidth, sIconHeight, c);
-                final Canvas canvas = sCanvas;
+                final Canvas canvas = thumbnailer.canvas;
+                final Rect oldBounds = thumbnailer.oldBounds;
                 canvas.setBitmap(thumb);
                 // Copy the old bounds to restore them later
                 // If we were to do oldBounds = icon.getBounds(),
                 // the call to setBounds() that follows would
                 // change the same instance and we would lose the
                 // old bounds
-                sOldBounds.set(icon.getBounds());
+                oldBounds.set(icon.getBounds());
                 final int x = (sIconWidth - width) / 2;
                 final int y = (sIconHeight - height) / 2;
                 icon.setBounds(x, y, x + width, y + height);
                 icon.draw(canvas);
-                icon.setBounds(sOldBounds);
+                icon.setBounds(oldBounds);
                 icon = new FastBitmapDrawable(thumb);
             } else if (iconWidth < width && iconHeight < height) {
                 final Bitmap.Config c = Bitmap.Config.ARGB_8888;
                 final Bitmap thumb = Bitmap.createBitmap(sIconWidth, sIconHeight, c);
-                final Canvas canvas = sCanvas;
+                final Canvas canvas = thumbnailer.canvas;
+                final Rect oldBounds = thumbnailer.oldBounds;
                 canvas.setBitmap(thumb);
-                sOldBounds.set(icon.getBounds());
+                oldBounds.set(icon.getBounds());
                 final int x = (width - iconWidth) / 2;
                 final int y = (height - iconHeight) / 2;
                 icon.setBounds(x, y, x + iconWidth, y + iconHeight);
                 icon.draw(canvas);
-                icon.setBounds(sOldBounds);
+                icon.setBounds(oldBounds);
                 icon = new FastBitmapDrawable(thumb);
             }
         }
@@ -133,7 +176,7 @@ final class Utilities {
      * The size of the thumbnail is defined by the dimension
      * android.R.dimen.launcher_application_icon_size.
      *
-     * This method is not thread-safe and should be invoked on the UI thread only.
+     * This method is thread-safe, every thread draws on its own canvas.
      *
      * @param bitmap The bitmap to get a thumbnail of.
      * @param context The application's context.
@@ -142,11 +185,7 @@ final class Utilities {
      *         thumbnail could not be created.
      */
     static Bitmap createBitmapThumbnail(Bitmap bitmap, Context context) {
-        if (sIconWidth == -1) {
-            final Resources resources = context.getResources();
-            sIconWidth = sIconHeight = (int) resources.getDimension(
-                    android.R.dimen.app_icon_size);
-        }
+        loadIconSize(context);
 
         int width = sIconWidth;
         int height = sIconHeight;
@@ -167,20 +206,23 @@ final class Utilities {
                 final Bitmap.Config c = (width == sIconWidth && height == sIconHeight) ?
                         bitmap.getConfig() : Bitmap.Config.ARGB_8888;
                 final Bitmap thumb = Bitmap.createBitmap(sIconWidth, sIconHeight, c);
-                final Canvas canvas = sCanvas;
-                final Paint paint = sPaint;
+                final Thumbnailer thumbnailer = sThumbnailer.get();
+                final Canvas canvas = thumbnailer.canvas;
+                final Paint paint = thumbnailer.paint;
                 canvas.setBitmap(thumb);
                 paint.setDither(false);
                 paint.setFilterBitmap(true);
-                sBounds.set((sIconWidth - width) / 2, (sIconHeight - height) / 2, width, height);
-                sOldBounds.set(0, 0, bitmapWidth, bitmapHeight);
-                canvas.drawBitmap(bitmap, sOldBounds, sBounds, paint);
+                thumbnailer.bounds.set((sIconWidth - width) / 2, (sIconHeight - height) / 2,
+                        width, height);
+                thumbnailer.oldBounds.set(0, 0, bitmapWidth, bitmapHeight);
+                canvas.drawBitmap(bitmap, thumbnailer.oldBounds, thumbnailer.bounds, paint);
                 return thumb;
             } else if (bitmapWidth < width || bitmapHeight < height) {
                 final Bitmap.Config c = Bitmap.Config.ARGB_8888;
                 final Bitmap thumb = Bitmap.createBitmap(sIconWidth, sIconHeight, c);
-                final Canvas canvas = sCanvas;
-                final Paint paint = sPaint;
+                final Thumbnailer thumbnailer = sThumbnailer.get();
+                final Canvas canvas = thumbnailer.canvas;
+                final Paint paint = thumbnailer.paint;
                 canvas.setBitmap(thumb);
                 paint.setDither(false);
                 paint.setFilterBitmap(true);
@@ -103,6 +103,9 @@ public class Workspace extends WidgetSpace implements DropTarget, DragSource,
 
 	private boolean mLocked;
 
+	private final ScreenThumbnails mScreenThumbnails = new ScreenThumbnails(
+			this);
+
 	private int mTouchSlop;
 	private int mMaximumVelocity;
 
@@ -643,6 +646,16 @@ public class Workspace extends WidgetSpace implements DropTarget, DragSource,
 				childLeft += childWidth;
 			}
 		}
+
+		// Screens laid out again have a dirty thumbnail
+		mScreenThumbnails.scheduleUpdate();
+	}
+
+	/**
+	 * Returns the thumbnails shown by the screen switcher.
+	 */
+	ScreenThumbnails getScreenThumbnails() {
+		return mScreenThumbnails;
 	}
 
 	@Override
@@ -1155,9 +1168,14 @@ public class Workspace extends WidgetSpace implements DropTarget, DragSource,
 			final LayoutType.CellInfo cellInfo = mDragInfo;
 			final int spanX = cellInfo == null ? 1 : cellInfo.spanX;
 			final int spanY = cellInfo == null ? 1 : cellInfo.spanY;
+			final View ignoreView = cellInfo == null ? null : cellInfo.cell;
+
+			if (layout instanceof CellLayout) {
+				return ((CellLayout) layout).findCellForSpan(mTempEstimate,
+						spanX, spanY, ignoreView);
+			}
 
 			if (mVacantCache == null) {
-				final View ignoreView = cellInfo == null ? null : cellInfo.cell;
 				mVacantCache = layout.findAllVacantCells(null, ignoreView);
 			}
 
@@ -1207,6 +1225,12 @@ public class Workspace extends WidgetSpace implements DropTarget, DragSource,
 	 */
 	private int[] estimateDropCell(int pixelX, int pixelY, int spanX,
 			int spanY, View ignoreView, LayoutType layout, int[] recycle) {
+		if (layout instanceof CellLayout) {
+			final int[] cellXY = recycle != null ? recycle : new int[2];
+			return ((CellLayout) layout).estimateDropCell(pixelX, pixelY,
+					spanX, spanY, ignoreView, cellXY) ? cellXY : null;
+		}
+
 		// Create vacant cell cache if none exists
 		if (mVacantCache == null) {
 			mVacantCache = layout.findAllVacantCells(null, ignoreView);
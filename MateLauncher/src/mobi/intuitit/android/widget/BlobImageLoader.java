@@ -0,0 +1,237 @@
+package mobi.intuitit.android.widget;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+/**
+ * Decodes the IMAGEBLOB cells of scrollable widgets off the UI thread.
+ *
+ * Blobs are decoded on a worker thread, downsampled to the size of the
+ * ImageView showing them, and kept in a LRU cache whose budget is counted in
+ * bytes. Entries are keyed by widget id, row key and column, plus a hash of
+ * the blob so a row whose image changed is decoded again. Binding an
+ * ImageView again, or recycling the row holding it, cancels its pending
+ * decode.
+ *
+ * All the methods must be called from the UI thread.
+ */
+public class BlobImageLoader {
+
+	private static final String TAG = "BlobImageLoader";
+
+	private static final boolean LOGD = false;
+
+	/**
+	 * Part of the heap the decoded bitmaps may use.
+	 */
+	private static final int CACHE_HEAP_DIVIDER = 8;
+
+	private static BlobImageLoader instance;
+
+	public static BlobImageLoader getInstance() {
+		if (instance == null)
+			instance = new BlobImageLoader();
+		return instance;
+	}
+
+	private static final HandlerThread sWorkerThread;
+	private static final Handler sWorkerQueue;
+
+	static {
+		sWorkerThread = new HandlerThread("BlobImageLoader-worker",
+				Process.THREAD_PRIORITY_BACKGROUND);
+		sWorkerThread.start();
+		sWorkerQueue = new Handler(sWorkerThread.getLooper());
+	}
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	private final LruCache<String, Bitmap> mCache = new LruCache<String, Bitmap>(
+			(int) (Runtime.getRuntime().maxMemory() / CACHE_HEAP_DIVIDER)) {
+		@Override
+		protected int sizeOf(String key, Bitmap bitmap) {
+			return bitmap.getRowBytes() * bitmap.getHeight();
+		}
+	};
+
+	// Decode pending for each ImageView
+	private final WeakHashMap<ImageView, DecodeTask> mPendingTasks = new WeakHashMap<ImageView, DecodeTask>();
+
+	private BlobImageLoader() {
+	}
+
+	/**
+	 * Shows the image of a cell in the specified view, from the cache when
+	 * possible or once decoded otherwise. Until then the view shows the
+	 * default resource, if any.
+	 *
+	 * @param rowKey
+	 *            key of the row in the widget, its action uri or position
+	 * @param column
+	 *            index of the cell in the row mapping
+	 */
+	public void bind(ImageView view, int widgetId, String rowKey, int column, byte[] data,
+			int defaultResource) {
+		cancel(view);
+
+		final String key = widgetId + "/" + rowKey + "/" + column + "/" + Arrays.hashCode(data);
+		final Bitmap bitmap = mCache.get(key);
+		if (bitmap != null) {
+			view.setImageBitmap(bitmap);
+			return;
+		}
+
+		if (defaultResource > 0)
+			view.setImageResource(defaultResource);
+		else
+			view.setImageDrawable(null);
+
+		final DecodeTask task = new DecodeTask(view, key, data, getTargetSize(view.getWidth(),
+				view.getLayoutParams() != null ? view.getLayoutParams().width : 0),
+				getTargetSize(view.getHeight(), view.getLayoutParams() != null ? view
+						.getLayoutParams().height : 0));
+		mPendingTasks.put(view, task);
+		sWorkerQueue.post(task);
+	}
+
+	/**
+	 * Cancels the decode pending for the specified view, if any.
+	 */
+	public void cancel(ImageView view) {
+		final DecodeTask task = mPendingTasks.remove(view);
+		if (task != null) {
+			task.mCancelled = true;
+			sWorkerQueue.removeCallbacks(task);
+		}
+	}
+
+	/**
+	 * Cancels the decodes pending for every ImageView of a recycled row.
+	 */
+	public void cancelAll(View view) {
+		if (mPendingTasks.isEmpty())
+			return;
+
+		if (view instanceof ImageView) {
+			cancel((ImageView) view);
+		} else if (view instanceof ViewGroup) {
+			final ViewGroup group = (ViewGroup) view;
+			for (int i = group.getChildCount() - 1; i >= 0; i--)
+				cancelAll(group.getChildAt(i));
+		}
+	}
+
+	/**
+	 * Drops the images decoded for the specified widget.
+	 */
+	public void clearCacheForWidget(int widgetId) {
+		final String prefix = widgetId + "/";
+		for (String key : mCache.snapshot().keySet()) {
+			if (key.startsWith(prefix))
+				mCache.remove(key);
+		}
+	}
+
+	public void clearCache() {
+		mCache.evictAll();
+	}
+
+	private static int getTargetSize(int size, int layoutSize) {
+		if (size > 0)
+			return size;
+		// Not laid out yet, use the size asked by the layout if it is fixed
+		return layoutSize > 0 ? layoutSize : 0;
+	}
+
+	/**
+	 * Returns the largest power of two sample size keeping the decoded image
+	 * at least as large as the target, 1 if the target is unknown.
+	 */
+	static int computeSampleSize(int width, int height, int targetWidth, int targetHeight) {
+		int sampleSize = 1;
+		if (targetWidth <= 0 && targetHeight <= 0)
+			return sampleSize;
+
+		while ((targetWidth <= 0 || width / (sampleSize * 2) >= targetWidth)
+				&& (targetHeight <= 0 || height / (sampleSize * 2) >= targetHeight))
+			sampleSize *= 2;
+		return sampleSize;
+	}
+
+	private class DecodeTask implements Runnable {
+		final ImageView mView;
+		final String mKey;
+		final byte[] mData;
+		final int mTargetWidth;
+		final int mTargetHeight;
+
+		volatile boolean mCancelled;
+
+		DecodeTask(ImageView view, String key, byte[] data, int targetWidth, int targetHeight) {
+			mView = view;
+			mKey = key;
+			mData = data;
+			mTargetWidth = targetWidth;
+			mTargetHeight = targetHeight;
+		}
+
+		public void run() {
+			if (mCancelled)
+				return;
+
+			final Bitmap bitmap = decode();
+			if (bitmap == null)
+				return;
+
+			mHandler.post(new Runnable() {
+				public void run() {
+					mCache.put(mKey, bitmap);
+					if (!mCancelled && mPendingTasks.get(mView) == DecodeTask.this) {
+						mPendingTasks.remove(mView);
+						mView.setImageBitmap(bitmap);
+					}
+				}
+			});
+		}
+
+		private Bitmap decode() {
+			try {
+				final BitmapFactory.Options options = new BitmapFactory.Options();
+				options.inJustDecodeBounds = true;
+				BitmapFactory.decodeByteArray(mData, 0, mData.length, options);
+				if (options.outWidth <= 0 || options.outHeight <= 0)
+					return null;
+
+				options.inJustDecodeBounds = false;
+				options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight,
+						mTargetWidth, mTargetHeight);
+				return BitmapFactory.decodeByteArray(mData, 0, mData.length, options);
+			} catch (OutOfMemoryError e) {
+				// Make room for the next images instead of forcing a collection
+				Log.w(TAG, "Out of memory decoding " + mKey);
+				mHandler.post(new Runnable() {
+					public void run() {
+						mCache.evictAll();
+					}
+				});
+				return null;
+			} finally {
+				if (LOGD)
+					Log.d(TAG, "decoded " + mKey);
+			}
+		}
+	}
+
+}
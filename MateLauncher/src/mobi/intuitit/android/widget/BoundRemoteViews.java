@@ -1,74 +1,78 @@
 package mobi.intuitit.android.widget;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
+import mobi.intuitit.android.mate.launcher.R;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.BitmapFactory;
 import android.graphics.Rect;
-import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.view.View;
+import android.view.ViewParent;
 import android.view.View.OnClickListener;
+import android.widget.AdapterView;
 
 public class BoundRemoteViews extends SimpleRemoteViews {
 
+	/**
+	 * Values of the bound columns of every row of the cursor, so rows can be
+	 * bound after the cursor is closed. Each binding action has a column
+	 * typed after its value, filled in a single pass over the cursor.
+	 */
 	class CursorCache {
 
-		final ArrayList<HashMap<Action, Object>> mCache;
-		final HashMap<Action, Object> mDefaults;
-
-		public Object getValueOrDefault(int index, Action target) {
-			HashMap<Action, Object> row = mCache.get(index);
-			Object result = null;
-			if (row.containsKey(target))
-				 result = row.get(target);
-			if (result == null)
-				result = mDefaults.get(target);
-			return result;
-		}
-
-		public CursorCache(Cursor cursor, Context context) {
-			final int cacheSize = cursor != null ? cursor.getCount() : 0;
-
-			mCache = new ArrayList<HashMap<Action,Object>>(cacheSize);
-			mDefaults = new HashMap<Action, Object>();
-
-			final ArrayList<Action> actions = BoundRemoteViews.this.mActions;
-
-			for (int i = 0; i < actions.size(); i++) {
-				Action act = actions.get(i);
-				if (act instanceof BindingAction)
-					mDefaults.put(act, ((BindingAction)act).getDefault(context));
-				else if (act instanceof SetBoundOnClickIntent)
-					mDefaults.put(act, null);
+		final int mCount;
+		final CursorColumn[] mColumns;
+
+		/**
+		 * @param previous
+		 *            cache of the previous query of the same views, whose
+		 *            arrays are reused
+		 */
+		public CursorCache(Cursor cursor, Context context, CursorCache previous) {
+			mCount = cursor != null ? cursor.getCount() : 0;
+
+			final Action[] actions = getBindingActions();
+			final int columnCount = actions.length;
+			mColumns = new CursorColumn[columnCount];
+
+			for (int i = 0; i < columnCount; i++) {
+				final CursorColumn old = previous != null ? previous.mColumns[i] : null;
+				final Action act = actions[i];
+				if (act instanceof BindingAction) {
+					final BindingAction binding = (BindingAction) act;
+					mColumns[i] = CursorColumn.create(binding.type, binding.mCursorIndex,
+							binding.getDefault(context), mCount, old);
+				} else {
+					mColumns[i] = CursorColumn.create(ReflectionAction.STRING,
+							((SetBoundOnClickIntent) act).mExtraCursorIndex, null, mCount, old);
+				}
 			}
 
-			if (cursor != null) {
-				cursor.moveToFirst();
-
-				while(!cursor.isAfterLast()) {
-
-					HashMap<Action, Object> row = new HashMap<Action, Object>();
-
-
-					for (int i = 0; i < actions.size(); i++) {
-						Action act = actions.get(i);
-						if (act instanceof BindingAction)
-							row.put(act, ((BindingAction)act).readValue(cursor, context));
-						else if (act instanceof SetBoundOnClickIntent)
-							row.put(act, ((SetBoundOnClickIntent)act).readValue(cursor));
-					}
+			if (cursor != null && cursor.moveToFirst()) {
+				int row = 0;
+				do {
+					for (int i = 0; i < columnCount; i++)
+						mColumns[i].read(cursor, row);
+					row++;
+				} while (row < mCount && cursor.moveToNext());
+			}
 
-					mCache.add(row);
-					cursor.moveToNext();
-				}
+			for (int i = 0; i < columnCount; i++) {
+				if (mColumns[i] instanceof CursorColumn.BlobColumn)
+					((CursorColumn.BlobColumn) mColumns[i]).keepDecoded();
 			}
 		}
+
+		public Object getValueOrDefault(int index, int column) {
+			if (index >= mCount)
+				return mColumns[column].mDefault;
+			return mColumns[column].getValueOrDefault(index);
+		}
 	}
 
 
@@ -79,6 +83,9 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 		private int mCursorIndex;
 		private int mDefaultResource;
 
+		// Position of this action in the binding plan
+		int mBindingIndex;
+
 		public BindingAction(int viewId, String methodName, int type, int cursorIndex, int defaultResource) {
 			super(viewId, methodName, type);
 			mCursorIndex = cursorIndex;
@@ -108,41 +115,7 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 
 		@Override
 		protected Object getValue(Context context) {
-			return mCursor.getValueOrDefault(mCursorPos, this);
-		}
-
-		public Object readValue(Cursor cursor, Context context) {
-			try
-			{
-				switch(this.type) {
-					case STRING:
-					case CHAR_SEQUENCE:
-						return cursor.getString(mCursorIndex);
-					case BYTE:
-						return (byte)cursor.getInt(mCursorIndex);
-					case SHORT:
-						return (short)cursor.getInt(mCursorIndex);
-					case INT:
-						return cursor.getInt(mCursorIndex);
-					case LONG:
-						return cursor.getLong(mCursorIndex);
-					case FLOAT:
-						return cursor.getFloat(mCursorIndex);
-					case DOUBLE:
-						return cursor.getDouble(mCursorIndex);
-					case CHAR:
-						return cursor.getString(mCursorIndex).charAt(0);
-					case URI:
-						return Uri.parse(cursor.getString(mCursorIndex));
-					case BITMAP:
-						byte[] blob = cursor.getBlob(mCursorIndex);
-		                return BitmapFactory.decodeByteArray(blob, 0, blob.length);
-				}
-			}
-			catch(Exception e) {
-				return null;
-			}
-			return null;
+			return mCursor.getValueOrDefault(mCursorPos, mBindingIndex);
 		}
 
 		public Object getDefault(Context context) {
@@ -176,6 +149,9 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 		private final int mViewId;
 		private final PendingIntent mIntent;
 
+		// Position of this action in the binding plan
+		int mBindingIndex;
+
         public SetBoundOnClickIntent(int id, PendingIntent intent,
         		String extraName, int extraCursorIndex) {
         	mViewId = id;
@@ -199,22 +175,22 @@ public class BoundRemoteViews extends SimpleRemoteViews {
             mIntent.writeToParcel(dest, 0 /* no flags */);
         }
 
+        // Shared by every row, the clicked row is found from the list
+        private final BoundOnClickListener mListener = new BoundOnClickListener();
+
         @Override
         public void apply(View root) {
-            final View target = root.findViewById(mViewId);
+            applyTo(root.findViewById(mViewId));
+        }
+
+        void applyTo(View target) {
             if (target != null && mIntent != null) {
-                target.setOnClickListener(new BoundOnClickListener(mCursorPos));
+                target.setOnClickListener(mListener);
             }
         }
 
         private class BoundOnClickListener implements OnClickListener {
 
-        	private final int myCursorPos;
-
-        	public BoundOnClickListener(int cursorPos) {
-        		myCursorPos = cursorPos;
-        	}
-
         	public void onClick(View v) {
                 // Find target view location in screen coordinates and
                 // fill into PendingIntent before sending.
@@ -227,7 +203,7 @@ public class BoundRemoteViews extends SimpleRemoteViews {
                 srcRect.bottom = srcRect.top + v.getHeight();
                 Intent intent = new Intent();
                 intent.setSourceBounds(srcRect);
-                prepareIntent(intent);
+                prepareIntent(intent, getCursorPosition(v));
                 try {
                 	mIntent.send(v.getContext(), 0, intent, null, null);
                 } catch (PendingIntent.CanceledException e) {
@@ -235,20 +211,58 @@ public class BoundRemoteViews extends SimpleRemoteViews {
                 }
             }
 
-            protected void prepareIntent(Intent intent) {
-            	String value = (String)mCursor.getValueOrDefault(myCursorPos, SetBoundOnClickIntent.this);
+            protected void prepareIntent(Intent intent, int cursorPos) {
+            	String value = (String)mCursor.getValueOrDefault(cursorPos, mBindingIndex);
             	intent.putExtra(mExtraName, value);
             }
-        }
 
-        public String readValue(Cursor cursor) {
-        	return cursor.getString(mExtraCursorIndex);
+            /**
+             * Returns the position of the row holding the specified view in
+             * its list, the current cursor position if it is not in a list.
+             */
+            private int getCursorPosition(View v) {
+            	View child = v;
+            	ViewParent parent = v.getParent();
+            	while (parent instanceof View) {
+            		if (parent instanceof AdapterView<?>) {
+            			final int position = ((AdapterView<?>) parent).getPositionForView(child);
+            			if (position != AdapterView.INVALID_POSITION)
+            				return position;
+            			break;
+            		}
+            		child = (View) parent;
+            		parent = parent.getParent();
+            	}
+            	return mCursorPos;
+            }
         }
 	}
 
 	private CursorCache mCursor;
 	private int mCursorPos;
 
+	/**
+	 * Actions applied again to every row, and the ids of their target views.
+	 * Built once from the actions.
+	 */
+	private Action[] mBindingActions;
+	private int[] mBindingViewIds;
+
+	/**
+	 * Target views of the binding actions in a row, looked up once per row
+	 * view and kept in its {@link R.id#bound_row_targets} tag.
+	 */
+	private static class RowTargets {
+		// Binding actions the targets were looked up for
+		final Action[] mActions;
+		final View[] mViews;
+
+		RowTargets(Action[] actions, View[] views) {
+			mActions = actions;
+			mViews = views;
+		}
+	}
+
 	public BoundRemoteViews(Parcel parcel) {
 		super(parcel);
 	}
@@ -258,12 +272,12 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 	}
 
 	public void setBindingCursor(Cursor cursor, Context context) {
-		mCursor = new CursorCache(cursor,context);
+		mCursor = new CursorCache(cursor, context, mCursor);
 	}
 
 	public int getCursorCacheSize() {
 		if (mCursor != null)
-			return mCursor.mCache.size();
+			return mCursor.mCount;
 		else
 			return 0;
 	}
@@ -272,6 +286,13 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 		mCursorPos = newPosition;
 	}
 
+	@Override
+	protected void addAction(Action a) {
+		super.addAction(a);
+		mBindingActions = null;
+		mCursor = null;
+	}
+
 	@Override
 	protected Action loadActionFromParcel(int tag, Parcel parcel) {
 		if (tag == BoundRemoteViews.BindingAction.tag)
@@ -282,15 +303,38 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 			return super.loadActionFromParcel(tag, parcel);
 	}
 
+	/**
+	 * Applies the binding actions to a row view, for the current cursor
+	 * position. Views are only looked up the first time a row view is bound.
+	 */
 	public void reapplyBinding(View v) {
+	    getBindingActions();
+
+	    // Targets are looked up again once the actions changed
+	    RowTargets rowTargets = (RowTargets) v.getTag(R.id.bound_row_targets);
+	    if (rowTargets == null || rowTargets.mActions != mBindingActions) {
+	        final int count = mBindingViewIds.length;
+	        final View[] views = new View[count];
+	        for (int i = 0; i < count; i++)
+	            views[i] = v.findViewById(mBindingViewIds[i]);
+	        rowTargets = new RowTargets(mBindingActions, views);
+	        v.setTag(R.id.bound_row_targets, rowTargets);
+	    }
+	    final View[] targets = rowTargets.mViews;
+
 	    try
 	    {
-	        if (mActions != null) {
-	            final int count = mActions.size();
-	            for (int i = 0; i < count; i++) {
-	                Action a = mActions.get(i);
-	                if (a instanceof BindingAction || a instanceof SetBoundOnClickIntent)
-	             	   a.apply(v);
+	        final Action[] actions = mBindingActions;
+	        final int count = actions.length;
+	        for (int i = 0; i < count; i++) {
+	            final Action a = actions[i];
+	            if (a instanceof BindingAction) {
+	                if (targets[i] == null)
+	                    throw new ActionException("can't find view: 0x"
+	                            + Integer.toHexString(mBindingViewIds[i]));
+	                ((BindingAction) a).applyTo(targets[i]);
+	            } else {
+	                ((SetBoundOnClickIntent) a).applyTo(targets[i]);
 	            }
 	        }
 	    } catch (OutOfMemoryError e) {
@@ -298,6 +342,36 @@ public class BoundRemoteViews extends SimpleRemoteViews {
 	    }
 	}
 
+	private Action[] getBindingActions() {
+	    if (mBindingActions != null)
+	        return mBindingActions;
+
+	    final ArrayList<Action> actions = new ArrayList<Action>();
+	    if (mActions != null) {
+	        final int count = mActions.size();
+	        for (int i = 0; i < count; i++) {
+	            Action a = mActions.get(i);
+	            if (a instanceof BindingAction || a instanceof SetBoundOnClickIntent)
+	                actions.add(a);
+	        }
+	    }
+
+	    final int count = actions.size();
+	    mBindingActions = actions.toArray(new Action[count]);
+	    mBindingViewIds = new int[count];
+	    for (int i = 0; i < count; i++) {
+	        final Action a = mBindingActions[i];
+	        if (a instanceof BindingAction) {
+	            ((BindingAction) a).mBindingIndex = i;
+	            mBindingViewIds[i] = ((BindingAction) a).viewId;
+	        } else {
+	            ((SetBoundOnClickIntent) a).mBindingIndex = i;
+	            mBindingViewIds[i] = ((SetBoundOnClickIntent) a).mViewId;
+	        }
+	    }
+	    return mBindingActions;
+	}
+
     public void setBoundString(int viewId, String methodName, int cursorIndex, int defaultResource) {
     	addAction(new BindingAction(viewId, methodName, ReflectionAction.STRING,
     								cursorIndex, defaultResource));
@@ -0,0 +1,330 @@
+package mobi.intuitit.android.widget;
+
+import java.util.Map.Entry;
+
+import mobi.intuitit.android.widget.SimpleRemoteViews.ReflectionAction;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+/**
+ * Values of one cursor column for every row of a {@link BoundRemoteViews}
+ * list, stored in an array of the column type instead of one boxed object per
+ * cell. Rows whose value is null, or could not be read, are bound with the
+ * default value of the column.
+ *
+ * Columns are filled row by row in a single pass over the cursor. When the
+ * list is queried again, the new column reuses the arrays of the previous one
+ * if they are large enough.
+ */
+abstract class CursorColumn {
+
+	private static final String TAG = "CursorColumn";
+
+	final int mIndex;
+	final Object mDefault;
+	boolean[] mNull;
+
+	CursorColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+		mIndex = index;
+		mDefault = defaultValue;
+		mNull = previous != null && previous.mNull.length >= count ? previous.mNull
+				: new boolean[count];
+	}
+
+	/**
+	 * Reads the value of the current row of the cursor.
+	 */
+	final void read(Cursor cursor, int row) {
+		try {
+			mNull[row] = cursor.isNull(mIndex);
+			if (!mNull[row])
+				readValue(cursor, row);
+		} catch (Exception e) {
+			Log.w(TAG, "Unable to read column " + mIndex, e);
+			mNull[row] = true;
+		}
+	}
+
+	final Object getValueOrDefault(int row) {
+		if (row < 0 || row >= mNull.length || mNull[row])
+			return mDefault;
+		final Object value = getValue(row);
+		return value != null ? value : mDefault;
+	}
+
+	abstract void readValue(Cursor cursor, int row);
+
+	abstract Object getValue(int row);
+
+	/**
+	 * Returns the column of the specified reflection type.
+	 *
+	 * @param previous
+	 *            column of the same action in the previous cache, or null
+	 */
+	static CursorColumn create(int type, int index, Object defaultValue, int count,
+			CursorColumn previous) {
+		switch (type) {
+		case ReflectionAction.BYTE:
+		case ReflectionAction.SHORT:
+		case ReflectionAction.INT:
+		case ReflectionAction.CHAR:
+			return new IntColumn(type, index, defaultValue, count, previous);
+		case ReflectionAction.LONG:
+			return new LongColumn(index, defaultValue, count, previous);
+		case ReflectionAction.FLOAT:
+			return new FloatColumn(index, defaultValue, count, previous);
+		case ReflectionAction.DOUBLE:
+			return new DoubleColumn(index, defaultValue, count, previous);
+		case ReflectionAction.URI:
+			return new UriColumn(index, defaultValue, count, previous);
+		case ReflectionAction.BITMAP:
+			return new BlobColumn(index, defaultValue, count, previous);
+		default:
+			return new StringColumn(index, defaultValue, count, previous);
+		}
+	}
+
+	static class IntColumn extends CursorColumn {
+		final int mType;
+		final int[] mValues;
+
+		IntColumn(int type, int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mType = type;
+			mValues = previous instanceof IntColumn
+					&& ((IntColumn) previous).mValues.length >= count ? ((IntColumn) previous).mValues
+					: new int[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			if (mType == ReflectionAction.CHAR)
+				mValues[row] = cursor.getString(mIndex).charAt(0);
+			else
+				mValues[row] = cursor.getInt(mIndex);
+		}
+
+		@Override
+		Object getValue(int row) {
+			final int value = mValues[row];
+			switch (mType) {
+			case ReflectionAction.BYTE:
+				return (byte) value;
+			case ReflectionAction.SHORT:
+				return (short) value;
+			case ReflectionAction.CHAR:
+				return (char) value;
+			default:
+				return value;
+			}
+		}
+	}
+
+	static class LongColumn extends CursorColumn {
+		final long[] mValues;
+
+		LongColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mValues = previous instanceof LongColumn
+					&& ((LongColumn) previous).mValues.length >= count ? ((LongColumn) previous).mValues
+					: new long[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			mValues[row] = cursor.getLong(mIndex);
+		}
+
+		@Override
+		Object getValue(int row) {
+			return mValues[row];
+		}
+	}
+
+	static class FloatColumn extends CursorColumn {
+		final float[] mValues;
+
+		FloatColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mValues = previous instanceof FloatColumn
+					&& ((FloatColumn) previous).mValues.length >= count ? ((FloatColumn) previous).mValues
+					: new float[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			mValues[row] = cursor.getFloat(mIndex);
+		}
+
+		@Override
+		Object getValue(int row) {
+			return mValues[row];
+		}
+	}
+
+	static class DoubleColumn extends CursorColumn {
+		final double[] mValues;
+
+		DoubleColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mValues = previous instanceof DoubleColumn
+					&& ((DoubleColumn) previous).mValues.length >= count ? ((DoubleColumn) previous).mValues
+					: new double[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			mValues[row] = cursor.getDouble(mIndex);
+		}
+
+		@Override
+		Object getValue(int row) {
+			return mValues[row];
+		}
+	}
+
+	static class StringColumn extends CursorColumn {
+		final String[] mValues;
+
+		StringColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mValues = previous instanceof StringColumn
+					&& ((StringColumn) previous).mValues.length >= count ? ((StringColumn) previous).mValues
+					: new String[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			mValues[row] = cursor.getString(mIndex);
+		}
+
+		@Override
+		Object getValue(int row) {
+			return mValues[row];
+		}
+	}
+
+	static class UriColumn extends CursorColumn {
+		final Uri[] mValues;
+
+		UriColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			super(index, defaultValue, count, previous);
+			mValues = previous instanceof UriColumn
+					&& ((UriColumn) previous).mValues.length >= count ? ((UriColumn) previous).mValues
+					: new Uri[count];
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			mValues[row] = Uri.parse(cursor.getString(mIndex));
+		}
+
+		@Override
+		Object getValue(int row) {
+			return mValues[row];
+		}
+	}
+
+	/**
+	 * Encoded images of the rows, stored back to back in a single buffer and
+	 * decoded when bound. Decoded bitmaps are kept in a LRU cache, and kept
+	 * across queries for the rows whose image did not change.
+	 */
+	static class BlobColumn extends CursorColumn {
+		/**
+		 * Part of the heap the decoded bitmaps of a column may use.
+		 */
+		private static final int CACHE_HEAP_DIVIDER = 16;
+
+		final int[] mOffsets;
+		final int[] mLengths;
+		final int[] mHashes;
+		byte[] mData = new byte[0];
+		int mSize;
+
+		final LruCache<Integer, Bitmap> mDecoded = new LruCache<Integer, Bitmap>(
+				(int) (Runtime.getRuntime().maxMemory() / CACHE_HEAP_DIVIDER)) {
+			@Override
+			protected int sizeOf(Integer row, Bitmap bitmap) {
+				return bitmap.getRowBytes() * bitmap.getHeight();
+			}
+		};
+
+		// Column of the previous query whose decoded bitmaps may be kept
+		private BlobColumn mPrevious;
+
+		BlobColumn(int index, Object defaultValue, int count, CursorColumn previous) {
+			// The null flags of the previous column are still needed to
+			// compare the rows
+			super(index, defaultValue, count, null);
+			mOffsets = new int[count];
+			mLengths = new int[count];
+			mHashes = new int[count];
+			if (previous instanceof BlobColumn)
+				mPrevious = (BlobColumn) previous;
+		}
+
+		@Override
+		void readValue(Cursor cursor, int row) {
+			final byte[] blob = cursor.getBlob(mIndex);
+			if (mSize + blob.length > mData.length) {
+				final byte[] data = new byte[Math.max(mData.length * 2, mSize + blob.length)];
+				System.arraycopy(mData, 0, data, 0, mSize);
+				mData = data;
+			}
+			System.arraycopy(blob, 0, mData, mSize, blob.length);
+			mOffsets[row] = mSize;
+			mLengths[row] = blob.length;
+			mHashes[row] = hash(mData, mSize, blob.length);
+			mSize += blob.length;
+		}
+
+		/**
+		 * Takes over the bitmaps decoded for the rows whose image is the
+		 * same as in the previous query, once every row is read.
+		 */
+		void keepDecoded() {
+			final BlobColumn previous = mPrevious;
+			mPrevious = null;
+			if (previous == null)
+				return;
+
+			for (Entry<Integer, Bitmap> entry : previous.mDecoded.snapshot().entrySet()) {
+				final int row = entry.getKey();
+				if (row < mNull.length && row < previous.mNull.length && !mNull[row]
+						&& !previous.mNull[row] && mLengths[row] == previous.mLengths[row]
+						&& mHashes[row] == previous.mHashes[row])
+					mDecoded.put(row, entry.getValue());
+			}
+		}
+
+		@Override
+		Object getValue(int row) {
+			Bitmap bitmap = mDecoded.get(row);
+			if (bitmap == null) {
+				try {
+					bitmap = BitmapFactory.decodeByteArray(mData, mOffsets[row], mLengths[row]);
+				} catch (OutOfMemoryError e) {
+					Log.w(TAG, "Out of memory decoding row " + row);
+					mDecoded.evictAll();
+					return null;
+				}
+				if (bitmap != null)
+					mDecoded.put(row, bitmap);
+			}
+			return bitmap;
+		}
+
+		private static int hash(byte[] data, int offset, int length) {
+			int hash = 1;
+			for (int i = offset, end = offset + length; i < end; i++)
+				hash = 31 * hash + data[i];
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package mobi.intuitit.android.widget;
+
+import java.util.ArrayList;
+
+import android.graphics.drawable.AnimationDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Drives the frame animations of the widgets from a single timer.
+ *
+ * An {@link AnimationDrawable} started on its own schedules a callback for
+ * each of its frames, so several animated widgets keep as many timers
+ * running. Animations started here are only advanced by one ticker, which
+ * wakes up at the next frame change of any of them, rounded up to the
+ * display frame period so frames changing together are drawn in the same
+ * pass.
+ *
+ * Frames are shared between the widgets using the same animation resource,
+ * through the drawable cache of their package resources.
+ *
+ * All the methods must be called from the UI thread.
+ */
+public class FrameAnimationTicker {
+
+	/**
+	 * Period the frame changes are aligned on, about one display frame.
+	 */
+	private static final long FRAME_PERIOD = 16;
+
+	private static FrameAnimationTicker instance;
+
+	public static FrameAnimationTicker getInstance() {
+		if (instance == null)
+			instance = new FrameAnimationTicker();
+		return instance;
+	}
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ArrayList<Running> mRunning = new ArrayList<Running>();
+	private long mScheduledTime = -1;
+
+	private final Runnable mTickRunnable = new Runnable() {
+		public void run() {
+			mScheduledTime = -1;
+			tick();
+		}
+	};
+
+	private FrameAnimationTicker() {
+	}
+
+	/**
+	 * Starts the specified animation from its first frame, restarting it if
+	 * it is already running.
+	 */
+	public void start(AnimationDrawable drawable) {
+		stop(drawable);
+
+		final Running running = new Running(drawable, SystemClock.uptimeMillis());
+		if (running.mDuration <= 0)
+			return;
+
+		drawable.selectDrawable(0);
+		mRunning.add(running);
+		tick();
+	}
+
+	/**
+	 * Stops the specified animation on its current frame.
+	 */
+	public void stop(AnimationDrawable drawable) {
+		// Animations started on their own are stopped too
+		drawable.stop();
+
+		for (int i = mRunning.size() - 1; i >= 0; i--) {
+			if (mRunning.get(i).mDrawable == drawable)
+				mRunning.remove(i);
+		}
+		if (mRunning.isEmpty())
+			cancelTick();
+	}
+
+	private void tick() {
+		final long now = SystemClock.uptimeMillis();
+		long next = Long.MAX_VALUE;
+
+		for (int i = mRunning.size() - 1; i >= 0; i--) {
+			final Running running = mRunning.get(i);
+
+			// Drop the animations whose view is gone
+			if (running.mDrawable.getCallback() == null) {
+				mRunning.remove(i);
+				continue;
+			}
+
+			final long frameEnd = running.update(now);
+			if (frameEnd < 0)
+				mRunning.remove(i);
+			else if (frameEnd < next)
+				next = frameEnd;
+		}
+
+		if (next == Long.MAX_VALUE) {
+			cancelTick();
+			return;
+		}
+
+		// Align on the frame period so close frame changes share a tick
+		next = (next + FRAME_PERIOD - 1) / FRAME_PERIOD * FRAME_PERIOD;
+		if (next != mScheduledTime) {
+			mHandler.removeCallbacks(mTickRunnable);
+			mScheduledTime = next;
+			mHandler.postAtTime(mTickRunnable, next);
+		}
+	}
+
+	private void cancelTick() {
+		mHandler.removeCallbacks(mTickRunnable);
+		mScheduledTime = -1;
+	}
+
+	/**
+	 * An animation started on the ticker.
+	 */
+	private static class Running {
+		final AnimationDrawable mDrawable;
+		final long mStartTime;
+		final boolean mOneShot;
+		// Time each frame ends at, from the start of the animation
+		final int[] mFrameEnds;
+		final int mDuration;
+		int mFrame;
+
+		Running(AnimationDrawable drawable, long startTime) {
+			mDrawable = drawable;
+			mStartTime = startTime;
+			mOneShot = drawable.isOneShot();
+
+			final int count = drawable.getNumberOfFrames();
+			mFrameEnds = new int[count];
+			int end = 0;
+			for (int i = 0; i < count; i++) {
+				end += Math.max(drawable.getDuration(i), 1);
+				mFrameEnds[i] = end;
+			}
+			mDuration = count > 1 ? end : 0;
+		}
+
+		/**
+		 * Shows the frame of the specified time.
+		 *
+		 * @return The time the frame ends at, or -1 once a one shot
+		 *         animation is over
+		 */
+		long update(long now) {
+			long elapsed = now - mStartTime;
+			final long loop = elapsed / mDuration;
+			if (mOneShot && loop > 0) {
+				select(mFrameEnds.length - 1);
+				return -1;
+			}
+			elapsed -= loop * mDuration;
+
+			int frame = 0;
+			while (mFrameEnds[frame] <= elapsed)
+				frame++;
+			select(frame);
+
+			return mStartTime + loop * mDuration + mFrameEnds[frame];
+		}
+
+		private void select(int frame) {
+			if (frame != mFrame) {
+				mFrame = frame;
+				mDrawable.selectDrawable(frame);
+			}
+		}
+	}
+}
@@ -1,24 +1,90 @@
 package mobi.intuitit.android.widget;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.SoftReference;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map.Entry;
+import java.util.WeakHashMap;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
 import android.util.Log;
+import android.widget.ImageView;
 
+/**
+ * Images shown by the IMAGEURI and IMAGERESOURCE cells of scrollable widgets.
+ *
+ * Images are loaded on a worker thread, a single load running for each image
+ * however many views wait for it, and kept in a LRU cache whose budget is
+ * counted in bytes. Content and file URIs are also stored downscaled in a disk
+ * cache, when a directory is set, so they are not read from their provider
+ * again once evicted from memory. URIs are cached once per size bucket, the
+ * target size of their view rounded up to a power of two, so a larger view
+ * never shows the copy decoded for a smaller one. The disk cache is bounded in size, the
+ * oldest files being deleted first, and its files are read again from their
+ * URI once the source is newer or, for content URIs, after a day.
+ *
+ * Each widget holds a reference on the images it shows; an image is dropped
+ * once released by every widget using it.
+ *
+ * All the methods must be called from the UI thread.
+ */
 public class ListViewImageManager {
 
 	private static final String TAG = "ListViewImageManager";
 
 	private static final boolean LOGD = false;
 
+	/**
+	 * Part of the heap the cached images may use.
+	 */
+	private static final int CACHE_HEAP_DIVIDER = 8;
+
+	/**
+	 * Size decoded URIs are downscaled to when their view is not laid out yet.
+	 */
+	private static final int DEFAULT_DECODE_SIZE = 256;
+
+	/**
+	 * Smallest size bucket decoded URIs are downscaled to.
+	 */
+	private static final int MIN_DECODE_SIZE = 32;
+
+	/**
+	 * Bytes the disk cache may use before its oldest files are deleted.
+	 */
+	private static final long DISK_CACHE_MAX_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * Time content URIs are read from the disk cache before being read from
+	 * their provider again, as they cannot tell when they changed.
+	 */
+	private static final long DISK_CACHE_MAX_AGE = 24 * 60 * 60 * 1000;
+
+	private static final String URI_KEY_PREFIX = "uri:";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	private static ListViewImageManager instance;
 
 	public static ListViewImageManager getInstance() {
@@ -27,170 +93,511 @@ public class ListViewImageManager {
 		return instance;
 	}
 
-	private final HashMap<String, SoftReference<Drawable>> mCacheForImageByUri = new HashMap<String, SoftReference<Drawable>>();
-	private final HashMap<Integer, ArrayList<String>> mWidgetCacheUsageByUri = new HashMap<Integer, ArrayList<String>>();
+	private static final HandlerThread sWorkerThread;
+	private static final Handler sWorkerQueue;
+
+	static {
+		sWorkerThread = new HandlerThread("ListViewImageManager-worker",
+				Process.THREAD_PRIORITY_BACKGROUND);
+		sWorkerThread.start();
+		sWorkerQueue = new Handler(sWorkerThread.getLooper());
+	}
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	private final LruCache<String, Drawable> mCache = new LruCache<String, Drawable>(
+			(int) (Runtime.getRuntime().maxMemory() / CACHE_HEAP_DIVIDER)) {
+		@Override
+		protected int sizeOf(String key, Drawable drawable) {
+			return getByteCount(drawable);
+		}
+
+		@Override
+		protected void entryRemoved(boolean evicted, String key, Drawable oldValue,
+				Drawable newValue) {
+			if (newValue == null)
+				forget(key);
+		}
+	};
+
+	// Widgets using each cached image, and images used by each widget
+	private final HashMap<String, HashSet<Integer>> mImageUsers = new HashMap<String, HashSet<Integer>>();
+	private final HashMap<Integer, HashSet<String>> mWidgetImages = new HashMap<Integer, HashSet<String>>();
+
+	// Loads running, by image key
+	private final HashMap<String, LoadTask> mLoads = new HashMap<String, LoadTask>();
+
+	// Image each view waits for
+	private final WeakHashMap<ImageView, String> mWaitingViews = new WeakHashMap<ImageView, String>();
+
+	private File mDiskCacheDir;
+
+	// Bytes used by the disk cache directory, -1 until measured. Only used on
+	// the worker thread.
+	private File mDiskCacheSizeDir;
+	private long mDiskCacheSize = -1;
+
+	/**
+	 * Sets the directory of the disk cache, null to disable it.
+	 */
+	public void setDiskCacheDir(File dir) {
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			Log.w(TAG, "Cannot create disk cache " + dir);
+			dir = null;
+		}
+		mDiskCacheDir = dir;
+	}
+
+	/**
+	 * Shows the image of a content, file or path URI in the specified view,
+	 * once loaded if it is not cached yet.
+	 */
+	public void bindImageFromUri(ImageView view, Context context, int widgetId, String imgUri) {
+		final Uri uri = Uri.parse(imgUri);
+		final String scheme = uri.getScheme();
+		if (ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme)) {
+			Log.w("ImageView", "Unable to open content: " + uri);
+			unbind(view);
+			view.setImageDrawable(null);
+			return;
+		}
+
+		final int size = getSizeBucket(getTargetSize(view));
+		final String key = URI_KEY_PREFIX + size + ":" + imgUri;
+		final File diskFile = ContentResolver.SCHEME_CONTENT.equals(scheme)
+				|| ContentResolver.SCHEME_FILE.equals(scheme) ? getDiskFile(imgUri, size) : null;
+
+		bind(view, widgetId, key, new UriLoadTask(key, context, uri, diskFile, size));
+	}
+
+	/**
+	 * Shows a drawable resource of the package of the specified context in
+	 * the given view, once loaded if it is not cached yet.
+	 */
+	public void bindImageFromId(ImageView view, Context context, int widgetId, int imgId) {
+		final String key = "res:" + context.getPackageName() + "/" + imgId;
+		bind(view, widgetId, key, new ResourceLoadTask(key, context.getResources(), imgId));
+	}
+
+	/**
+	 * Stops waiting for an image in the specified view, before another
+	 * content is put in it.
+	 */
+	public void unbind(ImageView view) {
+		mWaitingViews.remove(view);
+	}
 
-	private final HashMap<Integer, SoftReference<Drawable>> mCacheForImageById = new HashMap<Integer, SoftReference<Drawable>>();
-	private final HashMap<Integer, ArrayList<Integer>> mWidgetCacheUsageById = new HashMap<Integer, ArrayList<Integer>>();
+	private void bind(ImageView view, int widgetId, String key, LoadTask task) {
+		use(widgetId, key);
 
-	public Drawable getImageFromUri(Context mContext, int widgetId, String imgUri) {
-		Drawable d = null;
-		if (mCacheForImageByUri.containsKey(imgUri) && mCacheForImageByUri.get(imgUri) != null) {
-			SoftReference<Drawable> ref = mCacheForImageByUri.get(imgUri);
-			if (ref != null) {
-				d = ref.get();
+		final Drawable drawable = mCache.get(key);
+		if (drawable != null) {
+			if (LOGD)
+				Log.d(TAG, "image restored " + key);
+			mWaitingViews.remove(view);
+			view.setImageDrawable(drawable);
+			return;
+		}
+
+		mWaitingViews.put(view, key);
+		view.setImageDrawable(null);
+
+		// Views showing the same image share a single load
+		if (!mLoads.containsKey(key)) {
+			mLoads.put(key, task);
+			sWorkerQueue.post(task);
+		}
+	}
+
+	private void onLoaded(String key, Drawable drawable) {
+		mLoads.remove(key);
+		if (drawable == null) {
+			if (mCache.get(key) == null)
+				forget(key);
+			return;
+		}
+
+		// Only keep images still used by a widget
+		if (mImageUsers.containsKey(key))
+			mCache.put(key, drawable);
+
+		final ArrayList<ImageView> views = new ArrayList<ImageView>();
+		for (Entry<ImageView, String> entry : mWaitingViews.entrySet()) {
+			if (key.equals(entry.getValue()))
+				views.add(entry.getKey());
+		}
+		for (ImageView view : views) {
+			mWaitingViews.remove(view);
+			view.setImageDrawable(drawable);
+		}
+	}
+
+	private void use(int widgetId, String key) {
+		HashSet<Integer> users = mImageUsers.get(key);
+		if (users == null) {
+			users = new HashSet<Integer>();
+			mImageUsers.put(key, users);
+		}
+		users.add(widgetId);
+
+		HashSet<String> images = mWidgetImages.get(widgetId);
+		if (images == null) {
+			images = new HashSet<String>();
+			mWidgetImages.put(widgetId, images);
+		}
+		images.add(key);
+	}
+
+	/**
+	 * Drops the usage records of an image no longer cached.
+	 */
+	private void forget(String key) {
+		final HashSet<Integer> users = mImageUsers.remove(key);
+		if (users == null)
+			return;
+		for (Integer widgetId : users) {
+			final HashSet<String> images = mWidgetImages.get(widgetId);
+			if (images != null) {
+				images.remove(key);
+				if (images.isEmpty())
+					mWidgetImages.remove(widgetId);
 			}
 		}
+	}
 
-		if (LOGD)
-			if (d != null)
-				Log.d(TAG, "image URI restored (width = " + d.getMinimumWidth() + " / weight = " + d.getMinimumHeight()
-						+ ")");
-
-		if (d == null) {
-			Uri mUri = Uri.parse(imgUri);
-			String scheme = mUri.getScheme();
-			if (ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme)) {
-				// try {
-				// // Load drawable through Resources, to get the source density
-				// information
-				// ContentResolver.OpenResourceIdResult r =
-				// mContext.getContentResolver().getResourceId(mUri);
-				// d = r.r.getDrawable(r.id);
-				// } catch (Exception e) {
-				// Log.w("ImageView", "Unable to open content: " + mUri, e);
-				// }
-				Log.w("ImageView", "Unable to open content: " + mUri);
-			} else if (ContentResolver.SCHEME_CONTENT.equals(scheme) || ContentResolver.SCHEME_FILE.equals(scheme)) {
-				try {
-					d = Drawable.createFromStream(mContext.getContentResolver().openInputStream(mUri), null);
-				} catch (Exception e) {
-					Log.w("ImageView", "Unable to open content: " + mUri, e);
+	/**
+	 * Releases the images used by the specified widget. Images no other
+	 * widget uses are dropped from memory, the disk cache is kept.
+	 */
+	public void releaseWidget(int widgetId) {
+		final HashSet<String> images = mWidgetImages.remove(widgetId);
+		if (images == null)
+			return;
+
+		for (String key : images) {
+			final HashSet<Integer> users = mImageUsers.get(key);
+			if (users != null) {
+				users.remove(widgetId);
+				if (users.isEmpty()) {
+					mImageUsers.remove(key);
+					mCache.remove(key);
 				}
-			} else {
-				d = Drawable.createFromPath(mUri.toString());
 			}
+		}
+	}
 
-			if (LOGD)
-				Log.d(TAG, "image URI decoded (width = " + d.getMinimumWidth() + " / weight = " + d.getMinimumHeight()
-						+ ")");
-			mCacheForImageByUri.put(imgUri, new SoftReference<Drawable>(d));
+	public void unbindDrawables() {
+		for (Drawable drawable : mCache.snapshot().values())
+			drawable.setCallback(null);
+	}
+
+	public void clearCache() {
+		mCache.evictAll();
+	}
 
-			// store image key usage
-			ArrayList<String> list = mWidgetCacheUsageByUri.get(widgetId);
-			if (list == null)
-				list = new ArrayList<String>();
-			list.add(imgUri);
-			mWidgetCacheUsageByUri.put(widgetId, list);
+	/**
+	 * Drops every image used by the specified widget, from memory and disk.
+	 */
+	public String clearCacheForWidget(Context ctx, int widgetId) {
+		final HashSet<String> images = mWidgetImages.get(widgetId);
+		if (images == null)
+			return null;
+
+		for (String key : new ArrayList<String>(images)) {
+			final Drawable drawable = mCache.remove(key);
+			if (drawable != null)
+				drawable.setCallback(null);
+			forget(key);
+			Log.d(TAG, "image removed from cache : " + key);
 
+			if (key.startsWith(URI_KEY_PREFIX)) {
+				final int separator = key.indexOf(':', URI_KEY_PREFIX.length());
+				final File diskFile = getDiskFile(key.substring(separator + 1), Integer
+						.parseInt(key.substring(URI_KEY_PREFIX.length(), separator)));
+				if (diskFile != null)
+					diskFile.delete();
+			}
 		}
-		return d;
+		mWidgetImages.remove(widgetId);
+
+		return null;
 	}
 
-	public Drawable getImageFromId(Context ctx, int widgetId, int imgId) {
-		Drawable drawable = null;
-		if (mCacheForImageById.containsKey(imgId) && mCacheForImageById.get(imgId) != null) {
-			SoftReference<Drawable> ref = mCacheForImageById.get(imgId);
-			if (ref != null) {
-				drawable = ref.get();
-			} else {
-				if (LOGD)
-					Log.d(TAG, "image ID missing !!!!!!!!!!");
+	/**
+	 * Returns the disk cache file of the specified URI decoded for a size
+	 * bucket, null if the disk cache is disabled.
+	 */
+	private File getDiskFile(String imgUri, int size) {
+		if (mDiskCacheDir == null)
+			return null;
+		return new File(mDiskCacheDir, digest(imgUri) + "_" + size);
+	}
+
+	/**
+	 * Returns the MD5 of the specified URI in hexadecimal, so distinct URIs
+	 * never share a disk file.
+	 */
+	private static String digest(String imgUri) {
+		final byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("MD5").digest(imgUri.getBytes("UTF-8"));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+
+		final char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Counts a file just stored in the disk cache, deleting the oldest files
+	 * once the cache is over its size. Called on the worker thread.
+	 */
+	private void onDiskFileStored(File file) {
+		final File dir = file.getParentFile();
+		if (mDiskCacheSize < 0 || !dir.equals(mDiskCacheSizeDir)) {
+			mDiskCacheSizeDir = dir;
+			mDiskCacheSize = 0;
+			final File[] files = dir.listFiles();
+			if (files != null) {
+				for (File f : files)
+					mDiskCacheSize += f.length();
 			}
+		} else {
+			// Replaced files are counted twice until the next trim
+			mDiskCacheSize += file.length();
 		}
 
-		if (LOGD)
-			if (drawable != null)
-				Log.d(TAG, "image ID restored");
+		if (mDiskCacheSize > DISK_CACHE_MAX_SIZE)
+			trimDiskCache(dir);
+	}
 
-		if (drawable == null) {
-			if (LOGD)
-				Log.d(TAG, "image ID decoded");
+	private void trimDiskCache(File dir) {
+		final File[] files = dir.listFiles();
+		if (files == null)
+			return;
 
-			InputStream rawResource = ctx.getResources().openRawResource(imgId);
-			try
-			{
-				drawable = Drawable.createFromStream(rawResource, ctx.getResources().getResourceName(imgId));
+		// Reads the dates once, to sort the files oldest first
+		final long[] modified = new long[files.length];
+		final Integer[] order = new Integer[files.length];
+		long size = 0;
+		for (int i = 0; i < files.length; i++) {
+			size += files[i].length();
+			modified[i] = files[i].lastModified();
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				final long ma = modified[a];
+				final long mb = modified[b];
+				return ma < mb ? -1 : (ma == mb ? 0 : 1);
 			}
-			finally
-			{
-				try {
-					rawResource.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+		});
+
+		for (int i = 0; i < order.length && size > DISK_CACHE_MAX_SIZE; i++) {
+			final File file = files[order[i]];
+			final long length = file.length();
+			if (file.delete()) {
+				size -= length;
+				if (LOGD)
+					Log.d(TAG, "disk cache file evicted " + file.getName());
 			}
+		}
+		mDiskCacheSize = size;
+	}
 
-			mCacheForImageById.put(imgId, new SoftReference<Drawable>(drawable));
+	private static int getTargetSize(ImageView view) {
+		int size = Math.max(view.getWidth(), view.getHeight());
+		if (size <= 0 && view.getLayoutParams() != null)
+			size = Math.max(view.getLayoutParams().width, view.getLayoutParams().height);
+		return size > 0 ? size : DEFAULT_DECODE_SIZE;
+	}
 
-			// store image key usage
-			ArrayList<Integer> list = mWidgetCacheUsageById.get(widgetId);
-			if (list == null)
-				list = new ArrayList<Integer>();
-			list.add(imgId);
-			mWidgetCacheUsageById.put(widgetId, list);
+	/**
+	 * Rounds a target size up to a power of two, so views of close sizes
+	 * share the same decoded image.
+	 */
+	private static int getSizeBucket(int size) {
+		int bucket = MIN_DECODE_SIZE;
+		while (bucket < size)
+			bucket *= 2;
+		return bucket;
+	}
 
+	private static int getByteCount(Drawable drawable) {
+		if (drawable instanceof BitmapDrawable) {
+			final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+			if (bitmap != null)
+				return bitmap.getRowBytes() * bitmap.getHeight();
 		}
-		return drawable;
+		// Estimate other drawables as ARGB_8888 bitmaps
+		return Math.max(drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4, 1);
 	}
 
-	public void unbindDrawables() {
+	/**
+	 * Loads an image on the worker thread and hands it to
+	 * {@link ListViewImageManager#onLoaded} on the UI thread.
+	 */
+	private abstract class LoadTask implements Runnable {
+		final String mKey;
 
-		for (Entry<Integer, SoftReference<Drawable>> drawableEntry : mCacheForImageById.entrySet()) {
-			if ((drawableEntry != null) && (drawableEntry.getValue() != null)
-					&& (drawableEntry.getValue().get() != null))
-				drawableEntry.getValue().get().setCallback(null);
+		LoadTask(String key) {
+			mKey = key;
 		}
 
-		for (Entry<String, SoftReference<Drawable>> drawableEntry : mCacheForImageByUri.entrySet()) {
-			if ((drawableEntry != null) && (drawableEntry.getValue() != null)
-					&& (drawableEntry.getValue().get() != null))
-				drawableEntry.getValue().get().setCallback(null);
+		public void run() {
+			Drawable drawable = null;
+			boolean outOfMemory = false;
+			try {
+				drawable = load();
+			} catch (OutOfMemoryError e) {
+				Log.w(TAG, "Out of memory loading " + mKey);
+				outOfMemory = true;
+			} catch (Exception e) {
+				Log.w(TAG, "Unable to load " + mKey, e);
+			}
+
+			final Drawable result = drawable;
+			final boolean trim = outOfMemory;
+			mHandler.post(new Runnable() {
+				public void run() {
+					if (trim)
+						// Make room before the next loads
+						mCache.trimToSize(mCache.maxSize() / 2);
+					onLoaded(mKey, result);
+				}
+			});
 		}
-	}
 
-	public void clearCache() {
-		mCacheForImageById.clear();
-		mCacheForImageByUri.clear();
+		abstract Drawable load() throws IOException;
 	}
 
-	public String clearCacheForWidget(Context ctx, int widgetId) {
-		Drawable drawable = null;
-		ArrayList<String> listByUri = mWidgetCacheUsageByUri.get(widgetId);
-		if (listByUri != null) {
-			for (String imgUri : listByUri) {
-				if (mCacheForImageByUri.containsKey(imgUri) && mCacheForImageByUri.get(imgUri) != null) {
-					SoftReference<Drawable> ref = mCacheForImageByUri.get(imgUri);
-					if (ref != null) {
-						drawable = ref.get();
-						if (drawable != null)
-							drawable.setCallback(null);
-					}
-					mCacheForImageByUri.remove(imgUri);
-					Log.d(TAG, "image URI removed from cache : " + imgUri);
+	private class UriLoadTask extends LoadTask {
+		final Context mContext;
+		final Uri mUri;
+		final File mDiskFile;
+		final int mTargetSize;
+
+		UriLoadTask(String key, Context context, Uri uri, File diskFile, int targetSize) {
+			super(key);
+			mContext = context;
+			mUri = uri;
+			mDiskFile = diskFile;
+			mTargetSize = targetSize;
+		}
+
+		@Override
+		Drawable load() throws IOException {
+			final Resources resources = mContext.getResources();
+
+			if (mDiskFile != null && mDiskFile.exists() && isDiskFileFresh()) {
+				final Bitmap bitmap = BitmapFactory.decodeFile(mDiskFile.getPath());
+				if (bitmap != null) {
+					if (LOGD)
+						Log.d(TAG, "image read from disk " + mKey);
+					return new BitmapDrawable(resources, bitmap);
 				}
 			}
+
+			if (mDiskFile == null && !ContentResolver.SCHEME_CONTENT.equals(mUri.getScheme())
+					&& !ContentResolver.SCHEME_FILE.equals(mUri.getScheme()))
+				return Drawable.createFromPath(mUri.toString());
+
+			final BitmapFactory.Options options = new BitmapFactory.Options();
+			options.inJustDecodeBounds = true;
+			decode(options);
+			if (options.outWidth <= 0 || options.outHeight <= 0)
+				return null;
+
+			options.inJustDecodeBounds = false;
+			options.inSampleSize = BlobImageLoader.computeSampleSize(options.outWidth,
+					options.outHeight, mTargetSize, mTargetSize);
+			final Bitmap bitmap = decode(options);
+			if (bitmap == null)
+				return null;
+
+			if (mDiskFile != null)
+				store(bitmap);
+
+			if (LOGD)
+				Log.d(TAG, "image URI decoded " + mKey);
+			return new BitmapDrawable(resources, bitmap);
+		}
+
+		/**
+		 * Returns true if the disk file still holds the image of the URI.
+		 */
+		private boolean isDiskFileFresh() {
+			final long stored = mDiskFile.lastModified();
+			if (ContentResolver.SCHEME_FILE.equals(mUri.getScheme()))
+				return new File(mUri.getPath()).lastModified() <= stored;
+			return System.currentTimeMillis() - stored < DISK_CACHE_MAX_AGE;
+		}
+
+		private Bitmap decode(BitmapFactory.Options options) throws IOException {
+			final InputStream in = mContext.getContentResolver().openInputStream(mUri);
+			try {
+				return BitmapFactory.decodeStream(in, null, options);
+			} finally {
+				in.close();
+			}
 		}
-		mWidgetCacheUsageByUri.remove(widgetId);
-
-		ArrayList<Integer> listById = mWidgetCacheUsageById.get(widgetId);
-		if (listById != null) {
-			for (Integer imgId : listById) {
-				if (mCacheForImageById.containsKey(imgId) && mCacheForImageById.get(imgId) != null) {
-					SoftReference<Drawable> ref = mCacheForImageById.get(imgId);
-					if (ref != null) {
-						drawable = ref.get();
-						if (drawable != null)
-							drawable.setCallback(null);
+
+		private void store(Bitmap bitmap) {
+			final File tmp = new File(mDiskFile.getPath() + ".tmp");
+			FileOutputStream out = null;
+			try {
+				out = new FileOutputStream(tmp);
+				bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+				out.close();
+				out = null;
+				if (tmp.renameTo(mDiskFile))
+					onDiskFileStored(mDiskFile);
+				else
+					tmp.delete();
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to store " + mKey, e);
+				tmp.delete();
+			} finally {
+				if (out != null) {
+					try {
+						out.close();
+					} catch (IOException e) {
+						// Ignore
 					}
-					mCacheForImageById.remove(imgId);
-					Log.d(TAG, "image ID removed from cache : " + imgId);
 				}
 			}
 		}
-		mWidgetCacheUsageById.remove(widgetId);
+	}
 
-		return null;
+	private class ResourceLoadTask extends LoadTask {
+		final Resources mResources;
+		final int mId;
+
+		ResourceLoadTask(String key, Resources resources, int id) {
+			super(key);
+			mResources = resources;
+			mId = id;
+		}
+
+		@Override
+		Drawable load() throws IOException {
+			if (LOGD)
+				Log.d(TAG, "image ID decoded");
+
+			InputStream rawResource = mResources.openRawResource(mId);
+			try {
+				return Drawable.createFromStream(rawResource, mResources.getResourceName(mId));
+			} finally {
+				rawResource.close();
+			}
+		}
 	}
 
 }
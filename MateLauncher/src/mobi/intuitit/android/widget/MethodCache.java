@@ -0,0 +1,45 @@
+package mobi.intuitit.android.widget;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+
+/**
+ * Methods called by the reflection actions of remote views, by class and
+ * signature. Lists apply the same actions to every row, so each method is
+ * only looked up once.
+ *
+ * Safe to use from any thread.
+ */
+final class MethodCache {
+
+	private static final HashMap<Class<?>, HashMap<String, Method>> sMethods = new HashMap<Class<?>, HashMap<String, Method>>();
+
+	private MethodCache() {
+	}
+
+	/**
+	 * Returns the public method of the specified class taking a single
+	 * parameter.
+	 *
+	 * @param signature
+	 *            Key of the method in the cache, unique for its name and
+	 *            parameter type
+	 */
+	static Method getMethod(Class<?> klass, String name, Class<?> param,
+			String signature) throws NoSuchMethodException {
+		synchronized (sMethods) {
+			HashMap<String, Method> methods = sMethods.get(klass);
+			if (methods == null) {
+				methods = new HashMap<String, Method>();
+				sMethods.put(klass, methods);
+			}
+
+			Method method = methods.get(signature);
+			if (method == null) {
+				method = klass.getMethod(name, param);
+				methods.put(signature, method);
+			}
+			return method;
+		}
+	}
+}
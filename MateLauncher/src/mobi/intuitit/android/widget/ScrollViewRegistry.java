@@ -0,0 +1,240 @@
+package mobi.intuitit.android.widget;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+/**
+ * Scrollable widgets made by {@link WidgetSpace}, keyed by widget id and list
+ * view id.
+ *
+ * The adapters outlive the launcher activity so a recreated workspace can
+ * restore them, but their list views are only weakly referenced. Widgets
+ * showing the same data URI share a single data source: one content observer
+ * whose changes reload every list of the URI, paused while none of them is in
+ * the viewport.
+ *
+ * Entries are added and removed from the UI thread. The maps are concurrent,
+ * so they may be read from any thread.
+ */
+final class ScrollViewRegistry {
+
+	/**
+	 * State of one scrollable list of a widget.
+	 */
+	static final class ScrollViewInfos {
+		final int widgetId;
+		final int viewId;
+		final String dataUri;
+		final BaseAdapter lvAdapter;
+
+		private volatile WeakReference<AbsListView> mListView;
+		volatile boolean visible = true;
+
+		ScrollViewInfos(int widgetId, int viewId, String dataUri, BaseAdapter adapter) {
+			this.widgetId = widgetId;
+			this.viewId = viewId;
+			this.dataUri = dataUri;
+			lvAdapter = adapter;
+		}
+
+		/**
+		 * Returns the list view, null if it was released or collected.
+		 */
+		AbsListView getListView() {
+			final WeakReference<AbsListView> ref = mListView;
+			return ref != null ? ref.get() : null;
+		}
+
+		void setListView(AbsListView lv) {
+			mListView = lv != null ? new WeakReference<AbsListView>(lv) : null;
+		}
+	}
+
+	/**
+	 * Content observer shared by the lists showing the same data URI.
+	 */
+	private static final class DataSource implements WidgetDataChangeListener {
+		final String mUri;
+		final CopyOnWriteArrayList<ScrollViewInfos> mUsers = new CopyOnWriteArrayList<ScrollViewInfos>();
+		final WidgetContentObserver mObserver;
+
+		DataSource(String uri) {
+			mUri = uri;
+			mObserver = new WidgetContentObserver(new Handler(Looper.getMainLooper()), this);
+		}
+
+		public void onChange() {
+			for (ScrollViewInfos infos : mUsers)
+				regenerate(infos.lvAdapter);
+		}
+
+		void updatePaused() {
+			boolean visible = false;
+			for (ScrollViewInfos infos : mUsers) {
+				if (infos.visible) {
+					visible = true;
+					break;
+				}
+			}
+			mObserver.setPaused(!visible);
+		}
+	}
+
+	private final ConcurrentHashMap<Long, ScrollViewInfos> mInfos = new ConcurrentHashMap<Long, ScrollViewInfos>();
+	private final ConcurrentHashMap<String, DataSource> mSources = new ConcurrentHashMap<String, DataSource>();
+
+	private static Long key(int widgetId, int viewId) {
+		return ((long) widgetId << 32) | (viewId & 0xffffffffL);
+	}
+
+	ScrollViewInfos get(int widgetId, int viewId) {
+		return mInfos.get(key(widgetId, viewId));
+	}
+
+	/**
+	 * Finds a list of a widget by view id, or by data URI if the view id is
+	 * not known.
+	 */
+	ScrollViewInfos find(int widgetId, int viewId, String dataUri) {
+		if (viewId > 0)
+			return get(widgetId, viewId);
+
+		for (ScrollViewInfos infos : mInfos.values()) {
+			if (infos.widgetId == widgetId && (dataUri == null || dataUri.equals(infos.dataUri)))
+				return infos;
+		}
+		return null;
+	}
+
+	Collection<ScrollViewInfos> getAll() {
+		return mInfos.values();
+	}
+
+	boolean isWidgetScrollable(int widgetId) {
+		for (ScrollViewInfos infos : mInfos.values()) {
+			if (infos.widgetId == widgetId)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Registers a new list and starts observing its data URI if no other list
+	 * does yet. An existing list with the same ids is removed first.
+	 */
+	ScrollViewInfos add(Context context, int widgetId, int viewId, String dataUri,
+			BaseAdapter adapter, boolean visible) {
+		remove(context, widgetId, viewId);
+
+		final ScrollViewInfos infos = new ScrollViewInfos(widgetId, viewId, dataUri, adapter);
+		infos.visible = visible;
+		mInfos.put(key(widgetId, viewId), infos);
+
+		DataSource source = mSources.get(dataUri);
+		if (source == null) {
+			source = new DataSource(dataUri);
+			mSources.put(dataUri, source);
+			context.getApplicationContext().getContentResolver().registerContentObserver(
+					Uri.parse(dataUri), true, source.mObserver);
+		}
+		source.mUsers.add(infos);
+		source.updatePaused();
+
+		return infos;
+	}
+
+	/**
+	 * Unregisters a list, closes its data and stops observing its data URI
+	 * if no other list uses it.
+	 *
+	 * @return The removed list, or null if there was none
+	 */
+	ScrollViewInfos remove(Context context, int widgetId, int viewId) {
+		final ScrollViewInfos infos = mInfos.remove(key(widgetId, viewId));
+		if (infos == null)
+			return null;
+
+		infos.setListView(null);
+		if (infos.lvAdapter instanceof WidgetListAdapter)
+			((WidgetListAdapter) infos.lvAdapter).clearDataCache();
+
+		final DataSource source = mSources.get(infos.dataUri);
+		if (source != null) {
+			source.mUsers.remove(infos);
+			if (source.mUsers.isEmpty()) {
+				mSources.remove(infos.dataUri);
+				context.getApplicationContext().getContentResolver().unregisterContentObserver(
+						source.mObserver);
+				source.mObserver.release();
+			} else {
+				source.updatePaused();
+			}
+		}
+		return infos;
+	}
+
+	/**
+	 * Unregisters every list of a widget.
+	 */
+	void removeWidget(Context context, int widgetId) {
+		final ArrayList<ScrollViewInfos> infos = new ArrayList<ScrollViewInfos>();
+		for (ScrollViewInfos item : mInfos.values()) {
+			if (item.widgetId == widgetId)
+				infos.add(item);
+		}
+		for (ScrollViewInfos item : infos)
+			remove(context, item.widgetId, item.viewId);
+	}
+
+	/**
+	 * Pauses the data reloads of a widget while it is out of the viewport, or
+	 * resumes them. A data source shared with a visible widget keeps
+	 * reloading.
+	 */
+	void setWidgetVisible(int widgetId, boolean visible) {
+		for (ScrollViewInfos infos : mInfos.values()) {
+			if (infos.widgetId == widgetId && infos.visible != visible) {
+				infos.visible = visible;
+				final DataSource source = mSources.get(infos.dataUri);
+				if (source != null)
+					source.updatePaused();
+			}
+		}
+	}
+
+	/**
+	 * Reads again the rows a provider changed in place. Lists out of the
+	 * viewport, or whose adapter cannot read a range, reload as if their
+	 * data URI changed.
+	 */
+	void onRowsChanged(ScrollViewInfos infos, int first, int count) {
+		if (infos.visible && infos.lvAdapter instanceof WidgetListAdapter) {
+			((WidgetListAdapter) infos.lvAdapter).notifyRowsChanged(first, count);
+			return;
+		}
+
+		final DataSource source = mSources.get(infos.dataUri);
+		if (source != null)
+			source.mObserver.onChange(false);
+	}
+
+	/**
+	 * Asks an adapter to query its data again.
+	 */
+	static void regenerate(BaseAdapter adapter) {
+		if (adapter instanceof WidgetListAdapter)
+			((WidgetListAdapter) adapter).notifyToRegenerate();
+		else if (adapter instanceof WidgetRemoteViewsListAdapter)
+			((WidgetRemoteViewsListAdapter) adapter).notifyToRegenerate();
+	}
+}
@@ -56,7 +56,7 @@ public class SimpleRemoteViews implements Parcelable {
     * inflated
     */
    protected ArrayList<Action> mActions;
-   
+
 
    /**
     * Exception to send when something goes wrong executing an action
@@ -304,6 +304,12 @@ public class SimpleRemoteViews implements Parcelable {
        int type;
        Object value;
 
+       // Method resolved for the class of the last target view
+       private Class<?> mTargetClass;
+       private Method mMethod;
+       private String mSignature;
+       private final Object[] mArgs = new Object[1];
+
        ReflectionAction(int viewId, String methodName, int type, Object value) {
     	   this(viewId, methodName, type);
     	   this.value = value;
@@ -460,34 +466,54 @@ public class SimpleRemoteViews implements Parcelable {
            }
        }
 
-       @SuppressWarnings("unchecked")
        @Override
        public void apply(View root) {
            final View view = root.findViewById(viewId);
            if (view == null) {
                throw new ActionException("can't find view: 0x" + Integer.toHexString(viewId));
            }
+           applyTo(view);
+       }
 
-           Class param = getParameterType();
-           if (param == null) {
-               throw new ActionException("bad type: " + this.type);
+       /**
+        * Calls the method on the specified view, which must be the view
+        * whose id is the one of this action.
+        */
+       void applyTo(View view) {
+           final Class<?> klass = view.getClass();
+           if (klass != mTargetClass) {
+               mMethod = resolveMethod(klass);
+               mTargetClass = klass;
            }
 
-           Class klass = view.getClass();
-           Method method;
+           // Only called from the UI thread, the arguments array is reused
+           mArgs[0] = getValue(view.getContext());
            try {
-               method = klass.getMethod(this.methodName, getParameterType());
+        	   mMethod.invoke(view, mArgs);
            }
-           catch (NoSuchMethodException ex) {
-               throw new ActionException("view: " + klass.getName() + " doesn't have method: "
-                       + this.methodName + "(" + param.getName() + ")");
+           catch (Exception ex) {
+               throw new ActionException(ex);
+           }
+           finally {
+        	   mArgs[0] = null;
+           }
+       }
+
+       private Method resolveMethod(Class<?> klass) {
+           final Class<?> param = getParameterType();
+           if (param == null) {
+               throw new ActionException("bad type: " + this.type);
+           }
+           if (mSignature == null) {
+               mSignature = this.methodName + "(" + param.getName() + ")";
            }
 
            try {
-        	   method.invoke(view, getValue(root.getContext()));
+               return MethodCache.getMethod(klass, this.methodName, param, mSignature);
            }
-           catch (Exception ex) {
-               throw new ActionException(ex);
+           catch (NoSuchMethodException ex) {
+               throw new ActionException("view: " + klass.getName()
+                       + " doesn't have method: " + mSignature);
            }
        }
        
@@ -10,6 +10,7 @@ import android.graphics.drawable.AnimationDrawable;
 import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.ImageView;
 
 /**
@@ -36,6 +37,35 @@ public abstract class WidgetCellLayout extends ViewGroup {
         // do nothing here
     }
 
+    @Override
+    public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        super.addView(child, index, params);
+        if (child instanceof AppWidgetHostView)
+            onWidgetAdded((AppWidgetHostView) child);
+    }
+
+    /**
+     * Returns true if this cell layout is the current screen of its widget
+     * space.
+     */
+    protected boolean isCurrentScreen() {
+        final ViewParent parent = getParent();
+        return parent instanceof WidgetSpace
+                && ((WidgetSpace) parent).indexOfChild(this) == ((WidgetSpace) parent).mCurrentScreen;
+    }
+
+    /**
+     * Called when a widget is added to this cell layout, when bound or when
+     * dropped from another screen. Its state follows the viewport from then
+     * on, but a widget dragged off its screen missed the viewport change of
+     * this one.
+     */
+    protected void onWidgetAdded(AppWidgetHostView widgetView) {
+        if (getParent() instanceof WidgetSpace)
+            ((WidgetSpace) getParent()).setWidgetScrollableVisible(
+                    widgetView.getAppWidgetId(), isCurrentScreen());
+    }
+
     /**
      * Called when this cell layout get into the viewport
      */
@@ -51,6 +81,11 @@ public abstract class WidgetCellLayout extends ViewGroup {
                     widgetView = ((AppWidgetHostView) child);
                     widgetInfo = widgetView.getAppWidgetInfo();
                     int appWidgetId = widgetView.getAppWidgetId();
+
+                    // Catch up with the data changed while out of the viewport
+                    if (getParent() instanceof WidgetSpace)
+                        ((WidgetSpace) getParent()).setWidgetScrollableVisible(appWidgetId, true);
+
                     intent = new Intent(LauncherIntent.Notification.NOTIFICATION_IN_VIEWPORT)
                             .setComponent(widgetInfo.provider);
                     intent.putExtra(LauncherIntent.Extra.EXTRA_APPWIDGET_ID, appWidgetId);
@@ -85,6 +120,10 @@ public abstract class WidgetCellLayout extends ViewGroup {
                     // Notify the widget provider
                     widgetInfo = widgetView.getAppWidgetInfo();
                     int appWidgetId = widgetView.getAppWidgetId();
+
+                    // Hold its data reloads until it is back in the viewport
+                    if (getParent() instanceof WidgetSpace)
+                        ((WidgetSpace) getParent()).setWidgetScrollableVisible(appWidgetId, false);
                     intent = new Intent(LauncherIntent.Notification.NOTIFICATION_OUT_VIEWPORT)
                             .setComponent(widgetInfo.provider);
                     intent.putExtra(LauncherIntent.Extra.EXTRA_APPWIDGET_ID, appWidgetId);
@@ -105,7 +144,7 @@ public abstract class WidgetCellLayout extends ViewGroup {
             if (child instanceof ImageView) {
                 try {
                     AnimationDrawable ad = (AnimationDrawable) ((ImageView) child).getDrawable();
-                    ad.stop();
+                    FrameAnimationTicker.getInstance().stop(ad);
                 } catch (Exception e) {
                 }
             } else if (child instanceof ViewGroup) {
@@ -2,12 +2,20 @@ package mobi.intuitit.android.widget;
 
 import android.database.ContentObserver;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 
 /**
- * 
+ * Observes the data of a scrollable widget and asks it to reload.
+ *
+ * Providers often write their rows one by one, so the changes are coalesced:
+ * the listener is called once the data has been quiet for
+ * {@link #COALESCE_DELAY}, and at most {@link #MAX_LATENCY} after the first
+ * change of a burst. While the widget is out of the viewport the changes are
+ * only recorded, and a single reload is done when it gets back in.
+ *
  * @author Koxx
- * 
+ *
  */
 public class WidgetContentObserver extends ContentObserver {
 
@@ -15,14 +23,83 @@ public class WidgetContentObserver extends ContentObserver {
 
 	private static final boolean LOGD = true;
 
+	/**
+	 * Quiet time after the last change before reloading.
+	 */
+	private static final long COALESCE_DELAY = 500;
+
+	/**
+	 * Longest time a change may wait while the data keeps changing.
+	 */
+	private static final long MAX_LATENCY = 2000;
+
 	WidgetDataChangeListener widgetDataChangeListener;
 
+	private final Handler mHandler;
+
+	private boolean mPending;
+	private long mFirstChangeTime;
+	private boolean mPaused;
+
+	private final Runnable mDeliverRunnable = new Runnable() {
+		public void run() {
+			deliver();
+		}
+	};
+
+	/**
+	 * @param handler
+	 *            handler of the thread the changes are received, coalesced and
+	 *            delivered on, not null
+	 */
 	public WidgetContentObserver(Handler handler, WidgetDataChangeListener dataChangeListener_p) {
 		super(handler);
+		mHandler = handler;
 		widgetDataChangeListener = dataChangeListener_p;
 	}
 
 	public void onChange(boolean selfChange) {
+		final long now = SystemClock.uptimeMillis();
+		if (!mPending) {
+			mPending = true;
+			mFirstChangeTime = now;
+		}
+
+		// Reloaded once the widget is back in the viewport
+		if (mPaused)
+			return;
+
+		mHandler.removeCallbacks(mDeliverRunnable);
+		mHandler.postAtTime(mDeliverRunnable, Math.min(now + COALESCE_DELAY, mFirstChangeTime
+				+ MAX_LATENCY));
+	}
+
+	/**
+	 * Pauses the reloads while the widget is out of the viewport. Resuming
+	 * reloads it once if its data changed in the meantime.
+	 */
+	public void setPaused(boolean paused) {
+		if (mPaused == paused)
+			return;
+
+		mPaused = paused;
+		if (paused)
+			mHandler.removeCallbacks(mDeliverRunnable);
+		else if (mPending)
+			mHandler.post(mDeliverRunnable);
+	}
+
+	/**
+	 * Drops the pending reload and the listener, once unregistered.
+	 */
+	public void release() {
+		mHandler.removeCallbacks(mDeliverRunnable);
+		mPending = false;
+		widgetDataChangeListener = null;
+	}
+
+	private void deliver() {
+		mPending = false;
 
 		if (widgetDataChangeListener != null) {
 			if (LOGD)
@@ -32,7 +109,6 @@ public class WidgetContentObserver extends ContentObserver {
 			if (LOGD)
 				Log.d(TAG, "onChange -> no listerner");
 		}
-
 	}
 
 }
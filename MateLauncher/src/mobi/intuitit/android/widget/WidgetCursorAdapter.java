@@ -8,7 +8,6 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.text.Html;
 import android.util.Log;
@@ -221,11 +220,19 @@ public class WidgetCursorAdapter extends CursorAdapter {
                     iv = (ImageView) child;
                     byte[] data = cursor.getBlob(itemMapping.index);
                     if (data != null)
-                        iv.setImageBitmap(BitmapFactory.decodeByteArray(data, 0, data.length));
-                    else if (itemMapping.defaultResource > 0)
-                        iv.setImageResource(itemMapping.defaultResource);
-                    else
-                        iv.setImageDrawable(null);
+                        BlobImageLoader.getInstance().bind(iv, mAppWidgetId,
+                                mItemActionUriIndex >= 0 ? cursor.getString(mItemActionUriIndex)
+                                        : Integer.toString(cursor.getPosition()), i, data,
+                                itemMapping.defaultResource);
+                    else {
+                        // A view rebound in place may still wait for the image
+                        // of its previous row
+                        BlobImageLoader.getInstance().cancel(iv);
+                        if (itemMapping.defaultResource > 0)
+                            iv.setImageResource(itemMapping.defaultResource);
+                        else
+                            iv.setImageDrawable(null);
+                    }
                     break;
                 case LauncherIntent.Extra.Scroll.Types.IMAGEURI:
                     if (!(child instanceof ImageView))
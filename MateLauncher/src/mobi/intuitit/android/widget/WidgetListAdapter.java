@@ -9,14 +9,15 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
-import android.graphics.BitmapFactory;
 import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.text.Html;
 import android.text.Spanned;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -50,6 +51,7 @@ public class WidgetListAdapter extends BaseAdapter {
 	private Intent mIntent;
 
 	static ListViewImageManager mImageManager = ListViewImageManager.getInstance();
+	static BlobImageLoader sBlobImageLoader = BlobImageLoader.getInstance();
 
 	class RowElement {
 		// item data
@@ -65,7 +67,52 @@ public class WidgetListAdapter extends BaseAdapter {
 		}
 	}
 
-	public ArrayList<RowElementsList> rowsElementsList = new ArrayList<RowElementsList>();
+	/**
+	 * Number of rows kept in memory around the visible range.
+	 */
+	static final int WINDOW_SIZE = 120;
+
+	/**
+	 * Distance in rows between the visible range and the edge of the window
+	 * under which the next rows are prefetched.
+	 */
+	static final int PREFETCH_DISTANCE = 30;
+
+	/**
+	 * Number of rows read again by range queries kept over the cursor before
+	 * the whole list is queried again instead.
+	 */
+	static final int MAX_PATCHED_ROWS = WINDOW_SIZE;
+
+	// Rows are read from the provider on a single thread shared by every list
+	private static final HandlerThread sWorkerThread;
+	private static final Handler sWorkerQueue;
+
+	static {
+		sWorkerThread = new HandlerThread("WidgetListAdapter-worker",
+				Process.THREAD_PRIORITY_BACKGROUND);
+		sWorkerThread.start();
+		sWorkerQueue = new Handler(sWorkerThread.getLooper());
+	}
+
+	// UI thread state: row count and the window of rows read so far
+	private int mCount;
+	private int mWindowStart;
+	private RowElementsList[] mWindow = new RowElementsList[0];
+	private int mFirstVisible;
+
+	// Holders bound before their row was read, rebound when it comes in
+	private final ArrayList<ViewHolder> mPendingHolders = new ArrayList<ViewHolder>();
+
+	// Bumped by every query, windows read from older cursors are dropped
+	private volatile int mGeneration;
+	private volatile int mRequestedStart;
+
+	// Worker thread state
+	private Cursor mCursor;
+	private int mCursorGeneration;
+	// Rows read again by range queries, by position, newer than the cursor
+	private final SparseArray<RowElementsList> mPatchedRows = new SparseArray<RowElementsList>();
 
 	class ItemMapping {
 		int type;
@@ -111,21 +158,43 @@ public class WidgetListAdapter extends BaseAdapter {
 	// Need handler for callbacks to the UI thread
 	final Handler mHandler = new Handler();
 
-	// Create runnable for posting
-	final Runnable mGenerateDataCacheRunnable = new Runnable() {
+	// Runnables posted to the worker thread
+	final Runnable mQueryRunnable = new Runnable() {
 		public void run() {
 			if (LOGD)
-				Log.d(LOG_TAG, "mGenerateDataCacheRunnable start");
-			generateDataCache();
-			System.gc();
-			notifyDataSetInvalidated();
+				Log.d(LOG_TAG, "mQueryRunnable start");
+			query();
 			if (LOGD)
-				Log.d(LOG_TAG, "mGenerateDataCacheRunnable end");
+				Log.d(LOG_TAG, "mQueryRunnable end");
+		}
+	};
+
+	final Runnable mLoadWindowRunnable = new Runnable() {
+		public void run() {
+			loadWindow();
+		}
+	};
+
+	final Runnable mCloseRunnable = new Runnable() {
+		public void run() {
+			closeCursor();
 		}
 	};
 
+	/**
+	 * Drops the rows read so far and closes the provider cursor. The data is
+	 * read again by the next {@link #notifyToRegenerate()}.
+	 */
 	public void clearDataCache() {
-		rowsElementsList.clear();
+		mGeneration++;
+		mCount = 0;
+		mWindowStart = 0;
+		mWindow = new RowElementsList[0];
+		mPendingHolders.clear();
+
+		sWorkerQueue.removeCallbacks(mQueryRunnable);
+		sWorkerQueue.removeCallbacks(mLoadWindowRunnable);
+		sWorkerQueue.post(mCloseRunnable);
 		if (LOGD)
 			Log.d(LOG_TAG, "clearDataCache");
 	}
@@ -170,8 +239,8 @@ public class WidgetListAdapter extends BaseAdapter {
 		// Generate item mapping
 		generateItemMapping(intent);
 
-		// Generate data cache from content provider
-		mHandler.post(mGenerateDataCacheRunnable);
+		// Read the first rows from the content provider
+		notifyToRegenerate();
 
 	}
 
@@ -222,85 +291,336 @@ public class WidgetListAdapter extends BaseAdapter {
 
 	}
 
-	private void generateDataCache() {
+	/**
+	 * Queries the provider again and reads the rows around the requested
+	 * position. Runs on the worker thread.
+	 */
+	private void query() {
+		final int generation = mGeneration;
 
+		closeCursor();
 		if (mItemMappings == null)
 			return;
-		final int size = mItemMappings.length;
 
-        Cursor cursor = mContentResolver.query(Uri.parse(mIntent
-                .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI)), mIntent
-                .getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_PROJECTION), mIntent
-                .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION), mIntent
-                .getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION_ARGUMENTS),
-                mIntent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SORT_ORDER));
+		Cursor cursor = null;
+		try {
+			cursor = mContentResolver.query(Uri.parse(mIntent
+					.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI)), mIntent
+					.getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_PROJECTION), mIntent
+					.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION), mIntent
+					.getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION_ARGUMENTS),
+					mIntent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SORT_ORDER));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 
-		rowsElementsList.clear();
+		mCursor = cursor;
+		mCursorGeneration = generation;
 
-		while ((cursor != null) && (cursor.moveToNext())) {
+		final int count = cursor != null ? cursor.getCount() : 0;
+		final int start = clampWindowStart(mRequestedStart, count);
+		postWindow(generation, count, start, readRows(mCursor, start, count), true);
+	}
 
-			RowElementsList singleRowElem = new RowElementsList(size);
+	/**
+	 * Reads the rows of the requested window from the current cursor. Runs
+	 * on the worker thread.
+	 */
+	private void loadWindow() {
+		if (mCursor == null || mCursorGeneration != mGeneration)
+			return;
 
-			ItemMapping itemMapping;
-			try {
-				// bind children views
-				for (int i = size - 1; i >= 0; i--) {
+		final int count = mCursor.getCount();
+		final int start = clampWindowStart(mRequestedStart, count);
+		postWindow(mCursorGeneration, count, start, readRows(mCursor, start, count), false);
+	}
 
-					RowElement re = new RowElement();
+	/**
+	 * Reads the specified rows again with a row range query, and patches
+	 * them in the window. Runs on the worker thread.
+	 */
+	private void queryRows(final int generation, final int first, int count) {
+		if (mCursor == null || mCursorGeneration != generation)
+			// A full query is on its way
+			return;
 
-					itemMapping = mItemMappings[i];
+		final Uri uri = Uri.parse(mIntent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI))
+				.buildUpon().appendQueryParameter(
+						LauncherIntent.Extra.Scroll.QUERY_PARAMETER_OFFSET, Integer.toString(first))
+				.appendQueryParameter(LauncherIntent.Extra.Scroll.QUERY_PARAMETER_LIMIT,
+						Integer.toString(count)).build();
 
-					switch (itemMapping.type) {
-					case LauncherIntent.Extra.Scroll.Types.TEXTVIEW:
-						re.data = cursor.getString(itemMapping.index);
-						break;
-					case LauncherIntent.Extra.Scroll.Types.TEXTVIEWHTML:
-						re.data = Html.fromHtml(cursor.getString(itemMapping.index));
-						break;
-					case LauncherIntent.Extra.Scroll.Types.IMAGEBLOB:
-						byte[] localData = cursor.getBlob(itemMapping.index);
-						re.data = localData;
-						break;
-					case LauncherIntent.Extra.Scroll.Types.IMAGEURI:
-						re.data = cursor.getString(itemMapping.index);
-						break;
-					case LauncherIntent.Extra.Scroll.Types.IMAGERESOURCE:
-						re.data = cursor.getInt(itemMapping.index);
-						break;
-					}
+		Cursor cursor = null;
+		try {
+			cursor = mContentResolver.query(uri, mIntent
+					.getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_PROJECTION), mIntent
+					.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION), mIntent
+					.getStringArrayExtra(LauncherIntent.Extra.Scroll.EXTRA_SELECTION_ARGUMENTS),
+					mIntent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SORT_ORDER));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 
-					// Prepare tag
-					if (mItemChildrenClickable && itemMapping.clickable) {
-						if (mItemActionUriIndex >= 0)
-							re.tag = cursor.getString(mItemActionUriIndex);
-						else
-							re.tag = Integer.toString(cursor.getPosition());
-					} else {
-						if (mItemActionUriIndex >= 0) {
-							re.tag = cursor.getString(mItemActionUriIndex);
-						}
-					}
+		// A provider ignoring the range returns every row
+		if (cursor == null || cursor.getCount() > count) {
+			if (cursor != null)
+				cursor.close();
+			query();
+			return;
+		}
+
+		final RowElementsList[] rows = new RowElementsList[cursor.getCount()];
+		try {
+			for (int i = 0; i < rows.length && cursor.moveToPosition(i); i++)
+				rows[i] = readRow(cursor, first + i);
+		} finally {
+			cursor.close();
+		}
+
+		// The cursor keeps the old rows, later windows take these instead
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i] != null)
+				mPatchedRows.put(first + i, rows[i]);
+		}
+		if (mPatchedRows.size() > MAX_PATCHED_ROWS) {
+			query();
+			return;
+		}
+
+		mHandler.post(new Runnable() {
+			public void run() {
+				patchRows(generation, first, rows);
+			}
+		});
+	}
+
+	private void closeCursor() {
+		if (mCursor != null) {
+			mCursor.close();
+			mCursor = null;
+		}
+		mPatchedRows.clear();
+	}
+
+	/**
+	 * Reads the window starting at the specified position from the list
+	 * cursor, taking the rows read again since from the patched rows.
+	 */
+	private RowElementsList[] readRows(Cursor cursor, int start, int count) {
+		final int end = Math.min(start + WINDOW_SIZE, count);
+		final RowElementsList[] rows = new RowElementsList[Math.max(end - start, 0)];
+		for (int position = start; position < end; position++) {
+			final RowElementsList patched = mPatchedRows.get(position);
+			if (patched != null) {
+				rows[position - start] = patched;
+				continue;
+			}
+			if (!cursor.moveToPosition(position))
+				break;
+			rows[position - start] = readRow(cursor, position);
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads the row the cursor is on.
+	 *
+	 * @param position
+	 *            Position of the row in the list, which is not the one in
+	 *            the cursor of a range query
+	 */
+	private RowElementsList readRow(Cursor cursor, int position) {
+		final int size = mItemMappings.length;
+		RowElementsList singleRowElem = new RowElementsList(size);
+
+		ItemMapping itemMapping;
+		try {
+			// bind children views
+			for (int i = size - 1; i >= 0; i--) {
 
-					singleRowElem.singleRowElementsList[i] = re;
+				RowElement re = new RowElement();
+				singleRowElem.singleRowElementsList[i] = re;
 
+				itemMapping = mItemMappings[i];
+
+				switch (itemMapping.type) {
+				case LauncherIntent.Extra.Scroll.Types.TEXTVIEW:
+					re.data = cursor.getString(itemMapping.index);
+					break;
+				case LauncherIntent.Extra.Scroll.Types.TEXTVIEWHTML:
+					re.data = Html.fromHtml(cursor.getString(itemMapping.index));
+					break;
+				case LauncherIntent.Extra.Scroll.Types.IMAGEBLOB:
+					byte[] localData = cursor.getBlob(itemMapping.index);
+					re.data = localData;
+					break;
+				case LauncherIntent.Extra.Scroll.Types.IMAGEURI:
+					re.data = cursor.getString(itemMapping.index);
+					break;
+				case LauncherIntent.Extra.Scroll.Types.IMAGERESOURCE:
+					re.data = cursor.getInt(itemMapping.index);
+					break;
+				}
+
+				// Prepare tag
+				if (mItemChildrenClickable && itemMapping.clickable) {
+					if (mItemActionUriIndex >= 0)
+						re.tag = cursor.getString(mItemActionUriIndex);
+					else
+						re.tag = Integer.toString(position);
+				} else {
+					if (mItemActionUriIndex >= 0) {
+						re.tag = cursor.getString(mItemActionUriIndex);
+					}
 				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 
-				rowsElementsList.add(singleRowElem);
+		// Elements that could not be read are shown with their default
+		for (int i = size - 1; i >= 0; i--) {
+			if (singleRowElem.singleRowElementsList[i] == null)
+				singleRowElem.singleRowElementsList[i] = new RowElement();
+		}
+		return singleRowElem;
+	}
 
-			} catch (Exception e) {
-				e.printStackTrace();
+	private static int clampWindowStart(int start, int count) {
+		return Math.max(0, Math.min(start, count - WINDOW_SIZE));
+	}
+
+	private void postWindow(final int generation, final int count, final int start,
+			final RowElementsList[] rows, final boolean requeried) {
+		mHandler.post(new Runnable() {
+			public void run() {
+				swapWindow(generation, count, start, rows, requeried);
+			}
+		});
+	}
+
+	/**
+	 * Installs a window read by the worker thread. A new query changes the
+	 * whole list, a new window of the same cursor only rebinds the views
+	 * that were waiting for its rows.
+	 */
+	private void swapWindow(int generation, int count, int start, RowElementsList[] rows,
+			boolean requeried) {
+		if (generation != mGeneration)
+			return;
+
+		mWindowStart = start;
+		mWindow = rows;
+
+		if (requeried || count != mCount) {
+			mCount = count;
+			mPendingHolders.clear();
+			notifyDataSetChanged();
+			return;
+		}
+
+		for (int i = mPendingHolders.size() - 1; i >= 0; i--) {
+			final ViewHolder holder = mPendingHolders.get(i);
+			if (getRow(holder.position) != null) {
+				mPendingHolders.remove(i);
+				bindView(holder, holder.view, holder.view.getContext(), holder.position);
 			}
 		}
+	}
 
-		if (cursor != null)
-			cursor.close();
+	/**
+	 * Replaces the rows of the window read again by a range query.
+	 */
+	private void patchRows(int generation, int first, RowElementsList[] rows) {
+		if (generation != mGeneration)
+			return;
+
+		boolean changed = false;
+		for (int i = 0; i < rows.length; i++) {
+			final int index = first + i - mWindowStart;
+			if (rows[i] != null && index >= 0 && index < mWindow.length) {
+				mWindow[index] = rows[i];
+				changed = true;
+			}
+		}
+		if (changed)
+			notifyDataSetChanged();
+	}
+
+	/**
+	 * Returns the row at the specified position, or null if it is out of the
+	 * window read so far.
+	 */
+	RowElementsList getRow(int position) {
+		final int index = position - mWindowStart;
+		if (index < 0 || index >= mWindow.length)
+			return null;
+		return mWindow[index];
+	}
 
+	/**
+	 * Asks the worker thread for the window starting at the specified
+	 * position, replacing any request not handled yet.
+	 */
+	private void requestWindow(int start) {
+		start = clampWindowStart(start, mCount);
+		if (start == mRequestedStart)
+			return;
+
+		mRequestedStart = start;
+		sWorkerQueue.removeCallbacks(mLoadWindowRunnable);
+		sWorkerQueue.post(mLoadWindowRunnable);
+	}
+
+	/**
+	 * Prefetches the rows ahead of the visible range in the scroll direction.
+	 * Called by the list scroll listener.
+	 */
+	public void onScroll(int firstVisibleItem, int visibleItemCount) {
+		final boolean forward = firstVisibleItem >= mFirstVisible;
+		mFirstVisible = firstVisibleItem;
+
+		final int lastVisible = firstVisibleItem + visibleItemCount;
+		final int windowEnd = mWindowStart + mWindow.length;
+		if (forward) {
+			if (windowEnd < mCount && windowEnd - lastVisible < PREFETCH_DISTANCE)
+				requestWindow(firstVisibleItem - PREFETCH_DISTANCE);
+		} else if (mWindowStart > 0 && firstVisibleItem - mWindowStart < PREFETCH_DISTANCE) {
+			requestWindow(lastVisible + PREFETCH_DISTANCE - WINDOW_SIZE);
+		}
+	}
+
+	private View findChild(ViewHolder holder, View view, int i) {
+		if (holder.views[i] == null)
+			holder.views[i] = view.findViewById(mItemMappings[i].layoutId);
+		return holder.views[i];
+	}
+
+	/**
+	 * Clears the views of a row that has not been read yet.
+	 */
+	private void bindPlaceholder(ViewHolder holder, View view) {
+		holder.lvClickItemTag = null;
+		for (int i = mItemMappings.length - 1; i >= 0; i--) {
+			final View child = findChild(holder, view, i);
+			if (child instanceof TextView)
+				((TextView) child).setText(null);
+			else if (child instanceof ImageView) {
+				mImageManager.unbind((ImageView) child);
+				((ImageView) child).setImageDrawable(null);
+			}
+			if (child != null)
+				child.setTag(null);
+		}
 	}
 
 	public void bindView(ViewHolder holder, View view, Context context, int itemPosition) {
 		if (mItemMappings == null)
 			return;
 		final int size = mItemMappings.length;
+		final RowElementsList row = getRow(itemPosition);
+		if (row == null)
+			return;
 
 		ItemMapping itemMapping;
 		View child;
@@ -311,14 +631,9 @@ public class WidgetListAdapter extends BaseAdapter {
 			for (int i = size - 1; i >= 0; i--) {
 				itemMapping = mItemMappings[i];
 
-				if ((holder.views[i] != null)) {
-					child = holder.views[i];
-				} else {
-					child = view.findViewById(itemMapping.layoutId);
-					holder.views[i] = child;
-				}
+				child = findChild(holder, view, i);
 
-				rowElement = rowsElementsList.get(itemPosition).singleRowElementsList[i];
+				rowElement = row.singleRowElementsList[i];
 
 				switch (itemMapping.type) {
 				case LauncherIntent.Extra.Scroll.Types.TEXTVIEW:
@@ -342,41 +657,45 @@ public class WidgetListAdapter extends BaseAdapter {
 						break;
 					iv = (ImageView) child;
 					if (rowElement.data != null) {
-						byte[] blob = (byte[]) rowElement.data;
-						iv.setImageBitmap(BitmapFactory.decodeByteArray(blob, 0, blob.length));
-					} else if (itemMapping.defaultResource > 0)
-						iv.setImageResource(itemMapping.defaultResource);
-					else
-						iv.setImageDrawable(null);
+						sBlobImageLoader.bind(iv, mAppWidgetId, rowElement.tag != null ? rowElement.tag
+								: Integer.toString(itemPosition), i, (byte[]) rowElement.data,
+								itemMapping.defaultResource);
+					} else {
+						// A view rebound in place may still wait for the image
+						// of its previous row
+						sBlobImageLoader.cancel(iv);
+						if (itemMapping.defaultResource > 0)
+							iv.setImageResource(itemMapping.defaultResource);
+						else
+							iv.setImageDrawable(null);
+					}
 					break;
 				case LauncherIntent.Extra.Scroll.Types.IMAGEURI:
 					if (!(child instanceof ImageView))
 						break;
 					iv = (ImageView) child;
                    if ((rowElement.data != null) && (!rowElement.data.equals(""))) {
-                        Drawable d = mImageManager.getImageFromUri(context, mAppWidgetId,
+                        mImageManager.bindImageFromUri(iv, context, mAppWidgetId,
                                 (String) rowElement.data);
-                        iv.setImageDrawable(d);
-                    } else
+                    } else {
+                        mImageManager.unbind(iv);
                         iv.setImageDrawable(null);
+                    }
                     break;
                 case LauncherIntent.Extra.Scroll.Types.IMAGERESOURCE:
                     if (!(child instanceof ImageView))
                         break;
                     iv = (ImageView) child;
                     if ((Integer) rowElement.data > 0) {
-
-                        // assign new bitmap
-                        Drawable drawable = mImageManager.getImageFromId(context, mAppWidgetId,
+                        mImageManager.bindImageFromId(iv, context, mAppWidgetId,
                                 (Integer) rowElement.data);
-                        // iv.setImageResource(rowElement.imageResId);
-                        iv.setImageDrawable(drawable);
                     } else if (itemMapping.defaultResource > 0) {
-                        Drawable drawable = mImageManager.getImageFromId(context, mAppWidgetId,
+                        mImageManager.bindImageFromId(iv, context, mAppWidgetId,
                                 itemMapping.defaultResource);
-                        iv.setImageDrawable(drawable);
-                    } else
+                    } else {
+                        mImageManager.unbind(iv);
                         iv.setImageDrawable(null);
+                    }
                     break;
                 }
 
@@ -395,9 +714,6 @@ public class WidgetListAdapter extends BaseAdapter {
 		} catch (OutOfMemoryError e) {
             Log.d(LOG_TAG, "****** freeMemory = " + Runtime.getRuntime().freeMemory() / 1000
                     + " Kb");
-
-            System.gc();
-
             e.printStackTrace();
 
         } catch (Exception e) {
@@ -406,16 +722,6 @@ public class WidgetListAdapter extends BaseAdapter {
             e.printStackTrace();
 		}
 
-		// if (LOGD)
-		// Log.d(LOG_TAG, "freeMemory = " + Runtime.getRuntime().freeMemory() /
-		// 1000 + " Kb");
-
-		if (Runtime.getRuntime().freeMemory() < 500000) {
-			if (LOGD)
-				Log.d(LOG_TAG, "force gargabe collecting below 500kb");
-
-			System.gc();
-		}
 	}
 
 	class ItemViewClickListener implements OnClickListener {
@@ -460,12 +766,12 @@ public class WidgetListAdapter extends BaseAdapter {
 
 	@Override
 	public int getCount() {
-		return rowsElementsList.size();
+		return mCount;
 	}
 
 	@Override
 	public Object getItem(int position) {
-		return rowsElementsList.get(position);
+		return getRow(position);
 	}
 
 	@Override
@@ -491,8 +797,20 @@ public class WidgetListAdapter extends BaseAdapter {
 			// Log.d(LOG_TAG, "*** recycled view");
 		}
 
-		if (position < getCount())
-			bindView(holder, convertView, convertView.getContext(), position);
+		holder.view = convertView;
+		holder.position = position;
+		mPendingHolders.remove(holder);
+
+		if (position < getCount()) {
+			if (getRow(position) != null) {
+				bindView(holder, convertView, convertView.getContext(), position);
+			} else {
+				// Bind the row once it is read, centering the window on it
+				bindPlaceholder(holder, convertView);
+				mPendingHolders.add(holder);
+				requestWindow(position - WINDOW_SIZE / 2);
+			}
+		}
 
 		return convertView;
 
@@ -502,16 +820,45 @@ public class WidgetListAdapter extends BaseAdapter {
 		public View views[];
 		public Object lvClickItemTag = null;
 
+		// Row the holder is bound to
+		View view;
+		int position = -1;
+
 		public ViewHolder(int size) {
 			views = new View[size];
 		}
 	}
 
+	/**
+	 * Reads again the rows the provider changed in place, instead of the
+	 * whole list. Ranges larger than the window fall back to a full query.
+	 */
+	public void notifyRowsChanged(final int first, final int count) {
+		if (LOGD)
+			Log.d(LOG_TAG, "notifyRowsChanged widgetId = " + mAppWidgetId + " rows " + first
+					+ "+" + count);
+
+		if (first < 0 || count <= 0 || count > WINDOW_SIZE || first + count > mCount) {
+			notifyToRegenerate();
+			return;
+		}
+
+		final int generation = mGeneration;
+		sWorkerQueue.post(new Runnable() {
+			public void run() {
+				queryRows(generation, first, count);
+			}
+		});
+	}
+
 	public void notifyToRegenerate() {
 		if (LOGD)
 			Log.d(LOG_TAG, "notifyToRegenerate widgetId = " + mAppWidgetId);
 
-		mHandler.post(mGenerateDataCacheRunnable);
+		mGeneration++;
+		sWorkerQueue.removeCallbacks(mQueryRunnable);
+		sWorkerQueue.removeCallbacks(mLoadWindowRunnable);
+		sWorkerQueue.post(mQueryRunnable);
 	}
 
 }
@@ -66,7 +66,6 @@ public class WidgetRemoteViewsListAdapter extends BaseAdapter {
 	                mIntent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_SORT_ORDER));
 	    	mRemoteViews.setBindingCursor(cursor, mContext);
 	    	cursor.close();
-			System.gc();
 			notifyDataSetInvalidated();
 		}
 	};
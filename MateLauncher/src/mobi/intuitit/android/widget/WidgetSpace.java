@@ -1,8 +1,9 @@
 package mobi.intuitit.android.widget;
 
-import java.util.HashMap;
+import java.io.File;
 
 import mobi.intuitit.android.content.LauncherIntent;
+import mobi.intuitit.android.widget.ScrollViewRegistry.ScrollViewInfos;
 import mobi.intuitit.android.widget.WidgetListAdapter.ViewHolder;
 import android.app.Activity;
 import android.appwidget.AppWidgetHostView;
@@ -13,11 +14,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.PackageManager.NameNotFoundException;
-import android.database.ContentObserver;
 import android.graphics.Rect;
 import android.graphics.drawable.AnimationDrawable;
 import android.net.Uri;
-import android.os.Handler;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -33,6 +32,7 @@ import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.AbsListView.OnScrollListener;
+import android.widget.AbsListView.RecyclerListener;
 import android.widget.AdapterView.OnItemClickListener;
 
 /**
@@ -155,8 +155,8 @@ public abstract class WidgetSpace extends ViewGroup {
                     return;
 
                 if (start) {
-                    // Start the animation
-                    ad.start();
+                    // Start the animation on the shared ticker
+                    FrameAnimationTicker.getInstance().start(ad);
                     getContext()
                             .sendBroadcast(
                                     intent
@@ -165,7 +165,7 @@ public abstract class WidgetSpace extends ViewGroup {
                                                     LauncherIntent.Notification.NOTIFICATION_FRAME_ANIMATION_STARTED));
                 } else {
                     // Stop the animation
-                    ad.stop();
+                    FrameAnimationTicker.getInstance().stop(ad);
                     getContext()
                             .sendBroadcast(
                                     intent
@@ -328,42 +328,57 @@ public abstract class WidgetSpace extends ViewGroup {
 
     ScrollViewProvider mScrollViewProvider = new ScrollViewProvider();
 
-    // listview informations storage for each provider data Uri
-    class ScrollViewInfos {
-        AbsListView lv = null;
-        int widgetId = -1;
-        ContentObserver obs;
-        Handler obsHandler;
-        BaseAdapter lvAdapter;
-    }
+    // listview informations storage for each widget list, kept across
+    // launcher instances
+    static final ScrollViewRegistry sScrollViews = new ScrollViewRegistry();
 
-    static HashMap<String, ScrollViewInfos> mScrollViewCursorInfos = new HashMap<String, ScrollViewInfos>();
+    // Cancels the image decodes of the rows scrolled out of the lists
+    final RecyclerListener mBlobRecyclerListener = new RecyclerListener() {
+        public void onMovedToScrapHeap(View view) {
+            BlobImageLoader.getInstance().cancelAll(view);
+        }
+    };
 
     // Test if this widget is scrollable
-    public synchronized boolean isWidgetScrollable(int widgetId) {
-        for (ScrollViewInfos item : mScrollViewCursorInfos.values()) {
-            if (item.widgetId == widgetId)
-                return true;
-        }
-        return false;
+    public boolean isWidgetScrollable(int widgetId) {
+        return sScrollViews.isWidgetScrollable(widgetId);
+    }
+
+    /**
+     * Pauses the data reloads of a scrollable widget while it is out of the
+     * viewport, or resumes them.
+     */
+    public void setWidgetScrollableVisible(int widgetId, boolean visible) {
+        sScrollViews.setWidgetVisible(widgetId, visible);
+    }
+
+    /**
+     * Releases the lists of a deleted widget, their data and images.
+     */
+    public static void releaseWidgetScrollable(Context context, int widgetId) {
+        sScrollViews.removeWidget(context, widgetId);
+        ListViewImageManager.getInstance().releaseWidget(widgetId);
+        BlobImageLoader.getInstance().clearCacheForWidget(widgetId);
     }
 
     // Unbind ressource of scrollable widget
-    public synchronized boolean unbindWidgetScrollable() {
-        for (ScrollViewInfos item : mScrollViewCursorInfos.values()) {
-            if (item.lv != null) {
+    public boolean unbindWidgetScrollable() {
+        for (ScrollViewInfos item : sScrollViews.getAll()) {
+            final AbsListView lv = item.getListView();
+            if (lv != null) {
                 if (CLEAR_DATA_CACHE) {
-                    if (item.lv.getAdapter() != null)
-                        ((WidgetListAdapter) item.lv.getAdapter()).clearDataCache();
+                    if (item.lvAdapter instanceof WidgetListAdapter)
+                        ((WidgetListAdapter) item.lvAdapter).clearDataCache();
                 }
-                item.lv.setAdapter(null);
+                lv.setAdapter(null);
             }
-            item.lv = null;
+            item.setListView(null);
         }
         ListViewImageManager.getInstance().unbindDrawables();
 
         if (CLEAR_DATA_CACHE) {
             ListViewImageManager.getInstance().clearCache();
+            BlobImageLoader.getInstance().clearCache();
         }
 
         if (FORCE_FREE_MEMORY) {
@@ -410,8 +425,12 @@ public abstract class WidgetSpace extends ViewGroup {
                 error = setSelection(context, intent, widgetView);
             } else if (TextUtils.equals(action, LauncherIntent.Action.ACTION_SCROLL_WIDGET_CLOSE)) {
                 error = releaseScrollable(context, intent, widgetView);
+            } else if (TextUtils.equals(action,
+                    LauncherIntent.Action.ACTION_SCROLL_WIDGET_ROWS_CHANGED)) {
+                error = rowsChanged(context, intent, widgetView);
             } else if (TextUtils.equals(action, LauncherIntent.Action.ACTION_SCROLL_WIDGET_CLEAR_IMAGE_CACHE)) {
                 error = ListViewImageManager.getInstance().clearCacheForWidget(context, widgetId);
+                BlobImageLoader.getInstance().clearCacheForWidget(widgetId);
             }
             if (error == null) {
                 // send finish signal
@@ -426,7 +445,7 @@ public abstract class WidgetSpace extends ViewGroup {
             }
         }
 
-        private synchronized String makeScrollable(Context context, Intent intent,
+        private String makeScrollable(Context context, Intent intent,
                 AppWidgetHostView widgetView) {
 
             // get the dummy view to replace
@@ -486,12 +505,11 @@ public abstract class WidgetSpace extends ViewGroup {
                 }
                 String cursorDataUriString = intent
                         .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI);
-                ScrollViewInfos listViewInfos = mScrollViewCursorInfos.get(cursorDataUriString);
-
-                // new widget, initialize observer
-                if (listViewInfos == null) {
+                ScrollViewInfos listViewInfos = sScrollViews.get(appWidgetId, dummyViewId);
 
-                    listViewInfos = new ScrollViewInfos();
+                // new widget or data, initialize observer
+                if (listViewInfos == null
+                        || !TextUtils.equals(listViewInfos.dataUri, cursorDataUriString)) {
 
                     final BaseAdapter lvAdapter;
                     if (intent.hasExtra(LauncherIntent.Extra.Scroll.EXTRA_ITEM_LAYOUT_REMOTEVIEWS))
@@ -501,27 +519,11 @@ public abstract class WidgetSpace extends ViewGroup {
                         lvAdapter = new WidgetListAdapter(remoteContext,
                             intent, appWidgetProvider, appWidgetId, dummyViewId);
 
-                    // create listener for content Provider data modification
-                    WidgetDataChangeListener widgetDataChangeListener = new WidgetDataChangeListener() {
-                        @Override
-                        public void onChange() {
-                             if (lvAdapter instanceof WidgetListAdapter)
-                                 ((WidgetListAdapter)lvAdapter).notifyToRegenerate();
-                             else if (lvAdapter instanceof WidgetRemoteViewsListAdapter)
-                            	 ((WidgetRemoteViewsListAdapter)lvAdapter).notifyToRegenerate();
-                        }
-                    };
-
-                    // register contentProvider observer
-                    listViewInfos.obs = new WidgetContentObserver(listViewInfos.obsHandler,
-                            widgetDataChangeListener);
-                    Uri uriToObserver = Uri.parse(intent
-                            .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI));
-                    context.getContentResolver().registerContentObserver(uriToObserver, true,
-                            listViewInfos.obs);
-
-                    // store new adapter
-                    listViewInfos.lvAdapter = lvAdapter;
+                    // store new adapter, its data source is observed while
+                    // the widget is in the viewport
+                    listViewInfos = sScrollViews.add(context, appWidgetId, dummyViewId,
+                            cursorDataUriString, lvAdapter,
+                            findWidget(mCurrentScreen, appWidgetId) != null);
 
                     if (LOGD)
                         Log.d(TAG, "makeScrollable : recreate listview adapter");
@@ -538,11 +540,10 @@ public abstract class WidgetSpace extends ViewGroup {
                             appWidgetId, dummyViewId));
                 lv.setFocusableInTouchMode(false);
                 lv.setOnScrollListener(this);
+                lv.setRecyclerListener(mBlobRecyclerListener);
 
                 // store informations in static memory
-                listViewInfos.widgetId = appWidgetId;
-                listViewInfos.lv = lv;
-                mScrollViewCursorInfos.put(cursorDataUriString, listViewInfos);
+                listViewInfos.setListView(lv);
 
                 // force listview position if asked
                 int position = intent.getIntExtra(
@@ -550,12 +551,8 @@ public abstract class WidgetSpace extends ViewGroup {
                 if (position >= 0)
                     lv.setSelection(position);
 
-                if (CLEAR_DATA_CACHE) {
-                    if (listViewInfos.lvAdapter instanceof WidgetListAdapter)
-                        ((WidgetListAdapter)listViewInfos.lvAdapter).notifyToRegenerate();
-                    else if (listViewInfos.lvAdapter instanceof WidgetRemoteViewsListAdapter)
-                    	((WidgetRemoteViewsListAdapter)listViewInfos.lvAdapter).notifyToRegenerate();
-                }
+                if (CLEAR_DATA_CACHE)
+                    ScrollViewRegistry.regenerate(listViewInfos.lvAdapter);
 
                 if (FORCE_FREE_MEMORY) {
                     System.gc();
@@ -575,9 +572,12 @@ public abstract class WidgetSpace extends ViewGroup {
                         .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI);
                 int position = intent.getIntExtra(
                         LauncherIntent.Extra.Scroll.EXTRA_LISTVIEW_POSITION, 0);
-                ScrollViewInfos cursorInfos = mScrollViewCursorInfos.get(cursorDataUriString);
-                if (cursorInfos != null) {
-                    cursorInfos.lv.setSelection(position);
+                ScrollViewInfos cursorInfos = sScrollViews.find(widgetView.getAppWidgetId(),
+                        intent.getIntExtra(LauncherIntent.Extra.EXTRA_VIEW_ID, -1),
+                        cursorDataUriString);
+                final AbsListView lv = cursorInfos != null ? cursorInfos.getListView() : null;
+                if (lv != null) {
+                    lv.setSelection(position);
                 }
                 return null;
             } catch (Exception e) {
@@ -586,21 +586,33 @@ public abstract class WidgetSpace extends ViewGroup {
             }
         }
 
-        private synchronized String releaseScrollable(Context context, Intent intent,
+        private String rowsChanged(Context context, Intent intent, AppWidgetHostView widgetView) {
+            ScrollViewInfos listViewInfos = sScrollViews.find(widgetView.getAppWidgetId(),
+                    intent.getIntExtra(LauncherIntent.Extra.EXTRA_VIEW_ID, -1),
+                    intent.getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI));
+            if (listViewInfos == null)
+                return "Widget is not scrollable.";
+
+            sScrollViews.onRowsChanged(listViewInfos, intent.getIntExtra(
+                    LauncherIntent.Extra.Scroll.EXTRA_FIRST_ROW, -1), intent.getIntExtra(
+                    LauncherIntent.Extra.Scroll.EXTRA_ROW_COUNT, 0));
+            return null;
+        }
+
+        private String releaseScrollable(Context context, Intent intent,
                 AppWidgetHostView widgetView) {
 
             try {
 
-                // destroy listview
+                // destroy listview, closing the cursor of its adapter
                 String cursorDataUriString = intent
                         .getStringExtra(LauncherIntent.Extra.Scroll.EXTRA_DATA_URI);
-                ScrollViewInfos listViewInfos = mScrollViewCursorInfos.get(cursorDataUriString);
+                ScrollViewInfos listViewInfos = sScrollViews.find(widgetView.getAppWidgetId(),
+                        intent.getIntExtra(LauncherIntent.Extra.EXTRA_VIEW_ID, -1),
+                        cursorDataUriString);
                 if (listViewInfos != null) {
-                    listViewInfos.lv = null;
-                    context.getContentResolver().unregisterContentObserver(listViewInfos.obs);
-                    listViewInfos.obsHandler = null;
-                    listViewInfos.obs = null;
-                    mScrollViewCursorInfos.remove(cursorDataUriString);
+                    sScrollViews.remove(context, listViewInfos.widgetId, listViewInfos.viewId);
+                    ListViewImageManager.getInstance().releaseWidget(listViewInfos.widgetId);
                 }
                 return null;
             } catch (Exception e) {
@@ -700,7 +712,12 @@ public abstract class WidgetSpace extends ViewGroup {
             return result;
         }
 
-        public void onScroll(AbsListView arg0, int arg1, int arg2, int arg3) {
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+                int totalItemCount) {
+            // Let paged adapters prefetch in the scroll direction
+            if (view.getAdapter() instanceof WidgetListAdapter)
+                ((WidgetListAdapter) view.getAdapter()).onScroll(firstVisibleItem,
+                        visibleItemCount);
         }
 
         public void onScrollStateChanged(AbsListView view, int scrollState) {
@@ -714,6 +731,9 @@ public abstract class WidgetSpace extends ViewGroup {
     public void registerProvider() {
         final Context context = getContext();
 
+        ListViewImageManager.getInstance().setDiskCacheDir(
+                new File(context.getCacheDir(), "listview_images"));
+
         IntentFilter filter = new IntentFilter();
         filter.addAction(LauncherIntent.Action.ACTION_START_FRAME_ANIMATION);
         filter.addAction(LauncherIntent.Action.ACTION_STOP_FRAME_ANIMATION);
@@ -725,6 +745,7 @@ public abstract class WidgetSpace extends ViewGroup {
         scrollFilter.addAction(LauncherIntent.Action.ACTION_SCROLL_WIDGET_CLOSE);
         scrollFilter.addAction(LauncherIntent.Action.ACTION_SCROLL_WIDGET_CLEAR_IMAGE_CACHE);
         scrollFilter.addAction(LauncherIntent.Action.ACTION_SCROLL_WIDGET_SELECT_ITEM);
+        scrollFilter.addAction(LauncherIntent.Action.ACTION_SCROLL_WIDGET_ROWS_CHANGED);
         context.registerReceiver(mScrollViewProvider, scrollFilter);
     }
 
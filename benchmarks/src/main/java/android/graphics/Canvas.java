@@ -0,0 +1,23 @@
+package android.graphics;
+
+/**
+ * Stands in for the Android class of the same name, only counting what is
+ * drawn.
+ */
+public class Canvas {
+	private int mDrawCount;
+	private int mDrawnChars;
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		mDrawCount++;
+		mDrawnChars += text.length();
+	}
+
+	public int getDrawCount() {
+		return mDrawCount;
+	}
+
+	public int getDrawnChars() {
+		return mDrawnChars;
+	}
+}
@@ -0,0 +1,10 @@
+package android.graphics;
+
+/**
+ * The color constants of the Android class of the same name.
+ */
+public class Color {
+	public static final int BLACK = 0xFF000000;
+	public static final int WHITE = 0xFFFFFFFF;
+	public static final int RED = 0xFFFF0000;
+}
@@ -0,0 +1,80 @@
+package android.graphics;
+
+/**
+ * Stands in for the Android class of the same name. Text is measured with a
+ * fixed advance per character, full width for Hangul and about half for
+ * latin, which is close enough to lay out titles.
+ */
+public class Paint {
+
+	public enum Style {
+		FILL, STROKE, FILL_AND_STROKE
+	}
+
+	private Style mStyle = Style.FILL;
+	private int mColor = Color.BLACK;
+	private float mTextSize = 12;
+	private boolean mFakeBoldText;
+	private boolean mAntiAlias;
+	private float mShadowRadius;
+
+	public void setStyle(Style style) {
+		mStyle = style;
+	}
+
+	public Style getStyle() {
+		return mStyle;
+	}
+
+	public void setColor(int color) {
+		mColor = color;
+	}
+
+	public int getColor() {
+		return mColor;
+	}
+
+	public void setTextSize(float textSize) {
+		mTextSize = textSize;
+	}
+
+	public float getTextSize() {
+		return mTextSize;
+	}
+
+	public void setFakeBoldText(boolean fakeBoldText) {
+		mFakeBoldText = fakeBoldText;
+	}
+
+	public void setAntiAlias(boolean aa) {
+		mAntiAlias = aa;
+	}
+
+	public boolean isAntiAlias() {
+		return mAntiAlias;
+	}
+
+	public void setShadowLayer(float radius, float dx, float dy, int color) {
+		mShadowRadius = radius;
+	}
+
+	public float measureText(CharSequence text, int start, int end) {
+		float width = 0;
+		for (int i = start; i < end; i++)
+			width += advance(text.charAt(i));
+		return width;
+	}
+
+	public float measureText(String text) {
+		return measureText(text, 0, text.length());
+	}
+
+	public void getTextBounds(String text, int start, int end, Rect bounds) {
+		bounds.set(0, (int) -mTextSize, (int) Math.ceil(measureText(text, start, end)), 0);
+	}
+
+	float advance(char c) {
+		final float advance = c >= 'ᄀ' ? mTextSize : mTextSize * 0.55f;
+		return mFakeBoldText ? advance * 1.05f : advance;
+	}
+}
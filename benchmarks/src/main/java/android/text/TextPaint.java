@@ -0,0 +1,9 @@
+package android.text;
+
+import android.graphics.Paint;
+
+/**
+ * Stands in for the Android class of the same name.
+ */
+public class TextPaint extends Paint {
+}
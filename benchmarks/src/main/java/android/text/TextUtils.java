@@ -0,0 +1,41 @@
+package android.text;
+
+/**
+ * Stands in for the Android class of the same name, with the ellipsizing
+ * used by the launcher.
+ */
+public class TextUtils {
+
+	public enum TruncateAt {
+		START, MIDDLE, END, MARQUEE
+	}
+
+	private static final String ELLIPSIS = "…";
+
+	/**
+	 * Returns the text itself if it fits the given width, else a new string
+	 * of its start followed by an ellipsis. Only END is supported.
+	 */
+	public static CharSequence ellipsize(CharSequence text, TextPaint p,
+			float avail, TruncateAt where) {
+		if (where != TruncateAt.END)
+			throw new UnsupportedOperationException(where.toString());
+
+		final int length = text.length();
+		if (p.measureText(text, 0, length) <= avail)
+			return text;
+
+		final float room = avail - p.measureText(ELLIPSIS);
+		float width = 0;
+		int end = 0;
+		while (end < length) {
+			final float next = width + p.measureText(text, end, end + 1);
+			if (next > room)
+				break;
+			width = next;
+			end++;
+		}
+		return new StringBuilder(end + 1).append(text, 0, end)
+				.append(ELLIPSIS).toString();
+	}
+}
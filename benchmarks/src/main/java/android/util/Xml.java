@@ -0,0 +1,28 @@
+package android.util;
+
+import org.kxml2.io.KXmlParser;
+import org.kxml2.io.KXmlSerializer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlSerializer;
+
+/**
+ * Stands in for the Android class of the same name, backed by the kXML
+ * parser and serializer the platform uses.
+ */
+public class Xml {
+
+	public static XmlPullParser newPullParser() {
+		final KXmlParser parser = new KXmlParser();
+		try {
+			parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+		} catch (XmlPullParserException e) {
+			throw new AssertionError(e);
+		}
+		return parser;
+	}
+
+	public static XmlSerializer newSerializer() {
+		return new KXmlSerializer();
+	}
+}
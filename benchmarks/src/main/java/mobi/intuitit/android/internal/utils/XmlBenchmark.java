@@ -0,0 +1,82 @@
+package mobi.intuitit.android.internal.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes and reads back a map through {@link XmlUtils}, the way the
+ * preferences of every application are stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlBenchmark {
+
+	@Param({ "500" })
+	int entryCount;
+
+	private HashMap<String, Object> mMap;
+	private byte[] mXml;
+
+	@Setup
+	public void setUp() throws Exception {
+		// One entry of each kind per application, like a launcher keeping
+		// its own settings for every package
+		mMap = new HashMap<String, Object>();
+		for (int i = 0; i < entryCount; i++) {
+			final String pkg = "com.example.app" + i;
+			switch (i % 4) {
+			case 0:
+				mMap.put(pkg + ".title", "응용 프로그램 " + i);
+				break;
+			case 1:
+				mMap.put(pkg + ".screen", Integer.valueOf(i % 9));
+				break;
+			case 2:
+				mMap.put(pkg + ".hidden", Boolean.valueOf(i % 3 == 0));
+				break;
+			default:
+				mMap.put(pkg + ".launched", Long.valueOf(1338508800000L + i));
+				break;
+			}
+		}
+
+		mXml = write();
+	}
+
+	@Benchmark
+	public byte[] write() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+		XmlUtils.writeMapXml(mMap, out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public HashMap read() throws Exception {
+		return XmlUtils.readMapXml(new ByteArrayInputStream(mXml));
+	}
+
+	@Benchmark
+	public HashMap roundTrip() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+		XmlUtils.writeMapXml(mMap, out);
+		return XmlUtils.readMapXml(new ByteArrayInputStream(out.toByteArray()));
+	}
+}
@@ -0,0 +1,88 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Data shaped like a well used phone, shared by the benchmarks. Everything is
+ * generated from fixed seeds so runs stay comparable across releases.
+ */
+final class BenchmarkData {
+
+	/**
+	 * Number of applications in the drawer.
+	 */
+	static final int APP_COUNT = 500;
+
+	/**
+	 * Number of workspace screens.
+	 */
+	static final int SCREEN_COUNT = 9;
+
+	private static final String[] KOREAN_WORDS = { "카카오톡", "카카오맵", "네이버",
+			"멜론", "지니", "배달의민족", "요기요", "쿠팡", "당근마켓", "토스", "신한",
+			"국민", "우리", "하나", "농협", "지도", "캘린더", "카메라", "갤러리", "설정",
+			"메시지", "연락처", "전화", "시계", "계산기", "메모", "날씨", "뉴스", "사전",
+			"번역", "음악", "동영상", "게임", "쇼핑", "은행", "지하철", "버스", "택시",
+			"알람", "녹음기", "파일", "다운로드", "스토어", "도서", "웹툰", "증권", "건강",
+			"운동", "가계부", "일기" };
+
+	private static final String[] ENGLISH_WORDS = { "Gmail", "Maps", "YouTube",
+			"Chrome", "Drive", "Photos", "Play", "Music", "Calendar", "Camera",
+			"Clock", "Contacts", "Settings", "Messenger", "Facebook", "Twitter",
+			"Instagram", "Line", "Skype", "Dropbox", "Evernote", "Kindle",
+			"Netflix", "Spotify", "Uber", "Translate", "Keep", "Docs", "Sheets",
+			"Slides", "Weather", "News", "Notes", "Browser", "Mail", "Radio",
+			"Scanner", "Wallet", "Pay", "Fitness", "Reader", "Player", "Editor",
+			"Launcher", "Widget", "Lite", "Pro", "Plus", "Mini", "Free" };
+
+	/**
+	 * Queries typed in the drawer filter: initial sounds, syllables, mixed
+	 * and latin.
+	 */
+	static final String[] QUERIES = { "ㅋ", "ㅋㅋ", "ㄴㅇㅂ", "ㅂㄷㅇㅁㅈ", "카",
+			"카카오", "ㅋ카", "지ㄷ", "ㅅㅈ", "M", "Ma", "Play", "You", "ㄱㅇ",
+			"zz" };
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Returns application titles, about half of them Korean, in install order.
+	 */
+	static List<String> titles(int count) {
+		final Random random = new Random(20120601L);
+		final ArrayList<String> titles = new ArrayList<String>(count);
+
+		for (int i = 0; i < count; i++) {
+			final String[] words = random.nextBoolean() ? KOREAN_WORDS
+					: ENGLISH_WORDS;
+			final StringBuilder title = new StringBuilder(
+					words[random.nextInt(words.length)]);
+
+			// Many titles carry a second word, sometimes from the other
+			// language
+			final int extra = random.nextInt(3);
+			for (int j = 0; j < extra; j++) {
+				final String[] more = random.nextInt(4) == 0 ? (words == KOREAN_WORDS ? ENGLISH_WORDS
+						: KOREAN_WORDS)
+						: words;
+				title.append(' ').append(more[random.nextInt(more.length)]);
+			}
+			titles.add(title.toString());
+		}
+
+		return titles;
+	}
+
+	/**
+	 * Returns the titles shuffled the same way on every run.
+	 */
+	static List<String> shuffled(List<String> titles) {
+		final ArrayList<String> list = new ArrayList<String>(titles);
+		Collections.shuffle(list, new Random(7));
+		return list;
+	}
+}
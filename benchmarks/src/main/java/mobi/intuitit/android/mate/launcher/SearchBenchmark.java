@@ -0,0 +1,84 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Filters the drawer titles through every query, as typing in the search box
+ * does, with the matchers used by the launcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({ "500" })
+	int appCount;
+
+	private String[] mTitles;
+	private ChosungIndex mIndex;
+
+	@Setup
+	public void setUp() {
+		final List<String> titles = BenchmarkData.titles(appCount);
+		mTitles = titles.toArray(new String[titles.size()]);
+		mIndex = new ChosungIndex(titles);
+	}
+
+	@Benchmark
+	public void stringMatcher(Blackhole bh) {
+		final String[] titles = mTitles;
+		for (String query : BenchmarkData.QUERIES) {
+			int found = 0;
+			for (String title : titles) {
+				if (StringMatcher.match(title, query))
+					found++;
+			}
+			bh.consume(found);
+		}
+	}
+
+	@Benchmark
+	public void soundSearcher(Blackhole bh) {
+		final String[] titles = mTitles;
+		for (String query : BenchmarkData.QUERIES) {
+			int found = 0;
+			for (String title : titles) {
+				if (SoundSearcher.matchString(title, query))
+					found++;
+			}
+			bh.consume(found);
+		}
+	}
+
+	@Benchmark
+	public void chosungIndex(Blackhole bh) {
+		for (String query : BenchmarkData.QUERIES) {
+			// A query extending the previous one only rechecks its matches,
+			// as when typing
+			bh.consume(mIndex.search(query));
+		}
+	}
+
+	@Benchmark
+	public ChosungIndex chosungIndexBuild() {
+		return new ChosungIndex(Arrays.asList(mTitles));
+	}
+}
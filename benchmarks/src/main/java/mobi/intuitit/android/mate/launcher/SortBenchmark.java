@@ -0,0 +1,64 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts the drawer titles the way {@link LauncherModel}'s
+ * ApplicationInfoComparator does, with a Korean collator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+	@Param({ "500" })
+	int appCount;
+
+	private List<CharSequence> mTitles;
+	private Comparator<CharSequence> mComparator;
+
+	@Setup
+	public void setUp() {
+		mTitles = new ArrayList<CharSequence>(
+				BenchmarkData.shuffled(BenchmarkData.titles(appCount)));
+
+		final Collator collator = Collator.getInstance(Locale.KOREAN);
+		mComparator = new Comparator<CharSequence>() {
+			public int compare(CharSequence a, CharSequence b) {
+				return collator.compare(a.toString(), b.toString());
+			}
+		};
+	}
+
+	/**
+	 * Includes copying the unsorted list, which is small next to the sort.
+	 */
+	@Benchmark
+	public List<CharSequence> sortTitles() {
+		final ArrayList<CharSequence> list = new ArrayList<CharSequence>(
+				mTitles);
+		Collections.sort(list, mComparator);
+		return list;
+	}
+}
@@ -0,0 +1,119 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.graphics.Canvas;
+
+/**
+ * Draws the titles of a room screen in modify mode, one operation being one
+ * frame, through {@link MobjectTitle} on stand-ins for the Android graphics.
+ *
+ * Frames with unchanged titles must not allocate: the setup checks it with
+ * the thread allocation counter, and the gc profiler (-prof gc) reports it
+ * as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleBenchmark {
+
+	/**
+	 * Frames drawn by the allocation check, after as many to warm up.
+	 */
+	private static final int CHECKED_FRAMES = 10000;
+
+	@Param({ "30" })
+	int mobjectCount;
+
+	private MobjectTitle[] mTitles;
+	private CharSequence[] mSources;
+	private int[] mWidths;
+	private Canvas mCanvas;
+	private int mFrame;
+
+	@Setup
+	public void setUp() {
+		final List<String> titles = BenchmarkData.titles(mobjectCount);
+		mTitles = new MobjectTitle[mobjectCount];
+		mSources = new CharSequence[mobjectCount];
+		mWidths = new int[mobjectCount];
+		for (int i = 0; i < mobjectCount; i++) {
+			mTitles[i] = new MobjectTitle();
+			mSources[i] = titles.get(i);
+			// Avatars and furniture of a few sizes
+			mWidths[i] = 64 + (i % 4) * 32;
+		}
+		mCanvas = new Canvas();
+
+		checkFramesDoNotAllocate();
+	}
+
+	/**
+	 * A frame of a still or scrolling room: the titles are only drawn.
+	 */
+	@Benchmark
+	public Canvas frame() {
+		drawFrame(0);
+		return mCanvas;
+	}
+
+	/**
+	 * A frame after every mobject was resized, each title laid out again.
+	 */
+	@Benchmark
+	public Canvas frameRelayout() {
+		drawFrame(++mFrame & 1);
+		return mCanvas;
+	}
+
+	private void drawFrame(int grow) {
+		final MobjectTitle[] titles = mTitles;
+		final Canvas canvas = mCanvas;
+		for (int i = 0; i < titles.length; i++) {
+			final int width = mWidths[i] + grow;
+			if (titles[i].update(mSources[i], width))
+				titles[i].draw(canvas, width / 2);
+		}
+	}
+
+	private void checkFramesDoNotAllocate() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return;
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		final long thread = Thread.currentThread().getId();
+
+		// The first frames are run by the interpreter, which allocates once
+		for (int i = 0; i < CHECKED_FRAMES; i++)
+			drawFrame(0);
+		threads.getThreadAllocatedBytes(thread);
+
+		final long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < CHECKED_FRAMES; i++)
+			drawFrame(0);
+		final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		if (allocated > 0)
+			throw new IllegalStateException(allocated + " bytes allocated by "
+					+ CHECKED_FRAMES + " frames of " + mobjectCount
+					+ " titles");
+	}
+}
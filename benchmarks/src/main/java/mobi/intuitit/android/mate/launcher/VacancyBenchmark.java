@@ -0,0 +1,450 @@
+package mobi.intuitit.android.mate.launcher;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the vacancy searches of {@link CellOccupancy} with the recursive
+ * algorithm CellLayout used before, which rebuilt the occupied cells from the
+ * children and listed every vacant area on each search.
+ *
+ * Each operation searches all the screens of the workspace, about two thirds
+ * full of items of mixed spans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VacancyBenchmark {
+
+	@Param({ "4", "5", "6" })
+	int gridSize;
+
+	/**
+	 * Items of each screen, as {cellX, cellY, spanX, spanY}.
+	 */
+	private ArrayList<ArrayList<int[]>> mChildren;
+	private CellOccupancy[] mOccupancies;
+	private boolean[][] mOccupied;
+	private final int[] mResult = new int[2];
+
+	@Setup
+	public void setUp() {
+		final Random random = new Random(gridSize);
+		final int screenCount = BenchmarkData.SCREEN_COUNT;
+		mChildren = new ArrayList<ArrayList<int[]>>(screenCount);
+		mOccupancies = new CellOccupancy[screenCount];
+		mOccupied = new boolean[gridSize][gridSize];
+
+		for (int screen = 0; screen < screenCount; screen++) {
+			final CellOccupancy occupancy = new CellOccupancy(gridSize,
+					gridSize);
+			final ArrayList<int[]> children = new ArrayList<int[]>();
+			final int target = gridSize * gridSize * 2 / 3;
+
+			int filled = 0;
+			for (int tries = 0; filled < target && tries < 200; tries++) {
+				// Mostly icons, some widgets
+				final int spanX = random.nextInt(5) == 0 ? 2 : 1;
+				final int spanY = random.nextInt(8) == 0 ? 2 : 1;
+				final int x = random.nextInt(gridSize - spanX + 1);
+				final int y = random.nextInt(gridSize - spanY + 1);
+				if (occupancy.isVacant(x, y, spanX, spanY)) {
+					occupancy.add(x, y, spanX, spanY);
+					children.add(new int[] { x, y, spanX, spanY });
+					filled += spanX * spanY;
+				}
+			}
+
+			mChildren.add(children);
+			mOccupancies[screen] = occupancy;
+		}
+	}
+
+	/**
+	 * Finding a cell for a new shortcut, as getVacantCell does.
+	 */
+	@Benchmark
+	public void vacantCellLegacy(Blackhole bh) {
+		for (ArrayList<int[]> children : mChildren) {
+			Legacy.findOccupiedCells(children, gridSize, gridSize, mOccupied);
+			bh.consume(Legacy.findVacantCell(mResult, 1, 1, gridSize,
+					gridSize, mOccupied));
+		}
+	}
+
+	@Benchmark
+	public void vacantCellOccupancy(Blackhole bh) {
+		for (CellOccupancy occupancy : mOccupancies) {
+			bh.consume(occupancy.findVacantCell(mResult, 1, 1));
+		}
+	}
+
+	/**
+	 * Finding room for a widget after a long press, as findCellForSpan
+	 * does.
+	 */
+	@Benchmark
+	public void cellForSpanLegacy(Blackhole bh) {
+		for (ArrayList<int[]> children : mChildren) {
+			Legacy.findOccupiedCells(children, gridSize, gridSize, mOccupied);
+			final Legacy.CellInfo info = Legacy.findAllVacantCellsFromOccupied(
+					mOccupied, gridSize, gridSize);
+			bh.consume(info.findCellForSpan(mResult, 2, 2));
+		}
+	}
+
+	@Benchmark
+	public void cellForSpanOccupancy(Blackhole bh) {
+		for (CellOccupancy occupancy : mOccupancies) {
+			bh.consume(occupancy.findVacantCell(mResult, 2, 2));
+		}
+	}
+
+	/**
+	 * Finding where a dragged icon lands, on every drag over.
+	 */
+	@Benchmark
+	public void dropCellLegacy(Blackhole bh) {
+		for (ArrayList<int[]> children : mChildren) {
+			Legacy.findOccupiedCells(children, gridSize, gridSize, mOccupied);
+			final Legacy.CellInfo info = Legacy.findAllVacantCellsFromOccupied(
+					mOccupied, gridSize, gridSize);
+			bh.consume(Legacy.findNearestVacantArea(gridSize / 2,
+					gridSize / 2, 1, 1, info, mResult));
+			info.clearVacantCells();
+		}
+	}
+
+	@Benchmark
+	public void dropCellOccupancy(Blackhole bh) {
+		for (CellOccupancy occupancy : mOccupancies) {
+			bh.consume(occupancy.findNearestVacantCell(gridSize / 2,
+					gridSize / 2, 1, 1, mResult));
+		}
+	}
+
+	/**
+	 * The searches of CellLayout and LayoutType.CellInfo before the
+	 * occupancy grid, without the views.
+	 */
+	static final class Legacy {
+
+		static final class Rect {
+			int left;
+			int top;
+			int right;
+			int bottom;
+
+			void set(int left, int top, int right, int bottom) {
+				this.left = left;
+				this.top = top;
+				this.right = right;
+				this.bottom = bottom;
+			}
+		}
+
+		static final class VacantCell {
+			int cellX;
+			int cellY;
+			int spanX;
+			int spanY;
+
+			private static final int POOL_LIMIT = 100;
+			private static final Object sLock = new Object();
+
+			private static int sAcquiredCount = 0;
+			private static VacantCell sRoot;
+
+			private VacantCell next;
+
+			static VacantCell acquire() {
+				synchronized (sLock) {
+					if (sRoot == null) {
+						return new VacantCell();
+					}
+
+					VacantCell info = sRoot;
+					sRoot = info.next;
+					sAcquiredCount--;
+
+					return info;
+				}
+			}
+
+			void release() {
+				synchronized (sLock) {
+					if (sAcquiredCount < POOL_LIMIT) {
+						sAcquiredCount++;
+						next = sRoot;
+						sRoot = this;
+					}
+				}
+			}
+		}
+
+		static final class CellInfo {
+			int cellX;
+			int cellY;
+			int spanX;
+			int spanY;
+			boolean valid;
+
+			final ArrayList<VacantCell> vacantCells = new ArrayList<VacantCell>(
+					VacantCell.POOL_LIMIT);
+			int maxVacantSpanX;
+			int maxVacantSpanXSpanY;
+			int maxVacantSpanY;
+			int maxVacantSpanYSpanX;
+			final Rect current = new Rect();
+
+			void clearVacantCells() {
+				final ArrayList<VacantCell> list = vacantCells;
+				final int count = list.size();
+
+				for (int i = 0; i < count; i++)
+					list.get(i).release();
+
+				list.clear();
+			}
+
+			boolean findCellForSpan(int[] cellXY, int spanX, int spanY) {
+				final ArrayList<VacantCell> list = vacantCells;
+				final int count = list.size();
+
+				boolean found = false;
+
+				if (this.spanX >= spanX && this.spanY >= spanY) {
+					cellXY[0] = cellX;
+					cellXY[1] = cellY;
+					found = true;
+				}
+
+				// Look for an exact match first
+				for (int i = 0; i < count; i++) {
+					VacantCell cell = list.get(i);
+					if (cell.spanX == spanX && cell.spanY == spanY) {
+						cellXY[0] = cell.cellX;
+						cellXY[1] = cell.cellY;
+						found = true;
+						break;
+					}
+				}
+
+				// Look for the first cell large enough
+				for (int i = 0; i < count; i++) {
+					VacantCell cell = list.get(i);
+					if (cell.spanX >= spanX && cell.spanY >= spanY) {
+						cellXY[0] = cell.cellX;
+						cellXY[1] = cell.cellY;
+						found = true;
+						break;
+					}
+				}
+
+				clearVacantCells();
+
+				return found;
+			}
+		}
+
+		static void findOccupiedCells(ArrayList<int[]> children, int xCount,
+				int yCount, boolean[][] occupied) {
+			for (int x = 0; x < xCount; x++) {
+				for (int y = 0; y < yCount; y++) {
+					occupied[x][y] = false;
+				}
+			}
+
+			final int count = children.size();
+			for (int i = 0; i < count; i++) {
+				final int[] lp = children.get(i);
+
+				for (int x = lp[0]; x < lp[0] + lp[2] && x < xCount; x++) {
+					for (int y = lp[1]; y < lp[1] + lp[3] && y < yCount; y++) {
+						occupied[x][y] = true;
+					}
+				}
+			}
+		}
+
+		static boolean findVacantCell(int[] vacant, int spanX, int spanY,
+				int xCount, int yCount, boolean[][] occupied) {
+
+			for (int x = 0; x < xCount; x++) {
+				for (int y = 0; y < yCount; y++) {
+					boolean available = !occupied[x][y];
+					out: for (int i = x; i < x + spanX - 1 && x < xCount; i++) {
+						for (int j = y; j < y + spanY - 1 && y < yCount; j++) {
+							available = available && !occupied[i][j];
+							if (!available)
+								break out;
+						}
+					}
+
+					if (available) {
+						vacant[0] = x;
+						vacant[1] = y;
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+
+		static CellInfo findAllVacantCellsFromOccupied(boolean[][] occupied,
+				final int xCount, final int yCount) {
+			CellInfo cellInfo = new CellInfo();
+
+			cellInfo.cellX = -1;
+			cellInfo.cellY = -1;
+			cellInfo.spanY = 0;
+			cellInfo.spanX = 0;
+			cellInfo.maxVacantSpanX = Integer.MIN_VALUE;
+			cellInfo.maxVacantSpanXSpanY = Integer.MIN_VALUE;
+			cellInfo.maxVacantSpanY = Integer.MIN_VALUE;
+			cellInfo.maxVacantSpanYSpanX = Integer.MIN_VALUE;
+
+			Rect current = cellInfo.current;
+
+			for (int x = 0; x < xCount; x++) {
+				for (int y = 0; y < yCount; y++) {
+					if (!occupied[x][y]) {
+						current.set(x, y, x, y);
+						findVacantCell(current, xCount, yCount, occupied,
+								cellInfo);
+						occupied[x][y] = true;
+					}
+				}
+			}
+
+			cellInfo.valid = cellInfo.vacantCells.size() > 0;
+
+			return cellInfo;
+		}
+
+		private static void findVacantCell(Rect current, int xCount,
+				int yCount, boolean[][] occupied, CellInfo cellInfo) {
+
+			addVacantCell(current, cellInfo);
+
+			if (current.left > 0) {
+				if (isColumnEmpty(current.left - 1, current.top,
+						current.bottom, occupied)) {
+					current.left--;
+					findVacantCell(current, xCount, yCount, occupied, cellInfo);
+					current.left++;
+				}
+			}
+
+			if (current.right < xCount - 1) {
+				if (isColumnEmpty(current.right + 1, current.top,
+						current.bottom, occupied)) {
+					current.right++;
+					findVacantCell(current, xCount, yCount, occupied, cellInfo);
+					current.right--;
+				}
+			}
+
+			if (current.top > 0) {
+				if (isRowEmpty(current.top - 1, current.left, current.right,
+						occupied)) {
+					current.top--;
+					findVacantCell(current, xCount, yCount, occupied, cellInfo);
+					current.top++;
+				}
+			}
+
+			if (current.bottom < yCount - 1) {
+				if (isRowEmpty(current.bottom + 1, current.left,
+						current.right, occupied)) {
+					current.bottom++;
+					findVacantCell(current, xCount, yCount, occupied, cellInfo);
+					current.bottom--;
+				}
+			}
+		}
+
+		private static void addVacantCell(Rect current, CellInfo cellInfo) {
+			VacantCell cell = VacantCell.acquire();
+			cell.cellX = current.left;
+			cell.cellY = current.top;
+			cell.spanX = current.right - current.left + 1;
+			cell.spanY = current.bottom - current.top + 1;
+			if (cell.spanX > cellInfo.maxVacantSpanX) {
+				cellInfo.maxVacantSpanX = cell.spanX;
+				cellInfo.maxVacantSpanXSpanY = cell.spanY;
+			}
+			if (cell.spanY > cellInfo.maxVacantSpanY) {
+				cellInfo.maxVacantSpanY = cell.spanY;
+				cellInfo.maxVacantSpanYSpanX = cell.spanX;
+			}
+			cellInfo.vacantCells.add(cell);
+		}
+
+		private static boolean isColumnEmpty(int x, int top, int bottom,
+				boolean[][] occupied) {
+			for (int y = top; y <= bottom; y++) {
+				if (occupied[x][y]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean isRowEmpty(int y, int left, int right,
+				boolean[][] occupied) {
+			for (int x = left; x <= right; x++) {
+				if (occupied[x][y]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		static int[] findNearestVacantArea(int cellX, int cellY, int spanX,
+				int spanY, CellInfo vacantCells, int[] bestXY) {
+			double bestDistance = Double.MAX_VALUE;
+
+			if (!vacantCells.valid) {
+				return null;
+			}
+
+			final int size = vacantCells.vacantCells.size();
+			for (int i = 0; i < size; i++) {
+				final VacantCell cell = vacantCells.vacantCells.get(i);
+
+				if (cell.spanX != spanX || cell.spanY != spanY) {
+					continue;
+				}
+
+				double distance = Math.sqrt(Math.pow(cell.cellX - cellX, 2)
+						+ Math.pow(cell.cellY - cellY, 2));
+				if (distance <= bestDistance) {
+					bestDistance = distance;
+					bestXY[0] = cell.cellX;
+					bestXY[1] = cell.cellY;
+				}
+			}
+
+			return bestDistance < Double.MAX_VALUE ? bestXY : null;
+		}
+	}
+}
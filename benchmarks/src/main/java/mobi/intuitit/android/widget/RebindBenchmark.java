@@ -0,0 +1,207 @@
+package mobi.intuitit.android.widget;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rebinds the rows of a scrollable widget list the way
+ * {@link BoundRemoteViews#reapplyBinding} does, on plain Java stand-ins for
+ * the row views: a few recycled rows bound in turn to every row of the
+ * cursor.
+ *
+ * The legacy path looks up the target views and setters and allocates the
+ * arguments for every action of every row. The cached path resolves setters
+ * through {@link MethodCache}, remembers them per action, and looks up the
+ * targets once per row view.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RebindBenchmark {
+
+	/**
+	 * Row views a list keeps for recycling.
+	 */
+	private static final int RECYCLED_ROWS = 8;
+
+	@Param({ "10000" })
+	int rowCount;
+
+	private Binding[] mBindings;
+	private int[] mViewIds;
+	private Object[][] mValues;
+	private RowView[] mRows;
+
+	@Setup
+	public void setUp() {
+		// A title, a summary, a date and an image, as in a feed widget
+		mBindings = new Binding[] {
+				new Binding(1, "setText", CharSequence.class),
+				new Binding(2, "setText", CharSequence.class),
+				new Binding(3, "setText", CharSequence.class),
+				new Binding(4, "setImageUri", String.class) };
+		mViewIds = new int[mBindings.length];
+		for (int i = 0; i < mBindings.length; i++)
+			mViewIds[i] = mBindings[i].mViewId;
+
+		mValues = new Object[rowCount][];
+		for (int row = 0; row < rowCount; row++) {
+			mValues[row] = new Object[] { "제목 " + row, "Summary of item " + row,
+					"2012-06-0" + (row % 9 + 1),
+					"content://feed/images/" + row };
+		}
+
+		mRows = new RowView[RECYCLED_ROWS];
+		for (int i = 0; i < RECYCLED_ROWS; i++)
+			mRows[i] = new RowView();
+	}
+
+	@Benchmark
+	public RowView rebindLegacy() throws Exception {
+		final Binding[] bindings = mBindings;
+		RowView row = null;
+		for (int position = 0; position < rowCount; position++) {
+			row = mRows[position % RECYCLED_ROWS];
+			final Object[] values = mValues[position];
+			for (int i = 0; i < bindings.length; i++) {
+				final Binding binding = bindings[i];
+				final Object target = row.findViewById(binding.mViewId);
+				final Method method = target.getClass().getMethod(
+						binding.mMethodName, binding.mParam);
+				method.invoke(target, new Object[] { values[i] });
+			}
+		}
+		return row;
+	}
+
+	@Benchmark
+	public RowView rebindCached() throws Exception {
+		final Binding[] bindings = mBindings;
+		RowView row = null;
+		for (int position = 0; position < rowCount; position++) {
+			row = mRows[position % RECYCLED_ROWS];
+
+			Object[] targets = row.mTargets;
+			if (targets == null) {
+				targets = new Object[mViewIds.length];
+				for (int i = 0; i < targets.length; i++)
+					targets[i] = row.findViewById(mViewIds[i]);
+				row.mTargets = targets;
+			}
+
+			final Object[] values = mValues[position];
+			for (int i = 0; i < bindings.length; i++)
+				bindings[i].applyTo(targets[i], values[i]);
+		}
+		return row;
+	}
+
+	/**
+	 * A binding action, resolving its setter like
+	 * SimpleRemoteViews.ReflectionAction.
+	 */
+	static final class Binding {
+		final int mViewId;
+		final String mMethodName;
+		final Class<?> mParam;
+		final String mSignature;
+
+		private Class<?> mTargetClass;
+		private Method mMethod;
+		private final Object[] mArgs = new Object[1];
+
+		Binding(int viewId, String methodName, Class<?> param) {
+			mViewId = viewId;
+			mMethodName = methodName;
+			mParam = param;
+			mSignature = methodName + "(" + param.getName() + ")";
+		}
+
+		void applyTo(Object view, Object value) throws Exception {
+			final Class<?> klass = view.getClass();
+			if (klass != mTargetClass) {
+				mMethod = MethodCache.getMethod(klass, mMethodName, mParam,
+						mSignature);
+				mTargetClass = klass;
+			}
+
+			mArgs[0] = value;
+			try {
+				mMethod.invoke(view, mArgs);
+			} finally {
+				mArgs[0] = null;
+			}
+		}
+	}
+
+	/**
+	 * A row layout: a container, a text column and an image.
+	 */
+	public static final class RowView {
+		private final Object[] mChildren;
+		private final int[] mChildIds;
+
+		// Targets of the bindings, like the bound_row_targets tag
+		Object[] mTargets;
+
+		RowView() {
+			mChildren = new Object[] { new FrameView(), new TextView(),
+					new TextView(), new FrameView(), new TextView(),
+					new ImageView() };
+			mChildIds = new int[] { 10, 1, 2, 11, 3, 4 };
+		}
+
+		/**
+		 * Searches the children in layout order, as ViewGroup does.
+		 */
+		Object findViewById(int id) {
+			for (int i = 0; i < mChildIds.length; i++) {
+				if (mChildIds[i] == id)
+					return mChildren[i];
+			}
+			return null;
+		}
+	}
+
+	public static class FrameView {
+	}
+
+	public static class TextView {
+		private CharSequence mText;
+
+		public void setText(CharSequence text) {
+			mText = text;
+		}
+
+		public CharSequence getText() {
+			return mText;
+		}
+	}
+
+	public static class ImageView {
+		private String mUri;
+
+		public void setImageUri(String uri) {
+			mUri = uri;
+		}
+
+		public String getImageUri() {
+			return mUri;
+		}
+	}
+}